@@ -0,0 +1,269 @@
+package tds.op.taskmanager.loadtest;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Load driver thuần Java: mỗi "user" là một thread (virtual thread trên Java 21+) gửi request liên tục
+ * (closed loop) theo tỉ lệ trộn các API đọc của TaskController, UnitController và PersonalWorkController.
+ * Dữ liệu (unit, staff, plan, task) lấy từ chính API trước khi chạy, thường là dữ liệu của profile loadtest.
+ * <p>
+ * Chạy (server: mvn spring-boot:run -Dspring-boot.run.profiles=loadtest):
+ * <pre>
+ *   java -cp target/benchmarks.jar tds.op.taskmanager.loadtest.LoadDriver \
+ *        --base-url=http://localhost:8080 --users=200 --duration=60 --warmup=10
+ * </pre>
+ * Kết quả: số request, lỗi, throughput và độ trễ p50/p90/p99/p99.9/max theo từng endpoint.
+ */
+public final class LoadDriver {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final String baseUrl;
+
+    // Dữ liệu lấy từ API
+    private final List<Long> unitIds = new ArrayList<>();
+    private final List<Long> staffIds = new ArrayList<>();
+    private final List<Long> planIds = new ArrayList<>();
+    private final List<Long> taskIds = new ArrayList<>();
+    private final List<long[]> planUnits = new ArrayList<>(); // (planId, assigneeId) có task
+
+    private LoadDriver(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        int users = Integer.parseInt(options.getOrDefault("users", "100"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        LoadDriver driver = new LoadDriver(baseUrl);
+        driver.discover(new Random(seed));
+        driver.run(users, warmupSeconds, durationSeconds, seed);
+    }
+
+    // =========================================================================
+    // DISCOVERY
+    // =========================================================================
+
+    private void discover(Random random) throws Exception {
+        JsonNode structure = get("/api/unit/structure");
+        List<Long> roots = new ArrayList<>();
+        for (JsonNode root : structure) {
+            roots.add(root.get("id").asLong());
+            collectUnits(root);
+        }
+        if (unitIds.isEmpty()) throw new IllegalStateException("No units found at " + baseUrl);
+
+        for (Long unitId : sample(unitIds, 200, random)) {
+            for (JsonNode staff : get("/api/unit/" + unitId + "/staff")) {
+                staffIds.add(staff.get("id").asLong());
+            }
+        }
+        for (Long root : roots) {
+            for (JsonNode plan : get("/api/plan/unit/" + root + "/subtree")) {
+                planIds.add(plan.get("id").asLong());
+            }
+        }
+        for (Long planId : sample(planIds, 50, random)) {
+            JsonNode page = get("/api/task/plan/" + planId + "/groups?size=20");
+            for (JsonNode group : page.path("groups")) {
+                for (JsonNode task : group.path("tasks")) {
+                    taskIds.add(task.get("id").asLong());
+                    JsonNode assignee = task.path("assignee").path("id");
+                    if (assignee.isNumber()) planUnits.add(new long[]{planId, assignee.asLong()});
+                }
+            }
+        }
+        if (staffIds.isEmpty() || planIds.isEmpty() || taskIds.isEmpty() || planUnits.isEmpty()) {
+            throw new IllegalStateException("Not enough data: units=" + unitIds.size() + ", staff=" + staffIds.size()
+                    + ", plans=" + planIds.size() + ", tasks=" + taskIds.size());
+        }
+        System.out.printf("Discovered units=%d, staff=%d, plans=%d, tasks=%d%n",
+                unitIds.size(), staffIds.size(), planIds.size(), taskIds.size());
+    }
+
+    private void collectUnits(JsonNode unit) {
+        unitIds.add(unit.get("id").asLong());
+        for (JsonNode child : unit.path("children")) collectUnits(child);
+    }
+
+    // =========================================================================
+    // LOAD
+    // =========================================================================
+
+    /**
+     * Tỉ lệ trộn (weight) các API đọc.
+     */
+    private List<Endpoint> endpoints() {
+        return List.of(
+                // TaskController
+                new Endpoint("GET /api/task/plan/{planId}/groups", 15, r -> "/api/task/plan/" + any(planIds, r) + "/groups"),
+                new Endpoint("GET /api/task/plan/{planId}", 3, r -> "/api/task/plan/" + any(planIds, r)),
+                new Endpoint("GET /api/task/plan/{planId}/{unitId}/subtree", 5, r -> {
+                    long[] pu = planUnits.get(r.nextInt(planUnits.size()));
+                    return "/api/task/plan/" + pu[0] + "/" + pu[1] + "/subtree";
+                }),
+                new Endpoint("GET /api/task/{taskId}", 15, r -> "/api/task/" + any(taskIds, r)),
+                new Endpoint("GET /api/task/{taskId}/comments", 10, r -> "/api/task/" + any(taskIds, r) + "/comments"),
+                new Endpoint("GET /api/task/{taskId}/events", 5, r -> "/api/task/" + any(taskIds, r) + "/events"),
+                // UnitController
+                new Endpoint("GET /api/unit/structure", 2, r -> "/api/unit/structure"),
+                new Endpoint("GET /api/unit/structure/{id}", 5, r -> "/api/unit/structure/" + any(unitIds, r)),
+                new Endpoint("GET /api/unit/{id}/children", 5, r -> "/api/unit/" + any(unitIds, r) + "/children"),
+                new Endpoint("GET /api/unit/{id}/staff", 5, r -> "/api/unit/" + any(unitIds, r) + "/staff"),
+                new Endpoint("GET /api/unit/{id}/all-staff", 3, r -> "/api/unit/" + any(unitIds, r) + "/all-staff"),
+                // PersonalWorkController
+                new Endpoint("GET /api/my-work/plans", 7, r -> "/api/my-work/plans?staffId=" + any(staffIds, r)),
+                new Endpoint("GET /api/my-work/tasks", 10, r -> "/api/my-work/tasks?staffId=" + any(staffIds, r)),
+                new Endpoint("GET /api/my-work/actions", 10, r -> "/api/my-work/actions?staffId=" + any(staffIds, r)));
+    }
+
+    private void run(int users, int warmupSeconds, int durationSeconds, long seed) throws InterruptedException {
+        List<Endpoint> endpoints = endpoints();
+        int totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        System.out.printf("Running %d users: warmup %ds, measure %ds%n", users, warmupSeconds, durationSeconds);
+
+        ExecutorService executor = newExecutor();
+        try {
+            for (int u = 0; u < users; u++) {
+                Random random = new Random(seed + u);
+                executor.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        Endpoint endpoint = pick(endpoints, totalWeight, random);
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint.path().apply(random)))
+                                .timeout(Duration.ofSeconds(60)).GET().build();
+                        long sent = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        long done = System.nanoTime();
+                        if (sent >= measureFrom && done <= end) endpoint.record((done - sent) / 1000, ok);
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(warmupSeconds + durationSeconds + 120L, TimeUnit.SECONDS);
+        report(endpoints, durationSeconds);
+    }
+
+    private static void report(List<Endpoint> endpoints, int durationSeconds) {
+        System.out.printf("%n%-46s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        LatencyHistogram all = new LatencyHistogram();
+        long allErrors = 0;
+        for (Endpoint e : endpoints) {
+            printRow(e.name(), e.latency(), e.errors().get(), durationSeconds);
+            all.add(e.latency());
+            allErrors += e.errors().get();
+        }
+        printRow("TOTAL", all, allErrors, durationSeconds);
+    }
+
+    private static void printRow(String name, LatencyHistogram h, long errors, int durationSeconds) {
+        System.out.printf("%-46s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, h.count(), errors,
+                (double) h.count() / durationSeconds, ms(h.percentile(0.50)), ms(h.percentile(0.90)),
+                ms(h.percentile(0.99)), ms(h.percentile(0.999)), ms(h.max()));
+    }
+
+    // =========================================================================
+    // HELPERS
+    // =========================================================================
+
+    private JsonNode get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(120)).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("GET " + path + " -> " + response.statusCode());
+        }
+        return MAPPER.readTree(response.body());
+    }
+
+    // Virtual thread nếu JDK hỗ trợ (Java 21+), ngược lại mỗi user một platform thread
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads not available, using platform threads");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static Endpoint pick(List<Endpoint> endpoints, int totalWeight, Random random) {
+        int r = random.nextInt(totalWeight);
+        for (Endpoint e : endpoints) {
+            r -= e.weight();
+            if (r < 0) return e;
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    private static long any(List<Long> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static List<Long> sample(List<Long> values, int max, Random random) {
+        List<Long> copy = new ArrayList<>(values);
+        Collections.shuffle(copy, random);
+        return copy.subList(0, Math.min(max, copy.size()));
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Một API trong tỉ lệ trộn và kết quả đo của nó.
+     */
+    private record Endpoint(String name, int weight, Function<Random, String> path,
+                            LatencyHistogram latency, AtomicLong errors) {
+        Endpoint(String name, int weight, Function<Random, String> path) {
+            this(name, weight, path, new LatencyHistogram(), new AtomicLong());
+        }
+
+        void record(long micros, boolean ok) {
+            latency.record(micros);
+            if (!ok) errors.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package tds.op.taskmanager.service;
+
+import tds.op.taskmanager.representation.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Dữ liệu giả lập cho benchmark (seed cố định để các lần chạy so sánh được với nhau).
+ * Hình dạng dữ liệu bám theo thực tế: mỗi nhóm (uuid) lặp lại 12 tháng, các object tham chiếu
+ * (Plan, Unit, Staff) dùng chung như TaskAssembler trả về.
+ */
+final class BenchmarkData {
+
+    static final int MONTHS_PER_GROUP = 12;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Khóa nhóm (uuid, tên task đầu tiên) theo thứ tự (tên, uuid), như plan_task_group trả về.
+     */
+    static List<TaskGroupKey> groupKeys(List<TaskDTO> tasks) {
+        Map<String, TaskGroupKey> byUuid = new LinkedHashMap<>();
+        for (TaskDTO t : tasks) {
+            byUuid.putIfAbsent(t.getUuid(), new TaskGroupKey(t.getUuid(), t.getName() == null ? "" : t.getName()));
+        }
+        List<TaskGroupKey> keys = new ArrayList<>(byUuid.values());
+        keys.sort(Comparator.comparing(TaskGroupKey::getName).thenComparing(TaskGroupKey::getUuid));
+        return keys;
+    }
+
+    /**
+     * TaskDTO của một Plan: tasks / 12 nhóm, tháng trong nhóm bị xáo trộn (như thứ tự từ DB),
+     * một phần nhỏ có tháng sai format để đi qua nhánh fallback.
+     */
+    static List<TaskDTO> tasks(int count) {
+        Random random = new Random(42);
+        YearMonth start = YearMonth.of(2025, 1);
+
+        PlanDTO plan = new PlanDTO();
+        plan.setId(1L);
+        plan.setName("Kế hoạch năm");
+        plan.setStartMonth(start.toString());
+        plan.setEndMonth(start.plusMonths(MONTHS_PER_GROUP - 1).toString());
+
+        List<UnitDTO> units = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            UnitDTO unit = new UnitDTO();
+            unit.setId((long) i + 1);
+            unit.setName("Unit " + (i + 1));
+            unit.setLevel(UnitLevel.values()[i % UnitLevel.values().length]);
+            units.add(unit);
+        }
+        List<StaffDTO> staff = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            StaffDTO s = new StaffDTO();
+            s.setId((long) i + 1);
+            s.setName("Staff " + (i + 1));
+            s.setEmail("staff" + (i + 1) + "@example.com");
+            staff.add(s);
+        }
+        String[] months = new String[MONTHS_PER_GROUP];
+        for (int m = 0; m < MONTHS_PER_GROUP; m++) {
+            months[m] = start.plusMonths(m).toString();
+        }
+
+        List<TaskDTO> result = new ArrayList<>(count);
+        int groups = Math.max(1, count / MONTHS_PER_GROUP);
+        for (int g = 0; g < groups && result.size() < count; g++) {
+            String uuid = new UUID(random.nextLong(), random.nextLong()).toString();
+            String name = "Công việc " + random.nextInt(groups * 4);
+            UnitDTO assignee = units.get(random.nextInt(units.size()));
+
+            int[] order = shuffledMonths(random);
+            for (int k = 0; k < MONTHS_PER_GROUP && result.size() < count; k++) {
+                int m = order[k];
+                TaskDTO t = new TaskDTO();
+                t.setId((long) result.size() + 1);
+                t.setUuid(uuid);
+                t.setName(name);
+                t.setDescription("Mô tả " + name);
+                t.setMonth(random.nextInt(1000) == 0 ? "invalid" : months[m]);
+                LocalDate first = start.plusMonths(m).atDay(1);
+                t.setInitialStartDate(first);
+                t.setInitialDeadline(first.plusDays(27));
+                t.setCurrentDeadline(first.plusDays(27));
+                t.setStatus(TaskStatus.values()[random.nextInt(TaskStatus.values().length)]);
+                t.setPlan(plan);
+                t.setAssigner(units.get(0));
+                t.setAssignee(assignee);
+                t.getExecutors().add(staff.get(random.nextInt(staff.size())));
+                t.getExecutors().add(staff.get(random.nextInt(staff.size())));
+                t.setProgress(random.nextInt(101));
+                result.add(t);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cây tổ chức: 10 FUNCTION gốc, mỗi unit mới gắn vào một unit cha ngẫu nhiên đã có (độ sâu tự nhiên ~ log n).
+     * Thứ tự trả về xáo trộn như findAll() không có ORDER BY.
+     */
+    static List<Unit> units(int count) {
+        Random random = new Random(42);
+        List<Unit> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Unit u = new Unit();
+            u.setId((long) i + 1);
+            u.setName("Unit " + (i + 1));
+            u.setHead("head" + (i + 1) + "@example.com");
+            if (i < 10) {
+                u.setLevel(UnitLevel.FUNCTION);
+            } else {
+                u.setParentUnitId((long) random.nextInt(i) + 1);
+                u.setLevel(i < 200 ? UnitLevel.DEPARTMENT : UnitLevel.TEAM);
+            }
+            result.add(u);
+        }
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    /**
+     * Comment của một Task theo thứ tự id; khoảng 1/3 là reply một comment trước đó.
+     */
+    static List<TaskComment> comments(int count) {
+        Random random = new Random(42);
+        long epoch = 1_735_689_600_000L;
+        List<TaskComment> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TaskComment c = new TaskComment();
+            c.setId((long) i + 1);
+            c.setTaskId(1L);
+            c.setOwnerId((long) random.nextInt(50) + 1);
+            if (i > 0 && random.nextInt(3) == 0) {
+                c.setTargetId((long) random.nextInt(i) + 1);
+            }
+            c.setMessage("Comment " + (i + 1));
+            // Epoch không hoàn toàn tăng theo id (comment gửi đồng thời từ nhiều node)
+            epoch += random.nextInt(60_000) - 5_000;
+            c.setEpoch(epoch);
+            c.setTimestamp("2025-01-01 00:00:00");
+            result.add(c);
+        }
+        return result;
+    }
+
+    static Map<Long, StaffDTO> owners(List<TaskComment> comments) {
+        Map<Long, StaffDTO> owners = new HashMap<>();
+        for (TaskComment c : comments) {
+            owners.computeIfAbsent(c.getOwnerId(), id -> {
+                StaffDTO s = new StaffDTO();
+                s.setId(id);
+                s.setName("Staff " + id);
+                return s;
+            });
+        }
+        return owners;
+    }
+
+    private static int[] shuffledMonths(Random random) {
+        int[] order = new int[MONTHS_PER_GROUP];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+}
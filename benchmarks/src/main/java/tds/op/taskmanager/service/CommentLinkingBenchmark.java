@@ -0,0 +1,39 @@
+package tds.op.taskmanager.service;
+
+import org.openjdk.jmh.annotations.*;
+import tds.op.taskmanager.representation.StaffDTO;
+import tds.op.taskmanager.representation.TaskComment;
+import tds.op.taskmanager.representation.TaskCommentDTO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map comment -> DTO, gắn reply target và sort theo epoch (phần trong bộ nhớ của CommentService.getTaskComments).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommentLinkingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int comments;
+
+    private List<TaskComment> entities;
+    private Map<Long, StaffDTO> owners;
+
+    @Setup
+    public void setup() {
+        entities = BenchmarkData.comments(comments);
+        owners = BenchmarkData.owners(entities);
+    }
+
+    @Benchmark
+    public List<TaskCommentDTO> linkReplies() {
+        return CommentService.linkReplies(entities, owners);
+    }
+}
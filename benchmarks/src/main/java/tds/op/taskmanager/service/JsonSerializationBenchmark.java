@@ -0,0 +1,52 @@
+package tds.op.taskmanager.service;
+
+import org.openjdk.jmh.annotations.*;
+import tds.op.taskmanager.representation.TaskDTO;
+import tds.op.taskmanager.representation.TaskGroup;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialize List&lt;TaskGroup&gt; (response của GET /api/task/plan/{planId}) và List&lt;TaskDTO&gt;.
+ * Ghi ra nullOutputStream để chỉ đo serialize, không đo việc cấp phát buffer cho cả response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class JsonSerializationBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int tasks;
+
+    private final JsonMapper mapper = JsonMapper.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+    private final OutputStream sink = OutputStream.nullOutputStream();
+
+    private List<TaskDTO> dtos;
+    private List<TaskGroup> groups;
+
+    @Setup
+    public void setup() {
+        dtos = BenchmarkData.tasks(tasks);
+        groups = TaskGrouping.buildTaskGroups(dtos, BenchmarkData.groupKeys(dtos), YearMonth.of(2125, 1));
+    }
+
+    @Benchmark
+    public void taskGroups() {
+        mapper.writeValue(sink, groups);
+    }
+
+    @Benchmark
+    public void taskDTOs() {
+        mapper.writeValue(sink, dtos);
+    }
+}
@@ -0,0 +1,61 @@
+package tds.op.taskmanager.service;
+
+import org.openjdk.jmh.annotations.*;
+import tds.op.taskmanager.repository.UnitRepository;
+import tds.op.taskmanager.representation.Unit;
+import tds.op.taskmanager.representation.UnitDTO;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cây tổ chức (OrgTreeCache, thay cho UnitService.buildTree/toTree):
+ * - rebuildAndWalk: build snapshot từ danh sách Unit + dựng toàn bộ cây UnitDTO (trường hợp cache vừa invalidate).
+ * - walkCached: chỉ dựng cây UnitDTO từ snapshot có sẵn (trường hợp thường gặp của GET /api/unit/structure).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrgTreeBenchmark {
+
+    @Param({"10000"})
+    public int units;
+
+    private OrgTreeCache uncached;
+    private OrgTreeCache cached;
+
+    @Setup
+    public void setup() {
+        UnitRepository repository = stubRepository(BenchmarkData.units(units));
+        // max-age 0: mỗi lần đọc đều build lại snapshot
+        uncached = new OrgTreeCache(repository, 0);
+        cached = new OrgTreeCache(repository, Long.MAX_VALUE / 1000);
+        cached.getCorporateStructure();
+    }
+
+    @Benchmark
+    public List<UnitDTO> rebuildAndWalk() {
+        return uncached.getCorporateStructure();
+    }
+
+    @Benchmark
+    public List<UnitDTO> walkCached() {
+        return cached.getCorporateStructure();
+    }
+
+    // Chỉ findAll() được OrgTreeCache sử dụng
+    private static UnitRepository stubRepository(List<Unit> units) {
+        return (UnitRepository) Proxy.newProxyInstance(UnitRepository.class.getClassLoader(),
+                new Class<?>[]{UnitRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && method.getParameterCount() == 0) return units;
+                    if (method.getName().equals("toString")) return "StubUnitRepository";
+                    if (method.getName().equals("hashCode")) return System.identityHashCode(proxy);
+                    if (method.getName().equals("equals")) return proxy == args[0];
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,41 @@
+package tds.op.taskmanager.service;
+
+import org.openjdk.jmh.annotations.*;
+import tds.op.taskmanager.representation.TaskDTO;
+import tds.op.taskmanager.representation.TaskGroup;
+import tds.op.taskmanager.representation.TaskGroupKey;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gom nhóm theo UUID + sort theo tháng + xếp nhóm theo khóa đã sort (phần trong bộ nhớ của TaskService.getTasksByPlan).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TaskGroupingBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int tasks;
+
+    private List<TaskDTO> dtos;
+    private List<TaskGroupKey> keys;
+    private YearMonth fallbackMonth;
+
+    @Setup
+    public void setup() {
+        dtos = BenchmarkData.tasks(tasks);
+        keys = BenchmarkData.groupKeys(dtos);
+        fallbackMonth = YearMonth.of(2125, 1);
+    }
+
+    @Benchmark
+    public List<TaskGroup> buildTaskGroups() {
+        return TaskGrouping.buildTaskGroups(dtos, keys, fallbackMonth);
+    }
+}
@@ -6,6 +6,8 @@ import org.springframework.web.bind.annotation.*;
 import tds.op.taskmanager.representation.ActionDTO;
 import tds.op.taskmanager.service.ActionService;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @RestController
@@ -67,6 +69,23 @@ public class ActionController {
         }
     }
 
+    /**
+     * Gia hạn Deadline cho Action. Action đang OVERDUE được gia hạn tới hôm nay hoặc sau đó thì trở lại status cũ.
+     * URL: POST /api/task/action/{actionId}/extend-deadline?newDate=yyyy-MM-dd
+     */
+    @CrossOrigin("http://localhost:5173")
+    @PostMapping("/{actionId}/extend-deadline")
+    public ResponseEntity<?> extendDeadline(@PathVariable Long actionId, @RequestParam String newDate) {
+        try {
+            actionService.extendDeadline(actionId, LocalDate.parse(newDate));
+            return ResponseEntity.ok("Deadline extended successfully.");
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Invalid date format. Please use yyyy-MM-dd");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
     // =========================================================================
     // 3. DELETE ACTION
     // =========================================================================
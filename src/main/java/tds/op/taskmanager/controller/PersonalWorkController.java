@@ -3,6 +3,7 @@ package tds.op.taskmanager.controller;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import tds.op.taskmanager.representation.ActionDTO;
+import tds.op.taskmanager.representation.PersonalDashboard;
 import tds.op.taskmanager.representation.PlanDTO;
 import tds.op.taskmanager.representation.TaskDTO;
 import tds.op.taskmanager.representation.TaskStatus;
@@ -41,6 +42,16 @@ public class PersonalWorkController {
         return ResponseEntity.ok(personalWorkService.getMyAssignedActions(staffId));
     }
 
+    /**
+     * Plan + Task + Action của tôi kèm số lượng theo trạng thái và deadline, trong một request / một transaction.
+     * URL: GET /api/my-work/dashboard?staffId=...
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping("/dashboard")
+    public ResponseEntity<PersonalDashboard> getDashboard(@RequestParam Long staffId) {
+        return ResponseEntity.ok(personalWorkService.getDashboard(staffId));
+    }
+
     /**
      * Cập nhật trạng thái Action.
      * URL: PUT /api/my-work/action/{actionId}/status?staffId=1&status=COMPLETED
@@ -4,9 +4,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import tds.op.taskmanager.representation.PlanDTO;
+import tds.op.taskmanager.representation.PlanDeletionProgress;
+import tds.op.taskmanager.representation.PlanRollupReport;
 import tds.op.taskmanager.service.PlanService;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/plan")
@@ -69,6 +72,26 @@ public class PlanController {
         return ResponseEntity.ok(list);
     }
 
+    /**
+     * Lấy các Plan do Unit này hoặc các Unit con cháu tạo ra.
+     * Endpoint: GET /api/plan/unit/{unitId}/subtree
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping("/unit/{unitId}/subtree")
+    public ResponseEntity<List<PlanDTO>> getPlansUnderUnit(@PathVariable Long unitId) {
+        return ResponseEntity.ok(planService.getPlansUnderUnit(unitId));
+    }
+
+    /**
+     * Lấy các Plan mà Unit này hoặc các Unit con cháu được giao việc.
+     * Endpoint: GET /api/plan/participant/{unitId}/subtree
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping("/participant/{unitId}/subtree")
+    public ResponseEntity<List<PlanDTO>> getPlansWhereSubtreeIsParticipant(@PathVariable Long unitId) {
+        return ResponseEntity.ok(planService.findPlansAsMemberUnderUnit(unitId));
+    }
+
     /**
      * Cập nhật Plan.
      * Endpoint: PUT /api/plan/{id}
@@ -83,7 +106,7 @@ public class PlanController {
     }
 
     /**
-     * Xóa Plan.
+     * Xóa Plan. Dữ liệu phụ thuộc (Task, Action, ...) được xóa nền, theo dõi qua GET /api/plan/{id}/deletion.
      * Endpoint: DELETE /api/plan/{id}
      */
     @CrossOrigin("http://localhost:5173")
@@ -93,4 +116,41 @@ public class PlanController {
         if (!deleted) return ResponseEntity.notFound().build();
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Tiến độ xóa nền Task/Action/Comment/Event của Plan đã xóa.
+     * Endpoint: GET /api/plan/{id}/deletion
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping("/{id}/deletion")
+    public ResponseEntity<PlanDeletionProgress> getDeletionProgress(@PathVariable Long id) {
+        PlanDeletionProgress progress = planService.getDeletionProgress(id);
+        if (progress == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(progress);
+    }
+
+    /**
+     * Báo cáo tổng hợp của Plan: số Task theo TaskStatus, progress trung bình, đúng hạn / đã gia hạn,
+     * theo toàn Plan, theo unit được giao, theo tháng và theo từng cặp (unit, tháng).
+     * Endpoint: GET /api/plan/{id}/rollup
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping("/{id}/rollup")
+    public ResponseEntity<PlanRollupReport> getRollup(@PathVariable Long id) {
+        PlanRollupReport report = planService.getRollup(id);
+        if (report == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Build lại số liệu tổng hợp của mọi Plan từ bảng Task (backfill, hoặc sau khi ghi dữ liệu ngoài ứng dụng).
+     * Chạy nền: trả về 202 ngay, hoặc 409 nếu đang có lần build lại khác (trên node này hoặc node giữ lease).
+     * Endpoint: POST /api/plan/rollup/rebuild
+     */
+    @CrossOrigin("http://localhost:5173")
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<Map<String, Boolean>> rebuildRollups() {
+        boolean started = planService.rebuildRollups();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(Map.of("started", started));
+    }
+}
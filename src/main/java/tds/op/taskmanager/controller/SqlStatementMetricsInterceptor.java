@@ -0,0 +1,91 @@
+package tds.op.taskmanager.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import tds.op.taskmanager.service.SqlStatementCounter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo JDBC theo từng HTTP request (số câu SQL, số dòng, thời gian chờ DB) và ghi metric theo endpoint:
+ * - taskmanager.sql.statements, taskmanager.sql.rows (distribution summary), taskmanager.sql.time (timer)
+ *   với tag method + uri (pattern của controller, VD: /api/task/plan/{planId}).
+ * - Request vượt quá taskmanager.sql.statement-budget câu SQL: log WARN + tăng taskmanager.sql.budget.exceeded
+ *   (thường là dấu hiệu N+1 trong mapper).
+ * Request async (StreamingResponseBody, ...) chỉ được đo phần chạy trên thread của request.
+ */
+@Component
+public class SqlStatementMetricsInterceptor implements AsyncHandlerInterceptor, WebMvcConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatementMetricsInterceptor.class);
+
+    private static final String SCOPE_ATTRIBUTE = SqlStatementMetricsInterceptor.class.getName() + ".scope";
+
+    private final MeterRegistry meterRegistry;
+    private final int statementBudget;
+
+    public SqlStatementMetricsInterceptor(MeterRegistry meterRegistry,
+                                          @Value("${taskmanager.sql.statement-budget:30}") int statementBudget) {
+        this.meterRegistry = meterRegistry;
+        this.statementBudget = statementBudget;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(SCOPE_ATTRIBUTE, SqlStatementCounter.start());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SqlStatementCounter.Scope scope = (SqlStatementCounter.Scope) request.getAttribute(SCOPE_ATTRIBUTE);
+        if (scope == null) return;
+        request.removeAttribute(SCOPE_ATTRIBUTE);
+        scope.close();
+        record(request, scope);
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Phần còn lại chạy trên thread khác: ghi nhận phần đã chạy, gỡ Scope khỏi thread của request
+        afterCompletion(request, response, handler, null);
+    }
+
+    private void record(HttpServletRequest request, SqlStatementCounter.Scope scope) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+
+        DistributionSummary.builder("taskmanager.sql.statements").baseUnit("statements").tags(tags)
+                .register(meterRegistry).record(scope.getStatements());
+        DistributionSummary.builder("taskmanager.sql.rows").baseUnit("rows").tags(tags)
+                .register(meterRegistry).record(scope.getRows());
+        Timer.builder("taskmanager.sql.time").tags(tags)
+                .register(meterRegistry).record(scope.getNanos(), TimeUnit.NANOSECONDS);
+
+        if (scope.getStatements() > statementBudget) {
+            Counter.builder("taskmanager.sql.budget.exceeded").tags(tags).register(meterRegistry).increment();
+            log.warn("{} {} ({}) ran {} SQL statements (budget {}), {} rows, {} ms in database",
+                    request.getMethod(), uri, request.getRequestURI(), scope.getStatements(), statementBudget,
+                    scope.getRows(), TimeUnit.NANOSECONDS.toMillis(scope.getNanos()));
+        }
+    }
+}
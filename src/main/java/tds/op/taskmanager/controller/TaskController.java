@@ -1,15 +1,23 @@
 package tds.op.taskmanager.controller;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import tds.op.taskmanager.representation.*;
 import tds.op.taskmanager.service.CommentService;
+import tds.op.taskmanager.service.PlanVersionService;
+import tds.op.taskmanager.service.RecurringTaskService;
+import tds.op.taskmanager.service.TaskChangeHub;
 import tds.op.taskmanager.service.TaskService;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/task")
@@ -17,11 +25,18 @@ public class TaskController {
 
     private final TaskService taskService;
     private final CommentService commentService;
+    private final RecurringTaskService recurringTaskService;
+    private final PlanVersionService planVersionService;
+    private final TaskChangeHub taskChangeHub;
 
     // Inject cả CommentService để xử lý các nghiệp vụ liên quan đến comment ngay trong API task
-    public TaskController(TaskService taskService, CommentService commentService) {
+    public TaskController(TaskService taskService, CommentService commentService, RecurringTaskService recurringTaskService,
+                          PlanVersionService planVersionService, TaskChangeHub taskChangeHub) {
         this.taskService = taskService;
         this.commentService = commentService;
+        this.recurringTaskService = recurringTaskService;
+        this.planVersionService = planVersionService;
+        this.taskChangeHub = taskChangeHub;
     }
 
     // =========================================================================
@@ -32,23 +47,50 @@ public class TaskController {
      * Lấy danh sách Task theo Plan, được gom nhóm theo UUID (TaskGroup).
      * Thay thế logic cũ trả về PlanTaskDTO.
      * URL: GET /api/task/plan/{planId}
+     * Hỗ trợ conditional GET (ETag / If-None-Match), xem planView().
      */
     @CrossOrigin("http://localhost:5173")
     @GetMapping("/plan/{planId}")
-    public ResponseEntity<List<TaskGroup>> getTasksByPlan(@PathVariable Long planId) {
-        List<TaskGroup> groups = taskService.getTasksByPlan(planId);
-        return ResponseEntity.ok(groups);
+    public ResponseEntity<List<TaskGroup>> getTasksByPlan(@PathVariable Long planId, WebRequest request) {
+        return planView(planId, request, () -> taskService.getTasksByPlan(planId));
+    }
+
+    /**
+     * Lấy danh sách TaskGroup theo Plan, phân trang keyset (sắp xếp theo tên nhóm, uuid).
+     * URL: GET /api/task/plan/{planId}/groups?cursor=...&size=50
+     * cursor: lấy từ nextCursor của trang trước (bỏ trống = trang đầu).
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping("/plan/{planId}/groups")
+    public ResponseEntity<TaskGroupPage> getTaskGroupPage(@PathVariable Long planId,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer size,
+                                                          WebRequest request) {
+        try {
+            return planView(planId, request, () -> taskService.getTaskGroupPage(planId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
      * Lấy danh sách Task theo Plan và Unit cụ thể (dùng cho view của Unit).
-     * URL: GET /api/task/plan/{planId}/{unitId}
+     * URL: GET /api/task/plan/{planId}/{unitId} (conditional GET như view của Plan)
      */
     @CrossOrigin("http://localhost:5173")
     @GetMapping("/plan/{planId}/{unitId}")
-    public ResponseEntity<List<TaskGroup>> getTasksByPlanAndUnit(@PathVariable Long planId, @PathVariable Long unitId) {
-        List<TaskGroup> groups = taskService.getTasksByPlanAndUnit(planId, unitId);
-        return ResponseEntity.ok(groups);
+    public ResponseEntity<List<TaskGroup>> getTasksByPlanAndUnit(@PathVariable Long planId, @PathVariable Long unitId, WebRequest request) {
+        return planView(planId, request, () -> taskService.getTasksByPlanAndUnit(planId, unitId));
+    }
+
+    /**
+     * Lấy danh sách Task của Plan giao cho Unit và toàn bộ Unit con cháu (dùng cho view của phòng ban lớn).
+     * URL: GET /api/task/plan/{planId}/{unitId}/subtree (conditional GET như view của Plan)
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping("/plan/{planId}/{unitId}/subtree")
+    public ResponseEntity<List<TaskGroup>> getTasksByPlanUnderUnit(@PathVariable Long planId, @PathVariable Long unitId, WebRequest request) {
+        return planView(planId, request, () -> taskService.getTasksByPlanUnderUnit(planId, unitId));
     }
 
     /**
@@ -96,6 +138,22 @@ public class TaskController {
         }
     }
 
+    /**
+     * Tạo hàng loạt Task lặp lại (cùng uuid) cho một khoảng tháng và danh sách Unit nhận.
+     * Chỉ trả về uuid và id các Task mới tạo.
+     * URL: POST /api/task/recurring
+     */
+    @CrossOrigin("http://localhost:5173")
+    @PostMapping("/recurring")
+    public ResponseEntity<?> createRecurringTasks(@RequestBody RecurringTaskRequest request) {
+        try {
+            RecurringTaskResult result = recurringTaskService.createRecurringTasks(request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     /**
      * Cập nhật tiến độ của Task (0.0 -> 1.0).
      * URL: PATCH /api/task/{taskId}/progress?val=0.5
@@ -174,14 +232,82 @@ public class TaskController {
         return ResponseEntity.ok(commentService.getTaskComments(taskId));
     }
 
+    /**
+     * Lấy comment của Task theo trang, mới nhất trước (dùng cho Task có nhiều comment).
+     * URL: GET /api/task/{taskId}/comments/page?cursor=...&size=50
+     * cursor: lấy từ nextCursor của trang trước (bỏ trống = trang mới nhất).
+     * Reply chỉ có targetId + targetExcerpt thay cho target đầy đủ.
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping("/{taskId}/comments/page")
+    public ResponseEntity<TaskCommentPage> getTaskCommentPage(@PathVariable Long taskId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(commentService.getTaskCommentPage(taskId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * Thêm comment mới.
      * URL: POST /api/task/comment
+     * target (reply) phải là comment của cùng Task, nếu không -> 400.
      */
     @CrossOrigin("http://localhost:5173")
     @PostMapping("/comment")
     public ResponseEntity<Void> addComment(@RequestBody TaskCommentDTO taskCommentDTO) {
-        commentService.addComment(taskCommentDTO);
+        try {
+            commentService.addComment(taskCommentDTO);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    // =========================================================================
+    // 4. LIVE CHANGES (Server-Sent Events)
+    // =========================================================================
+
+    /**
+     * Nhận thông báo thay đổi của một Task qua SSE, thay cho việc poll comments / events / actions.
+     * URL: GET /api/task/{taskId}/stream
+     * Mỗi sự kiện: name = TaskChangeType (COMMENT, TASK_EVENT, ACTION_STATUS, PROGRESS), data = TaskChange (JSON).
+     * Sự kiện "overflow" (data = số thông báo bị bỏ): client đọc không kịp, cần tải lại dữ liệu của Task.
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping(value = "/{taskId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTaskChanges(@PathVariable Long taskId) {
+        return taskChangeHub.subscribeTask(taskId);
+    }
+
+    /**
+     * Nhận thông báo thay đổi của mọi Task trong một Plan qua SSE (cùng định dạng với stream của Task).
+     * URL: GET /api/task/plan/{planId}/stream
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping(value = "/plan/{planId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPlanChanges(@PathVariable Long planId) {
+        return taskChangeHub.subscribePlan(planId);
+    }
+
+    // =========================================================================
+    // CONDITIONAL GET
+    // =========================================================================
+
+    /**
+     * View theo Plan với ETag lấy từ version nội dung của Plan (PlanVersionService):
+     * - If-None-Match khớp -> 304, chỉ tốn một lookup theo khóa chính, không build view.
+     * - Ngược lại build view và trả kèm ETag. Cache-Control: no-cache để client luôn hỏi lại server.
+     * Version được đọc trước khi build view nên ETag không bao giờ mới hơn dữ liệu trả về.
+     */
+    private <T> ResponseEntity<T> planView(Long planId, WebRequest request, Supplier<T> view) {
+        String etag = planVersionService.etag(planId);
+        if (etag == null) return ResponseEntity.ok(view.get());
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(view.get());
+    }
+}
@@ -0,0 +1,55 @@
+package tds.op.taskmanager.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tds.op.taskmanager.service.TaskExportService;
+
+@RestController
+@RequestMapping("/api/task/export")
+public class TaskExportController {
+
+    private final TaskExportService taskExportService;
+    private final long timeoutMillis;
+
+    public TaskExportController(TaskExportService taskExportService,
+                                @Value("${taskmanager.export.timeout-ms:600000}") long timeoutMillis) {
+        this.taskExportService = taskExportService;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Export toàn bộ Task của Plan dạng NDJSON (mỗi dòng một TaskDTO), stream thẳng ra response.
+     * Dùng cho các công cụ báo cáo; bộ nhớ không tăng theo kích thước Plan.
+     * Timeout async riêng cho export (taskmanager.export.timeout-ms), không đổi timeout mặc định của các request khác.
+     * Đã đủ taskmanager.export.max-concurrent export đang chạy -> 503 kèm Retry-After.
+     * URL: GET /api/task/export/plan/{planId}
+     */
+    @CrossOrigin("http://localhost:5173")
+    @GetMapping("/plan/{planId}")
+    public ResponseEntity<StreamingResponseBody> exportPlanTasks(@PathVariable Long planId, HttpServletRequest request) {
+        if (!taskExportService.tryAcquireSlot()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(timeoutMillis);
+        StreamingResponseBody body = out -> {
+            try {
+                taskExportService.exportPlan(planId, out);
+            } finally {
+                taskExportService.releaseSlot();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"plan-" + planId + "-tasks.ndjson\"")
+                .body(body);
+    }
+}
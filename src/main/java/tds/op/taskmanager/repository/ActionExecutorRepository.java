@@ -1,9 +1,13 @@
 package tds.op.taskmanager.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tds.op.taskmanager.representation.ActionExecutor;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,9 +19,18 @@ public interface ActionExecutorRepository extends JpaRepository<ActionExecutor,
      */
     List<ActionExecutor> findByActionId(Long actionId);
 
+    List<ActionExecutor> findByActionIdIn(Collection<Long> actionIds);
+
     /**
      * (Optional) Tìm tất cả các Action mà một Staff cụ thể tham gia.
      * Có thể hữu ích nếu sau này bạn muốn hiển thị "Việc tôi cần làm" ở cấp độ Action.
      */
     List<ActionExecutor> findByExecutorId(Long executorId);
-}
\ No newline at end of file
+
+    /**
+     * Xóa executor link của toàn bộ Action thuộc các Task (set-based, dùng khi purge Task).
+     */
+    @Modifying
+    @Query("DELETE FROM ActionExecutor ae WHERE ae.actionId IN (SELECT a.id FROM Action a WHERE a.taskId IN :taskIds)")
+    int deleteByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+}
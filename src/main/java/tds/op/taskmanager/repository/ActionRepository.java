@@ -1,21 +1,84 @@
 package tds.op.taskmanager.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.stereotype.Repository;
 import tds.op.taskmanager.representation.Action;
+import tds.op.taskmanager.representation.ActionProgress;
+import tds.op.taskmanager.representation.StatusDeadlineCount;
+import tds.op.taskmanager.representation.TaskStatus;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ActionRepository extends JpaRepository<Action, Long> {
     // Tìm các hành động thuộc về một task cụ thể
     List<Action> findByTaskId(Long taskId);
 
-    @Query("SELECT a FROM Action a " +
-            "JOIN ActionExecutor ae ON ae.actionId = a.id " +
-            "WHERE ae.executorId = :staffId " + // Đã sửa thành executorId
+    // Action mà Staff là executor: range scan staff_inbox (staff_id, action_id > 0).
+    // Task bị soft delete đã được gỡ khỏi inbox nên không cần JOIN Task; Plan đang xóa nền thì lọc qua i.planId
+    @Query("SELECT a FROM StaffInbox i JOIN Action a ON a.id = i.actionId " +
+            "WHERE i.staffId = :staffId AND i.actionId > 0 AND EXISTS (SELECT 1 FROM Plan p WHERE p.id = i.planId) " +
             "ORDER BY a.deadline ASC")
     List<Action> findActionsByExecutor(@Param("staffId") Long staffId);
-}
\ No newline at end of file
+
+    // --- Dashboard "việc của tôi" (cùng điều kiện với findActionsByExecutor) ---
+
+    @Query("SELECT new tds.op.taskmanager.representation.StatusDeadlineCount(a.status, COUNT(a), " +
+            "SUM(CASE WHEN a.deadline < :today THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN a.deadline = :today THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN a.deadline > :today AND a.deadline <= :soon THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN a.deadline IS NULL THEN 1 ELSE 0 END)) " +
+            "FROM StaffInbox i JOIN Action a ON a.id = i.actionId " +
+            "WHERE i.staffId = :staffId AND i.actionId > 0 AND EXISTS (SELECT 1 FROM Plan p WHERE p.id = i.planId) " +
+            "GROUP BY a.status")
+    List<StatusDeadlineCount> countByExecutor(@Param("staffId") Long staffId, @Param("today") LocalDate today,
+                                              @Param("soon") LocalDate soon);
+
+    @Query("SELECT a FROM StaffInbox i JOIN Action a ON a.id = i.actionId " +
+            "WHERE i.staffId = :staffId AND i.actionId > 0 AND (a.status IS NULL OR a.status NOT IN :closed) " +
+            "AND EXISTS (SELECT 1 FROM Plan p WHERE p.id = i.planId) " +
+            "ORDER BY a.deadline ASC NULLS LAST, a.id")
+    List<Action> findOpenActionsByExecutor(@Param("staffId") Long staffId, @Param("closed") Collection<TaskStatus> closed,
+                                           Limit limit);
+
+    /**
+     * Đếm tổng số Action và số Action COMPLETED cho nhiều Task trong 1 query (GROUP BY taskId).
+     * Task không có Action sẽ không xuất hiện trong kết quả.
+     */
+    @Query("SELECT new tds.op.taskmanager.representation.ActionProgress(a.taskId, COUNT(a), " +
+            "SUM(CASE WHEN a.status = tds.op.taskmanager.representation.TaskStatus.COMPLETED THEN 1 ELSE 0 END)) " +
+            "FROM Action a WHERE a.taskId IN :taskIds GROUP BY a.taskId")
+    List<ActionProgress> countByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+
+    @Modifying
+    @Query("DELETE FROM Action a WHERE a.taskId IN :taskIds")
+    int deleteByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+
+    // Khóa dòng Action trước khi đọc status (SELECT ... FOR UPDATE native: Hibernate sinh "FOR UPDATE OF" mà MariaDB không hỗ trợ)
+    @Query(value = "SELECT id FROM action WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    // --- OverdueSweeper: như TaskRepository.lockOverdueIds / markOverdue (range scan idx_action_status_deadline) ---
+
+    default List<Long> lockOverdueIds(Collection<TaskStatus> statuses, LocalDate today, int limit) {
+        // Cột action.status lưu tên của TaskStatus
+        return lockOverdueIdsByStatusName(statuses.stream().map(Enum::name).toList(), today, limit);
+    }
+
+    @Query(value = "SELECT id FROM action WHERE status IN (:statuses) AND deadline < :today LIMIT :limit FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockOverdueIdsByStatusName(@Param("statuses") Collection<String> statuses, @Param("today") LocalDate today,
+                                          @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Action a SET a.statusBeforeOverdue = a.status, " +
+            "a.status = tds.op.taskmanager.representation.TaskStatus.OVERDUE WHERE a.id IN :ids")
+    int markOverdue(@Param("ids") Collection<Long> ids);
+}
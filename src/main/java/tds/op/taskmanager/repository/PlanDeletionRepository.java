@@ -0,0 +1,30 @@
+package tds.op.taskmanager.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tds.op.taskmanager.representation.PlanDeletionProgress;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PlanDeletionRepository extends JpaRepository<PlanDeletionProgress, Long> {
+
+    // Plan đang chờ / đang xóa (range scan idx_plan_deletion_state)
+    @Query("SELECT d.planId FROM PlanDeletionProgress d " +
+           "WHERE d.state = tds.op.taskmanager.representation.PlanDeletionProgress.State.RUNNING ORDER BY d.planId")
+    List<Long> findRunningPlanIds(Limit limit);
+
+    @Modifying
+    @Query("UPDATE PlanDeletionProgress d SET d.deletedTasks = d.deletedTasks + :deleted WHERE d.planId = :planId")
+    int addDeletedTasks(@Param("planId") Long planId, @Param("deleted") long deleted);
+
+    // Bỏ tiến độ của các lần xóa đã kết thúc từ trước cutoff
+    @Modifying
+    @Query("DELETE FROM PlanDeletionProgress d WHERE d.finishedAt < :cutoff")
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
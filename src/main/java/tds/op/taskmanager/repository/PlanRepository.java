@@ -1,11 +1,13 @@
 package tds.op.taskmanager.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tds.op.taskmanager.representation.Plan;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -18,11 +20,40 @@ public interface PlanRepository extends JpaRepository<Plan, Long> {
     @Query("SELECT DISTINCT p FROM Plan p WHERE p.id IN (SELECT t.planId FROM Task t WHERE t.assigneeId = :unitId)")
     List<Plan> findPlansAsMember(@Param("unitId") Long unitId);
 
-    @Query("SELECT DISTINCT p FROM Plan p " +
-            "LEFT JOIN Task t ON t.planId = p.id " +
-            "LEFT JOIN TaskExecutor te ON te.taskId = t.id " +
-            "LEFT JOIN Action a ON a.taskId = t.id " +
-            "LEFT JOIN ActionExecutor ae ON ae.actionId = a.id " +
-            "WHERE te.executorId = :staffId OR ae.executorId = :staffId") // Đã sửa thành executorId
+    /**
+     * Plan mà Staff tham gia (là executor của Task hoặc của Action), sắp theo id.
+     * Đọc từ read model staff_inbox: range scan theo staff_id trên idx_staff_inbox_staff_plan (covering),
+     * rồi lookup Plan theo khóa chính.
+     */
+    @Query("SELECT p FROM Plan p WHERE p.id IN (SELECT i.planId FROM StaffInbox i WHERE i.staffId = :staffId) ORDER BY p.id")
     List<Plan> findPlansByParticipant(@Param("staffId") Long staffId);
+
+    // Plan do unit hoặc các unit con cháu sở hữu (JOIN qua closure table)
+    @Query("SELECT p FROM Plan p JOIN UnitClosure c ON c.descendantId = p.unitId WHERE c.ancestorId = :unitId")
+    List<Plan> findPlansOwnedUnderUnit(@Param("unitId") Long unitId);
+
+    // Plan mà unit hoặc các unit con cháu được giao ít nhất 1 task (đi từ closure -> tasks(assignee_id, plan_id) -> plan)
+    @Query("SELECT DISTINCT p FROM UnitClosure c " +
+            "JOIN Task t ON t.assigneeId = c.descendantId " +
+            "JOIN Plan p ON p.id = t.planId " +
+            "WHERE c.ancestorId = :unitId")
+    List<Plan> findPlansAsMemberUnderUnit(@Param("unitId") Long unitId);
+
+    // --- Version nội dung (ETag của các view theo Plan), native: cột không được entity ghi ---
+
+    /**
+     * "content_version-directory_version" của Plan (lookup khóa chính plan + dòng duy nhất directory_version).
+     * Plan không tồn tại -> null.
+     */
+    @Query(value = "SELECT CONCAT(p.content_version, '-', d.version) FROM plan p JOIN directory_version d ON d.id = 1 " +
+            "WHERE p.id = :planId", nativeQuery = true)
+    String findViewVersion(@Param("planId") Long planId);
+
+    @Modifying
+    @Query(value = "UPDATE plan SET content_version = content_version + 1 WHERE id IN (:planIds)", nativeQuery = true)
+    int incrementContentVersion(@Param("planIds") Collection<Long> planIds);
+
+    @Modifying
+    @Query(value = "UPDATE directory_version SET version = version + 1 WHERE id = 1", nativeQuery = true)
+    int incrementDirectoryVersion();
 }
@@ -0,0 +1,94 @@
+package tds.op.taskmanager.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tds.op.taskmanager.representation.PlanRollup;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PlanRollupRepository extends JpaRepository<PlanRollup, PlanRollup.Key> {
+
+    // Phần SELECT chung: gom Task chưa xóa (@SoftDelete) theo (plan, assignee, tháng)
+    String AGGREGATE = "INSERT INTO PlanRollup (planId, assigneeId, month, taskCount, pendingCount, inProgressCount, " +
+            "completedCount, cancelledCount, overdueCount, progressSum, extendedCount) " +
+            "SELECT t.planId, COALESCE(t.assigneeId, 0), COALESCE(t.month, ''), COUNT(t), " +
+            "SUM(CASE WHEN t.status = tds.op.taskmanager.representation.TaskStatus.PENDING THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN t.status = tds.op.taskmanager.representation.TaskStatus.IN_PROGRESS THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN t.status = tds.op.taskmanager.representation.TaskStatus.COMPLETED THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN t.status = tds.op.taskmanager.representation.TaskStatus.CANCELLED THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN t.status = tds.op.taskmanager.representation.TaskStatus.OVERDUE THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN t.actionTotal > 0 THEN 1.0 * t.actionCompleted / t.actionTotal ELSE t.progress END), " +
+            "SUM(CASE WHEN t.currentDeadline > t.initialDeadline THEN 1 ELSE 0 END) " +
+            "FROM Task t ";
+    String GROUP_BY = " GROUP BY t.planId, COALESCE(t.assigneeId, 0), COALESCE(t.month, '')";
+
+    /**
+     * Cặp (plan, assignee) của các Task, kể cả Task đã soft delete (native), để tính lại nhóm sau khi xóa.
+     */
+    @Query(value = "SELECT DISTINCT plan_id AS planId, assignee_id AS assigneeId FROM tasks " +
+            "WHERE id IN (:taskIds) AND plan_id IS NOT NULL", nativeQuery = true)
+    List<GroupKey> findGroupKeysByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+
+    interface GroupKey {
+        Long getPlanId();
+        Long getAssigneeId();
+    }
+
+    /**
+     * Các nhóm của một Plan: từ tasks (kể cả Task đã soft delete) và từ các dòng plan_rollup đang có.
+     * Nhóm chưa giao unit trả về assigneeId = null như findGroupKeysByTaskIds.
+     */
+    @Query(value = "SELECT plan_id AS planId, assignee_id AS assigneeId FROM tasks WHERE plan_id = :planId " +
+            "UNION SELECT plan_id, NULLIF(assignee_id, 0) FROM plan_rollup WHERE plan_id = :planId", nativeQuery = true)
+    List<GroupKey> findGroupKeysByPlanId(@Param("planId") Long planId);
+
+    /**
+     * Khóa nhóm (plan, assignee) tới hết transaction, tạo dòng khóa nếu chưa có.
+     * ON DUPLICATE KEY UPDATE lấy ngay X lock; INSERT IGNORE rồi SELECT ... FOR UPDATE sẽ lấy S lock trước,
+     * hai transaction cùng nhóm cùng nâng lên X thì deadlock.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO plan_rollup_group (plan_id, assignee_id) VALUES (:planId, :assigneeId) " +
+            "ON DUPLICATE KEY UPDATE assignee_id = assignee_id", nativeQuery = true)
+    int lockGroup(@Param("planId") Long planId, @Param("assigneeId") Long assigneeId);
+
+    List<PlanRollup> findByPlanId(Long planId);
+
+    // --- Tính lại một nhóm (plan, assignee): xóa rồi tổng hợp lại từ tasks (idx_tasks_assignee_plan) ---
+
+    @Modifying
+    @Query("DELETE FROM PlanRollup r WHERE r.planId = :planId AND r.assigneeId = :assigneeId")
+    int deleteGroup(@Param("planId") Long planId, @Param("assigneeId") Long assigneeId);
+
+    @Modifying
+    @Query(AGGREGATE + "WHERE t.planId = :planId AND t.assigneeId = :assigneeId" + GROUP_BY)
+    int insertGroup(@Param("planId") Long planId, @Param("assigneeId") Long assigneeId);
+
+    @Modifying
+    @Query(AGGREGATE + "WHERE t.planId = :planId AND t.assigneeId IS NULL" + GROUP_BY)
+    int insertUnassignedGroup(@Param("planId") Long planId);
+
+    // --- Build lại theo Plan ---
+
+    @Modifying
+    @Query("DELETE FROM PlanRollup r WHERE r.planId = :planId")
+    int deleteByPlanId(@Param("planId") Long planId);
+
+    @Modifying
+    @Query(AGGREGATE + "WHERE t.planId = :planId" + GROUP_BY)
+    int insertPlan(@Param("planId") Long planId);
+
+    // Dòng của Plan đã bị xóa
+    @Modifying
+    @Query(value = "DELETE FROM plan_rollup WHERE plan_id NOT IN (SELECT id FROM plan)", nativeQuery = true)
+    int deleteOrphaned();
+
+    @Modifying
+    @Query(value = "DELETE FROM plan_rollup_group WHERE plan_id NOT IN (SELECT id FROM plan)", nativeQuery = true)
+    int deleteOrphanedGroups();
+}
@@ -0,0 +1,65 @@
+package tds.op.taskmanager.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tds.op.taskmanager.representation.PlanTaskGroup;
+import tds.op.taskmanager.representation.TaskGroupKey;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PlanTaskGroupRepository extends JpaRepository<PlanTaskGroup, PlanTaskGroup.Key> {
+
+    /**
+     * Ghi nhóm nếu chưa có. Nhóm đã có giữ nguyên tên (INSERT IGNORE: hai request đồng thời không lỗi trùng khóa).
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO plan_task_group (plan_id, uuid, name) VALUES (:planId, :uuid, :name)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("planId") Long planId, @Param("uuid") String uuid, @Param("name") String name);
+
+    /**
+     * Trang keyset: range scan idx_plan_task_group_name sau (afterName, afterUuid), chỉ các nhóm còn Task
+     * (EXISTS qua idx_tasks_plan_uuid_name, Task đã soft delete bị lọc bởi @SoftDelete) của Plan còn tồn tại.
+     * Trang đầu tiên: afterName = "" và afterUuid = "".
+     */
+    @Query("SELECT new tds.op.taskmanager.representation.TaskGroupKey(g.uuid, g.name) FROM PlanTaskGroup g " +
+           "WHERE g.planId = :planId AND (g.name > :afterName OR (g.name = :afterName AND g.uuid > :afterUuid)) " +
+           "AND EXISTS (SELECT 1 FROM Task t WHERE t.planId = g.planId AND t.uuid = g.uuid) " +
+           "AND EXISTS (SELECT 1 FROM Plan p WHERE p.id = g.planId) " +
+           "ORDER BY g.name, g.uuid")
+    List<TaskGroupKey> findKeysAfter(@Param("planId") Long planId, @Param("afterName") String afterName,
+                                     @Param("afterUuid") String afterUuid, Limit limit);
+
+    // Thứ tự nhóm cho các API trả về cả danh sách (cùng thứ tự với findKeysAfter)
+    @Query("SELECT new tds.op.taskmanager.representation.TaskGroupKey(g.uuid, g.name) FROM PlanTaskGroup g " +
+           "WHERE g.planId = :planId ORDER BY g.name, g.uuid")
+    List<TaskGroupKey> findKeys(@Param("planId") Long planId);
+
+    @Query("SELECT new tds.op.taskmanager.representation.TaskGroupKey(g.uuid, g.name) FROM PlanTaskGroup g " +
+           "WHERE g.planId = :planId AND g.uuid IN :uuids ORDER BY g.name, g.uuid")
+    List<TaskGroupKey> findKeys(@Param("planId") Long planId, @Param("uuids") Collection<String> uuids);
+
+    @Modifying
+    @Query("DELETE FROM PlanTaskGroup g WHERE g.planId = :planId")
+    int deleteByPlanId(@Param("planId") Long planId);
+
+    // --- Build lại từ tasks (dữ liệu ghi thẳng bằng JDBC, VD SyntheticDataGenerator) ---
+
+    @Modifying
+    @Query(value = "DELETE FROM plan_task_group", nativeQuery = true)
+    int deleteAllRows();
+
+    @Modifying
+    @Query(value = "INSERT INTO plan_task_group (plan_id, uuid, name) " +
+            "SELECT t.plan_id, t.uuid, COALESCE(t.name, '') FROM tasks t " +
+            "WHERE t.plan_id IS NOT NULL AND t.uuid IS NOT NULL " +
+            "AND t.id = (SELECT MIN(t2.id) FROM tasks t2 WHERE t2.plan_id = t.plan_id AND t2.uuid = t.uuid)",
+            nativeQuery = true)
+    int insertAllFromTasks();
+}
@@ -0,0 +1,28 @@
+package tds.op.taskmanager.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tds.op.taskmanager.representation.SchedulerLease;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    /**
+     * Lấy (hoặc gia hạn) lease: chỉ thành công khi lease đang trống, đã hết hạn, hoặc do chính owner giữ.
+     * Một câu UPDATE có điều kiện nên hai node không thể cùng lấy được. Trả về 1 nếu lấy được.
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.owner = :owner, l.leaseUntil = :until " +
+            "WHERE l.name = :name AND (l.owner IS NULL OR l.owner = :owner OR l.leaseUntil < :now)")
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner,
+                   @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.owner = NULL, l.leaseUntil = NULL WHERE l.name = :name AND l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
@@ -0,0 +1,67 @@
+package tds.op.taskmanager.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tds.op.taskmanager.representation.StaffInbox;
+
+import java.util.Collection;
+
+@Repository
+public interface StaffInboxRepository extends JpaRepository<StaffInbox, StaffInbox.Key> {
+
+    /**
+     * Thêm dòng inbox cho executor của các Task (đọc từ task_executor). Dòng đã có thì bỏ qua,
+     * nên gọi lại sau khi thêm executor vào Task cũ cũng an toàn.
+     * INSERT IGNORE: hai transaction đồng thời thêm cùng dòng không lỗi trùng khóa (NOT EXISTS không thấy dòng chưa commit).
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO staff_inbox (staff_id, action_id, task_id, plan_id) " +
+            "SELECT DISTINCT te.executor_id, 0, t.id, t.plan_id FROM task_executor te JOIN tasks t ON t.id = te.task_id " +
+            "WHERE te.task_id IN (:taskIds) AND t.deleted = false AND te.executor_id IS NOT NULL",
+            nativeQuery = true)
+    int insertForTasks(@Param("taskIds") Collection<Long> taskIds);
+
+    /**
+     * Thêm dòng inbox cho executor của các Action (đọc từ action_executor), bỏ qua dòng đã có (INSERT IGNORE).
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO staff_inbox (staff_id, action_id, task_id, plan_id) " +
+            "SELECT DISTINCT ae.executor_id, a.id, t.id, t.plan_id FROM action_executor ae " +
+            "JOIN action a ON a.id = ae.action_id JOIN tasks t ON t.id = a.task_id " +
+            "WHERE ae.action_id IN (:actionIds) AND t.deleted = false AND ae.executor_id IS NOT NULL",
+            nativeQuery = true)
+    int insertForActions(@Param("actionIds") Collection<Long> actionIds);
+
+    // Mọi dòng của Task, kể cả dòng của các Action trong Task
+    @Modifying
+    @Query("DELETE FROM StaffInbox i WHERE i.taskId IN :taskIds")
+    int deleteByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+
+    @Modifying
+    @Query("DELETE FROM StaffInbox i WHERE i.taskId = :taskId AND i.actionId = :actionId")
+    int deleteByAction(@Param("taskId") Long taskId, @Param("actionId") Long actionId);
+
+    // --- Build lại toàn bộ (dữ liệu sinh bằng JDBC, hoặc đối soát) ---
+
+    @Modifying
+    @Query(value = "DELETE FROM staff_inbox", nativeQuery = true)
+    int deleteAllRows();
+
+    @Modifying
+    @Query(value = "INSERT INTO staff_inbox (staff_id, action_id, task_id, plan_id) " +
+            "SELECT DISTINCT te.executor_id, 0, t.id, t.plan_id FROM task_executor te JOIN tasks t ON t.id = te.task_id " +
+            "WHERE t.deleted = false AND te.executor_id IS NOT NULL",
+            nativeQuery = true)
+    int insertAllTaskAssignments();
+
+    @Modifying
+    @Query(value = "INSERT INTO staff_inbox (staff_id, action_id, task_id, plan_id) " +
+            "SELECT DISTINCT ae.executor_id, a.id, t.id, t.plan_id FROM action_executor ae " +
+            "JOIN action a ON a.id = ae.action_id JOIN tasks t ON t.id = a.task_id " +
+            "WHERE t.deleted = false AND ae.executor_id IS NOT NULL",
+            nativeQuery = true)
+    int insertAllActionAssignments();
+}
@@ -1,9 +1,18 @@
 package tds.op.taskmanager.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tds.op.taskmanager.representation.Staff;
 
+import java.util.Collection;
+import java.util.Set;
+
 @Repository
 public interface StaffRepository extends JpaRepository<Staff, Long> {
+
+    // Kiểm tra tồn tại cho các thao tác ghi (chỉ đọc khóa chính)
+    @Query("SELECT s.id FROM Staff s WHERE s.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -1,12 +1,33 @@
 package tds.op.taskmanager.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tds.op.taskmanager.representation.TaskComment;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TaskCommentRepository extends JpaRepository<TaskComment, Long> {
     public List<TaskComment> findByTaskId(Long taskId);
+
+    // Comment được reply nằm ngoài trang (lookup khóa chính, lọc theo Task)
+    List<TaskComment> findByTaskIdAndIdIn(Long taskId, Collection<Long> ids);
+
+    /**
+     * Một trang comment của Task, mới nhất trước: keyset (epoch, id) < (beforeEpoch, beforeId).
+     * Viết dạng epoch <= X AND (...) để MySQL range scan trên idx_task_comment_task_epoch (không filesort).
+     */
+    @Query("SELECT c FROM TaskComment c WHERE c.taskId = :taskId AND c.epoch <= :beforeEpoch " +
+           "AND (c.epoch < :beforeEpoch OR c.id < :beforeId) ORDER BY c.epoch DESC, c.id DESC")
+    List<TaskComment> findPageBefore(@Param("taskId") Long taskId, @Param("beforeEpoch") long beforeEpoch,
+                                     @Param("beforeId") long beforeId, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM TaskComment c WHERE c.taskId IN :taskIds")
+    int deleteByTaskIds(@Param("taskIds") Collection<Long> taskIds);
 }
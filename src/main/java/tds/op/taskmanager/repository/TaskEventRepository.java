@@ -1,13 +1,21 @@
 package tds.op.taskmanager.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tds.op.taskmanager.representation.TaskEvent;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TaskEventRepository extends JpaRepository<TaskEvent, Long> {
     // Tìm các sự kiện liên quan đến task cụ thể, sắp xếp mới nhất trước
     List<TaskEvent> findByTaskIdOrderByIdDesc(Long taskId);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("DELETE FROM TaskEvent e WHERE e.taskId IN :taskIds")
+    int deleteByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+}
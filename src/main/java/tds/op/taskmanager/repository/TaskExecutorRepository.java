@@ -1,13 +1,21 @@
 package tds.op.taskmanager.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tds.op.taskmanager.representation.TaskExecutor;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TaskExecutorRepository extends JpaRepository<TaskExecutor, Long> {
     public List<TaskExecutor> findByTaskId(Long taskId);
+    public List<TaskExecutor> findByTaskIdIn(Collection<Long> taskIds);
 
+    @Modifying
+    @Query("DELETE FROM TaskExecutor te WHERE te.taskId IN :taskIds")
+    int deleteByTaskIds(@Param("taskIds") Collection<Long> taskIds);
 }
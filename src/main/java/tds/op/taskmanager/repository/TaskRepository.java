@@ -1,29 +1,187 @@
 package tds.op.taskmanager.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tds.op.taskmanager.representation.StatusDeadlineCount;
 import tds.op.taskmanager.representation.Task;
+import tds.op.taskmanager.representation.TaskStatus;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TaskRepository extends JpaRepository<Task, Long> {
-    List<Task> findByPlanId(Long planId);
-    List<Task> findByPlanIdAndAssigneeId(Long planId, Long assigneeId);
+
+    /**
+     * Điều kiện Plan còn tồn tại (lookup khóa chính plan). Plan bị xóa thì Task của nó được xóa nền theo chunk
+     * (PlanDeletionService); trong lúc đó các query đọc Task phải ẩn chúng.
+     */
+    String LIVE_PLAN = "EXISTS (SELECT 1 FROM Plan p WHERE p.id = t.planId)";
+
+    @Query("SELECT t FROM Task t WHERE t.planId = :planId AND " + LIVE_PLAN)
+    List<Task> findByPlanId(@Param("planId") Long planId);
+
+    @Query("SELECT t FROM Task t WHERE t.planId = :planId AND t.assigneeId = :assigneeId AND " + LIVE_PLAN)
+    List<Task> findByPlanIdAndAssigneeId(@Param("planId") Long planId, @Param("assigneeId") Long assigneeId);
+
     List<Task> findByParentTaskId(Long parentTaskId);
 
+    @Query("SELECT t FROM Task t WHERE t.planId = :planId AND t.uuid IN :uuids AND " + LIVE_PLAN)
+    List<Task> findByPlanIdAndUuidIn(@Param("planId") Long planId, @Param("uuids") Collection<String> uuids);
+
     // --- FIX LOGIC: Chỉ lấy Task "gốc" của Unit (loại bỏ các task con nội bộ) ---
     // Logic: Lấy Task thuộc Unit này VÀ (Không có cha HOẶC Cha của nó KHÔNG thuộc Unit này)
     @Query("SELECT t FROM Task t WHERE t.planId = :planId AND t.assigneeId = :unitId " +
            "AND (t.parentTaskId IS NULL OR t.parentTaskId NOT IN " +
-           "(SELECT pt.id FROM Task pt WHERE pt.assigneeId = :unitId))")
+           "(SELECT pt.id FROM Task pt WHERE pt.assigneeId = :unitId)) AND " + LIVE_PLAN)
     List<Task> findRootTasksByPlanAndUnit(@Param("planId") Long planId, @Param("unitId") Long unitId);
 
-    @Query("SELECT t FROM Task t " +
-            "JOIN TaskExecutor te ON te.taskId = t.id " +
-            "WHERE te.executorId = :staffId " + // Đã sửa thành executorId
+    // Task của Plan được giao cho unit hoặc bất kỳ unit con cháu nào (JOIN qua closure table)
+    @Query("SELECT t FROM Task t JOIN UnitClosure c ON c.descendantId = t.assigneeId " +
+           "WHERE c.ancestorId = :unitId AND t.planId = :planId AND " + LIVE_PLAN)
+    List<Task> findByPlanIdUnderUnit(@Param("planId") Long planId, @Param("unitId") Long unitId);
+
+    // Task mà Staff là executor: range scan staff_inbox (staff_id, action_id = 0) rồi lookup khóa chính
+    @Query("SELECT t FROM StaffInbox i JOIN Task t ON t.id = i.taskId " +
+            "WHERE i.staffId = :staffId AND i.actionId = 0 AND " + LIVE_PLAN + " " +
             "ORDER BY t.currentDeadline ASC") // Sắp xếp theo currentDeadline thay vì deadline cũ
     List<Task> findTasksByExecutor(@Param("staffId") Long staffId);
-}
\ No newline at end of file
+
+    // --- Dashboard "việc của tôi": đếm và lấy danh sách ngắn trong DB, không load toàn bộ Task của Staff ---
+
+    @Query("SELECT new tds.op.taskmanager.representation.StatusDeadlineCount(t.status, COUNT(t), " +
+            "SUM(CASE WHEN t.currentDeadline < :today THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN t.currentDeadline = :today THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN t.currentDeadline > :today AND t.currentDeadline <= :soon THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN t.currentDeadline IS NULL THEN 1 ELSE 0 END)) " +
+            "FROM StaffInbox i JOIN Task t ON t.id = i.taskId " +
+            "WHERE i.staffId = :staffId AND i.actionId = 0 AND " + LIVE_PLAN + " GROUP BY t.status")
+    List<StatusDeadlineCount> countByExecutor(@Param("staffId") Long staffId, @Param("today") LocalDate today,
+                                              @Param("soon") LocalDate soon);
+
+    // Task chưa xong (status không thuộc closed), deadline gần nhất trước, chưa có deadline xếp cuối
+    @Query("SELECT t FROM StaffInbox i JOIN Task t ON t.id = i.taskId " +
+            "WHERE i.staffId = :staffId AND i.actionId = 0 AND (t.status IS NULL OR t.status NOT IN :closed) " +
+            "AND " + LIVE_PLAN + " ORDER BY t.currentDeadline ASC NULLS LAST, t.id")
+    List<Task> findOpenTasksByExecutor(@Param("staffId") Long staffId, @Param("closed") Collection<TaskStatus> closed,
+                                       Limit limit);
+
+    /**
+     * Lấy toàn bộ chuỗi giao việc của một Task trong 1 query (MySQL 8 WITH RECURSIVE):
+     * - ancestors: leo ngược từ Task hiện tại lên gốc.
+     * - descendants: đi xuôi từ Task gốc (ancestor sâu nhất) xuống toàn bộ con cháu.
+     * Cả hai nhánh đều bị giới hạn bởi maxDepth để dữ liệu bị vòng lặp (A -> B -> A) không chạy vô hạn.
+     */
+    @Query(value = "WITH RECURSIVE ancestors (id, parent_task_id, depth) AS ( " +
+            "  SELECT t.id, t.parent_task_id, 0 FROM tasks t WHERE t.id = :taskId " +
+            "  UNION ALL " +
+            "  SELECT p.id, p.parent_task_id, a.depth + 1 FROM tasks p JOIN ancestors a ON p.id = a.parent_task_id " +
+            "  WHERE a.depth < :maxDepth " +
+            "), root (id) AS ( " +
+            "  SELECT id FROM ancestors ORDER BY depth DESC LIMIT 1 " +
+            "), descendants (id, depth) AS ( " +
+            "  SELECT id, 0 FROM root " +
+            "  UNION ALL " +
+            "  SELECT c.id, d.depth + 1 FROM tasks c JOIN descendants d ON c.parent_task_id = d.id " +
+            "  WHERE d.depth < :maxDepth " +
+            ") " +
+            "SELECT t.* FROM (SELECT id FROM ancestors UNION SELECT id FROM descendants) chain " +
+            "JOIN tasks t ON t.id = chain.id " + // JOIN theo PK; "id IN (... UNION ...)" làm MySQL quét toàn bộ tasks
+            "WHERE t.deleted = false",
+            nativeQuery = true)
+    List<Task> findAssignmentChain(@Param("taskId") Long taskId, @Param("maxDepth") int maxDepth);
+
+    // --- Bộ đếm Action (actionTotal / actionCompleted) ---
+
+    /**
+     * Cộng dồn bộ đếm Action của Task bằng 1 câu UPDATE (atomic, không cần load Task).
+     */
+    @Modifying
+    @Query("UPDATE Task t SET t.actionTotal = t.actionTotal + :total, " +
+            "t.actionCompleted = t.actionCompleted + :completed WHERE t.id = :taskId")
+    int adjustActionCounters(@Param("taskId") Long taskId, @Param("total") int total, @Param("completed") int completed);
+
+    /**
+     * Tính lại bộ đếm Action từ bảng Action cho các Task chỉ định (dùng khi reconcile).
+     */
+    @Modifying
+    @Query("UPDATE Task t SET " +
+            "t.actionTotal = (SELECT COUNT(a) FROM Action a WHERE a.taskId = t.id), " +
+            "t.actionCompleted = (SELECT COUNT(a) FROM Action a WHERE a.taskId = t.id " +
+            "AND a.status = tds.op.taskmanager.representation.TaskStatus.COMPLETED) " +
+            "WHERE t.id IN :taskIds")
+    int recomputeActionCounters(@Param("taskIds") Collection<Long> taskIds);
+
+    // Duyệt bảng Task theo từng chunk (keyset theo id)
+    List<Task> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    // --- Soft delete: native query vì @SoftDelete ẩn các Task đã xóa khỏi JPQL ---
+
+    @Query(value = "SELECT id FROM tasks WHERE deleted = true ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findDeletedTaskIds(@Param("limit") int limit);
+
+    /**
+     * Xóa hẳn các Task đã được soft delete (Task chưa bị đánh dấu xóa sẽ không bị ảnh hưởng).
+     */
+    @Modifying
+    @Query(value = "DELETE FROM tasks WHERE id IN (:ids) AND deleted = true", nativeQuery = true)
+    int purgeDeleted(@Param("ids") Collection<Long> ids);
+
+    // Plan của Task (native: không load entity, kể cả Task đã soft delete)
+    @Query(value = "SELECT plan_id FROM tasks WHERE id = :taskId", nativeQuery = true)
+    Long findPlanIdById(@Param("taskId") Long taskId);
+
+    // --- Xóa Plan (native: bao gồm cả Task đã soft delete) ---
+
+    @Query(value = "SELECT COUNT(*) FROM tasks WHERE plan_id = :planId", nativeQuery = true)
+    long countAllByPlanId(@Param("planId") Long planId);
+
+    @Query(value = "SELECT id FROM tasks WHERE plan_id = :planId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findAllIdsByPlanId(@Param("planId") Long planId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE tasks SET deleted = true WHERE id IN (:ids)", nativeQuery = true)
+    int markDeleted(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Plan đã bị xóa nhưng vẫn còn Task (xóa nền bị gián đoạn, hoặc dữ liệu cũ trước khi có cascade).
+     */
+    @Query(value = "SELECT DISTINCT t.plan_id FROM tasks t " +
+            "WHERE t.plan_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM plan p WHERE p.id = t.plan_id)",
+            nativeQuery = true)
+    List<Long> findOrphanedPlanIds();
+
+    // --- OverdueSweeper ---
+
+    /**
+     * Id của tối đa limit Task (chưa xóa) có status thuộc statuses và currentDeadline trước today
+     * (range scan idx_tasks_status_deadline). Khóa các dòng tới hết transaction (SELECT ... FOR UPDATE)
+     * để không ghi đè thay đổi status của user xen giữa.
+     */
+    default List<Long> lockOverdueIds(Collection<TaskStatus> statuses, LocalDate today, int limit) {
+        // Cột tasks.status lưu ordinal của TaskStatus (tinyint)
+        return lockOverdueIdsByStatusOrdinal(statuses.stream().map(Enum::ordinal).toList(), today, limit);
+    }
+
+    // Native: FOR UPDATE không kèm "OF alias" (cú pháp chỉ MySQL 8 có, MariaDB không hỗ trợ)
+    @Query(value = "SELECT id FROM tasks WHERE status IN (:statuses) AND current_deadline < :today AND deleted = false " +
+            "LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Long> lockOverdueIdsByStatusOrdinal(@Param("statuses") Collection<Integer> statuses, @Param("today") LocalDate today,
+                                             @Param("limit") int limit);
+
+    // Giữ status cũ trong statusBeforeOverdue (gán trước: MySQL tính các phép gán trong SET theo thứ tự)
+    @Modifying
+    @Query("UPDATE Task t SET t.statusBeforeOverdue = t.status, " +
+            "t.status = tds.op.taskmanager.representation.TaskStatus.OVERDUE WHERE t.id IN :ids")
+    int markOverdue(@Param("ids") Collection<Long> ids);
+
+    // Khóa dòng Task tới hết transaction (gia hạn deadline không chạy xen với OverdueSweeper)
+    @Query(value = "SELECT id FROM tasks WHERE id = :id AND deleted = false FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+}
@@ -0,0 +1,49 @@
+package tds.op.taskmanager.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tds.op.taskmanager.representation.UnitClosure;
+
+@Repository
+public interface UnitClosureRepository extends JpaRepository<UnitClosure, UnitClosure.Key> {
+
+    /**
+     * Thêm các dòng closure cho một unit mới: (mọi tổ tiên của cha -> unit) + (unit -> chính nó).
+     * parentId = 0 (root) thì chỉ có dòng depth = 0.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO unit_closure (ancestor_id, descendant_id, depth) " +
+            "SELECT c.ancestor_id, :unitId, c.depth + 1 FROM unit_closure c WHERE c.descendant_id = :parentId " +
+            "UNION ALL SELECT :unitId, :unitId, 0",
+            nativeQuery = true)
+    int insertForNewUnit(@Param("unitId") Long unitId, @Param("parentId") Long parentId);
+
+    @Modifying
+    @Query("DELETE FROM UnitClosure c WHERE c.descendantId = :unitId")
+    int deleteByDescendantId(@Param("unitId") Long unitId);
+
+    long countByDepth(int depth);
+
+    @Modifying
+    @Query(value = "DELETE FROM unit_closure", nativeQuery = true)
+    int deleteAllRows();
+
+    /**
+     * Build lại toàn bộ closure table từ cột parent_unit_id (dùng để backfill dữ liệu cũ).
+     * Độ sâu bị giới hạn để dữ liệu vòng lặp không chạy vô hạn.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO unit_closure (ancestor_id, descendant_id, depth) " +
+            "WITH RECURSIVE closure (ancestor_id, descendant_id, depth) AS ( " +
+            "  SELECT u.id, u.id, 0 FROM unit u " +
+            "  UNION ALL " +
+            "  SELECT c.ancestor_id, u.id, c.depth + 1 FROM closure c JOIN unit u ON u.parent_unit_id = c.descendant_id " +
+            "  WHERE c.depth < 64 " +
+            ") " +
+            "SELECT ancestor_id, descendant_id, MIN(depth) FROM closure GROUP BY ancestor_id, descendant_id",
+            nativeQuery = true)
+    int insertFromAdjacencyList();
+}
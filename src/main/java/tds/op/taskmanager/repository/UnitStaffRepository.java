@@ -1,6 +1,8 @@
 package tds.op.taskmanager.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tds.op.taskmanager.representation.UnitStaff;
 
@@ -11,4 +13,12 @@ import java.util.List;
 public interface UnitStaffRepository extends JpaRepository<UnitStaff, Long> {
     public List<UnitStaff> findByUnitId(Long id);
     public List<UnitStaff> findByUnitIdIn(Collection<Long> ids);
+
+    /**
+     * Staff ID thuộc unit và các unit con cháu (JOIN qua closure table, một câu SQL).
+     * Mỗi liên kết UnitStaff trả về một dòng.
+     */
+    @Query("SELECT us.staffId FROM UnitClosure c JOIN UnitStaff us ON us.unitId = c.descendantId " +
+            "WHERE c.ancestorId = :unitId")
+    public List<Long> findStaffIdsUnderUnit(@Param("unitId") Long unitId);
 }
@@ -4,6 +4,9 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import lombok.Data;
@@ -11,9 +14,14 @@ import java.time.LocalDate;
 
 @Data
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_action_task_status", columnList = "task_id, status")
+})
 public class Action {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "action_id")
+    @TableGenerator(name = "action_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "action", allocationSize = 50)
     private Long id;
 
     private Long taskId; // Link với Task qua ID
@@ -27,6 +35,10 @@ public class Action {
     @Enumerated(EnumType.STRING)
     private TaskStatus status; // PENDING, COMPLETED,...
 
+    // Status trước khi OverdueSweeper chuyển sang OVERDUE, khôi phục khi gia hạn deadline
+    @Enumerated(EnumType.STRING)
+    private TaskStatus statusBeforeOverdue;
+
     // KHÔNG lưu executorId ở đây nữa. 
     // Việc phân công sẽ nằm ở bảng ActionExecutor.
 
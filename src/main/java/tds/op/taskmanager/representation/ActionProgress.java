@@ -0,0 +1,17 @@
+package tds.op.taskmanager.representation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả đếm Action theo Task (dùng cho các query GROUP BY taskId).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActionProgress {
+    private Long taskId;
+    private long total;     // Tổng số Action của Task
+    private long completed; // Số Action ở trạng thái COMPLETED
+}
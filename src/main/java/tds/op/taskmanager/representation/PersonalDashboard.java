@@ -0,0 +1,41 @@
+package tds.op.taskmanager.representation;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dữ liệu màn hình "việc của tôi" trong một response (GET /api/my-work/dashboard).
+ * - plans: toàn bộ Plan tham gia.
+ * - tasks / actions: tối đa list-size việc chưa xong (không phải COMPLETED / CANCELLED), deadline gần nhất trước.
+ *   taskTotal / actionTotal là tổng số đã giao (kể cả việc đã xong), để client biết còn việc chưa hiển thị.
+ * - Số lượng theo TaskStatus (đủ mọi giá trị, kể cả 0) và theo mốc deadline (chỉ tính việc chưa xong).
+ */
+@Data
+public class PersonalDashboard {
+    private List<PlanDTO> plans = new ArrayList<>();
+    private List<TaskDTO> tasks = new ArrayList<>();
+    private List<ActionDTO> actions = new ArrayList<>();
+    private int taskTotal;
+    private int actionTotal;
+    private Map<TaskStatus, Integer> taskStatusCounts = new EnumMap<>(TaskStatus.class);
+    private Map<TaskStatus, Integer> actionStatusCounts = new EnumMap<>(TaskStatus.class);
+    private DeadlineBuckets taskDeadlines = new DeadlineBuckets();
+    private DeadlineBuckets actionDeadlines = new DeadlineBuckets();
+
+    /**
+     * Việc chưa xong chia theo deadline so với hôm nay: quá hạn, hạn hôm nay,
+     * trong due-soon-days ngày tới, xa hơn, chưa có deadline.
+     */
+    @Data
+    public static class DeadlineBuckets {
+        private int overdue;
+        private int dueToday;
+        private int dueSoon;
+        private int later;
+        private int noDeadline;
+    }
+}
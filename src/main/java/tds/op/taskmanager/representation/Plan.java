@@ -1,16 +1,25 @@
 package tds.op.taskmanager.representation;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import lombok.Data;
 
 @Data
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_plan_unit", columnList = "unit_id")
+})
 public class Plan {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "plan_id")
+    @TableGenerator(name = "plan_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "plan", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -23,4 +32,11 @@ public class Plan {
      * ID của Unit sở hữu kế hoạch này.
      */
     private Long unitId;
+
+    /**
+     * Tăng mỗi khi dữ liệu hiển thị trong các view của Plan thay đổi (xem PlanVersionService), dùng làm ETag.
+     * Chỉ được ghi bằng UPDATE trực tiếp trong DB: save() entity không bao giờ ghi đè cột này.
+     */
+    @Column(insertable = false, updatable = false)
+    private long contentVersion;
 }
\ No newline at end of file
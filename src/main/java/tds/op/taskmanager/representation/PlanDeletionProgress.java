@@ -0,0 +1,32 @@
+package tds.op.taskmanager.representation;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tiến độ xóa Plan (xóa nền theo chunk). Job xóa cập nhật sau mỗi chunk, API đọc từ DB
+ * nên node nào cũng trả về cùng tiến độ.
+ */
+@Data
+@Entity
+@Table(name = "plan_deletion", indexes = {
+        @Index(name = "idx_plan_deletion_state", columnList = "state")
+})
+public class PlanDeletionProgress {
+
+    public enum State { RUNNING, COMPLETED, FAILED }
+
+    @Id
+    private Long planId;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private State state;
+    private long totalTasks;   // Số Task của Plan lúc bắt đầu xóa
+    private long deletedTasks; // Số Task (kèm dữ liệu phụ thuộc) đã xóa xong
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    @Column(length = 1000)
+    private String error;
+}
@@ -0,0 +1,50 @@
+package tds.op.taskmanager.representation;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Số liệu tổng hợp các Task (chưa xóa) của một Plan theo unit được giao và tháng.
+ * - assigneeId = 0 (UNASSIGNED): Task chưa giao unit. month = "": Task không có tháng.
+ * - progressSum: tổng progress hiệu lực (tỷ lệ Action COMPLETED nếu Task có Action, ngược lại Task.progress).
+ * - extendedCount: số Task đã bị gia hạn (currentDeadline sau initialDeadline).
+ * Bảng dẫn xuất từ tasks, do PlanRollupService tính lại.
+ */
+@Data
+@Entity
+@Table(name = "plan_rollup")
+@IdClass(PlanRollup.Key.class)
+public class PlanRollup {
+    public static final long UNASSIGNED = 0L;
+
+    @Id
+    private Long planId;
+
+    @Id
+    private Long assigneeId;
+
+    @Id
+    private String month;
+
+    private long taskCount;
+    private long pendingCount;
+    private long inProgressCount;
+    private long completedCount;
+    private long cancelledCount;
+    private long overdueCount;
+    private double progressSum;
+    private long extendedCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long planId;
+        private Long assigneeId;
+        private String month;
+    }
+}
@@ -0,0 +1,37 @@
+package tds.op.taskmanager.representation;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Báo cáo tổng hợp của một Plan (GET /api/plan/{id}/rollup), đọc từ bảng plan_rollup.
+ * - total: toàn Plan. byAssignee / byMonth: gộp theo một chiều. cells: từng cặp (assignee, tháng).
+ * - assigneeId = 0: Task chưa giao unit. month = "": Task không có tháng.
+ */
+@Data
+public class PlanRollupReport {
+    private Long planId;
+    private Entry total = new Entry();
+    private List<Entry> byAssignee = new ArrayList<>();
+    private List<Entry> byMonth = new ArrayList<>();
+    private List<Entry> cells = new ArrayList<>();
+
+    /**
+     * averageProgress: trung bình progress hiệu lực (0..1) của các Task.
+     * onTimeCount: số Task chưa bị gia hạn deadline; extendedCount: số Task đã gia hạn.
+     */
+    @Data
+    public static class Entry {
+        private Long assigneeId;
+        private String month;
+        private long taskCount;
+        private Map<TaskStatus, Long> statusCounts = new EnumMap<>(TaskStatus.class);
+        private double averageProgress;
+        private long onTimeCount;
+        private long extendedCount;
+    }
+}
@@ -0,0 +1,38 @@
+package tds.op.taskmanager.representation;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Một nhóm Task (cùng uuid) của Plan, với tên nhóm cố định (tên Task đầu tiên của nhóm, "" nếu không có tên).
+ * Thứ tự (name, uuid) theo collation của DB là thứ tự nhóm của mọi API trả về TaskGroup, kể cả phân trang keyset.
+ * Dòng được ghi khi Task đầu tiên của nhóm được tạo và xóa cùng Plan; nhóm không còn Task sống bị bỏ qua khi đọc.
+ */
+@Data
+@Entity
+@Table(name = "plan_task_group", indexes = {
+        @Index(name = "idx_plan_task_group_name", columnList = "plan_id, name, uuid")
+})
+@IdClass(PlanTaskGroup.Key.class)
+public class PlanTaskGroup {
+
+    @Id
+    private Long planId;
+
+    @Id
+    private String uuid;
+
+    private String name;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long planId;
+        private String uuid;
+    }
+}
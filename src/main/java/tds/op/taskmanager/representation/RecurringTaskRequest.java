@@ -0,0 +1,22 @@
+package tds.op.taskmanager.representation;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Yêu cầu tạo hàng loạt một hạng mục công việc lặp lại (cùng uuid) qua nhiều tháng và nhiều đơn vị nhận.
+ * Mỗi cặp (tháng, assignee) sinh ra một Task.
+ */
+@Data
+public class RecurringTaskRequest {
+    // Task mẫu: name, description, plan, assigner, parentTask, executors, ngày bắt đầu/deadline của tháng tham chiếu
+    private TaskDTO template;
+
+    private String fromMonth; // YYYY-MM, nằm trong Plan.startMonth..endMonth
+    private String toMonth;   // YYYY-MM
+
+    // Danh sách Unit nhận việc. Bỏ trống -> dùng template.assignee
+    private List<Long> assigneeIds = new ArrayList<>();
+}
@@ -0,0 +1,15 @@
+package tds.op.taskmanager.representation;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kết quả tạo hàng loạt: chỉ trả về uuid của nhóm và id các Task mới tạo.
+ */
+@Data
+public class RecurringTaskResult {
+    private String uuid;
+    private List<Long> taskIds = new ArrayList<>();
+}
@@ -0,0 +1,24 @@
+package tds.op.taskmanager.representation;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease của một job nền chạy theo lịch: node nào giữ lease (owner) tới leaseUntil thì chỉ node đó chạy job.
+ * Lease hết hạn (node chết giữa chừng) thì node khác lấy được ở lượt sau.
+ */
+@Data
+@Entity
+@Table(name = "scheduler_lease")
+public class SchedulerLease {
+    @Id
+    private String name;
+
+    private String owner;
+
+    private LocalDateTime leaseUntil;
+}
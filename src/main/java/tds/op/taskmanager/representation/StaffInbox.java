@@ -0,0 +1,45 @@
+package tds.op.taskmanager.representation;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Read model "việc của tôi": một dòng cho mỗi lần giao việc (staff, plan, task, action).
+ * - actionId = 0 (TASK_LEVEL): Staff là executor của Task.
+ * - actionId > 0: Staff là executor của Action đó, taskId là Task chứa Action.
+ * Dữ liệu gốc vẫn là TaskExecutor / ActionExecutor; bảng này được StaffInboxService giữ đồng bộ.
+ */
+@Data
+@Entity
+@Table(name = "staff_inbox", indexes = {
+        @Index(name = "idx_staff_inbox_staff_plan", columnList = "staff_id, plan_id"),
+        @Index(name = "idx_staff_inbox_task", columnList = "task_id, action_id")
+})
+@IdClass(StaffInbox.Key.class)
+public class StaffInbox {
+    public static final long TASK_LEVEL = 0L;
+
+    @Id
+    private Long staffId;
+
+    @Id
+    private Long actionId;
+
+    @Id
+    private Long taskId;
+
+    private Long planId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long staffId;
+        private Long actionId;
+        private Long taskId;
+    }
+}
@@ -0,0 +1,21 @@
+package tds.op.taskmanager.representation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Số việc (Task hoặc Action) của một TaskStatus kèm số việc theo mốc deadline (query dashboard GROUP BY status).
+ * Số việc có deadline xa hơn mốc "sắp đến hạn" = total - overdue - dueToday - dueSoon - noDeadline.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatusDeadlineCount {
+    private TaskStatus status;
+    private long total;
+    private long overdue;    // deadline < hôm nay
+    private long dueToday;   // deadline = hôm nay
+    private long dueSoon;    // hôm nay < deadline <= mốc sắp đến hạn
+    private long noDeadline; // chưa có deadline
+}
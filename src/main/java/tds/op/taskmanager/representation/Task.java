@@ -2,15 +2,24 @@ package tds.op.taskmanager.representation;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.SoftDelete;
 
 import java.time.LocalDate;
 
 @Data
 @Entity
-@Table(name = "tasks")
+@Table(name = "tasks", indexes = {
+        @Index(name = "idx_tasks_plan_uuid_name", columnList = "plan_id, uuid, name"),
+        @Index(name = "idx_tasks_assignee_plan", columnList = "assignee_id, plan_id"),
+        @Index(name = "idx_tasks_parent", columnList = "parent_task_id"),
+        @Index(name = "idx_tasks_deleted", columnList = "deleted")
+})
+@SoftDelete // Xóa Task chỉ set deleted = true, dữ liệu phụ thuộc được TaskPurger dọn sau
 public class Task {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "tasks_id")
+    @TableGenerator(name = "tasks_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "tasks", allocationSize = 50)
     private Long id;
     /**
      Do mỗi hạng mục công việc có thể lặp lại qua các tháng hoặc qua các đơn vị khác nhau,
@@ -30,5 +39,8 @@ public class Task {
     private Long assignerId;
     private Long assigneeId;
     private TaskStatus status;
+    private TaskStatus statusBeforeOverdue; //Status trước khi OverdueSweeper chuyển sang OVERDUE. Khôi phục khi gia hạn deadline.
     private double progress;
+    private int actionTotal; //Số Action của task. Cập nhật cùng transaction với create/delete Action.
+    private int actionCompleted; //Số Action đã COMPLETED. Cập nhật cùng transaction với update status Action.
 }
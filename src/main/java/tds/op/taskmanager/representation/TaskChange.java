@@ -0,0 +1,15 @@
+package tds.op.taskmanager.representation;
+
+import lombok.Data;
+
+/**
+ * Thông báo thay đổi gọn gửi qua SSE: chỉ có loại và các id liên quan, không có dữ liệu đầy đủ.
+ */
+@Data
+public class TaskChange {
+    private TaskChangeType type;
+    private Long taskId;
+    private Long planId;
+    private Long refId;
+    private long epoch; // Thời điểm commit (ms)
+}
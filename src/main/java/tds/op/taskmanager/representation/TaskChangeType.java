@@ -0,0 +1,9 @@
+package tds.op.taskmanager.representation;
+
+// Loại thay đổi gửi qua SSE (TaskChangeHub), client tự gọi lại API tương ứng để lấy dữ liệu mới
+public enum TaskChangeType {
+    COMMENT,        // Comment mới (refId = comment id)
+    TASK_EVENT,     // Sự kiện status / deadline (refId = task event id)
+    ACTION_STATUS,  // Action đổi trạng thái (refId = action id)
+    PROGRESS        // Tiến độ Task đổi (update tay, hoặc Action được thêm/xóa/đổi trạng thái)
+}
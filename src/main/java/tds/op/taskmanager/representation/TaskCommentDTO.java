@@ -16,4 +16,9 @@ public class TaskCommentDTO {
     
     // Reply comment nào (nếu có)
     private TaskCommentDTO target; 
+
+    // Trang comment (CommentService.getTaskCommentPage) không lồng target đầy đủ,
+    // chỉ trả id và một đoạn trích của comment được reply
+    private Long targetId;
+    private String targetExcerpt;
 }
\ No newline at end of file
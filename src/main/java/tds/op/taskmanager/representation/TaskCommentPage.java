@@ -0,0 +1,16 @@
+package tds.op.taskmanager.representation;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Một trang comment của Task (phân trang keyset theo epoch, id; mới nhất trước).
+ * nextCursor = null nghĩa là đã hết comment cũ hơn.
+ */
+@Data
+public class TaskCommentPage {
+    private List<TaskCommentDTO> comments = new ArrayList<>();
+    private String nextCursor;
+}
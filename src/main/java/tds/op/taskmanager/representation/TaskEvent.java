@@ -4,6 +4,9 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import lombok.Data;
@@ -12,9 +15,14 @@ import java.time.LocalDate; //
 
 @Data
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_task_event_task", columnList = "task_id")
+})
 public class TaskEvent {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "task_event_id")
+    @TableGenerator(name = "task_event_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "task_event", allocationSize = 50)
     private Long id;
 
     private Long taskId;
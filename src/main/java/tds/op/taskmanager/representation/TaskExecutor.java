@@ -4,13 +4,22 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import lombok.Data;
 
 @Data
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_task_executor_task", columnList = "task_id, executor_id"),
+        @Index(name = "idx_task_executor_executor", columnList = "executor_id, task_id")
+})
 public class TaskExecutor {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "task_executor_id")
+    @TableGenerator(name = "task_executor_id", table = "id_generator", pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "task_executor", allocationSize = 50)
     private Long id;
 
     private Long taskId;
@@ -0,0 +1,16 @@
+package tds.op.taskmanager.representation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Khóa sắp xếp của một TaskGroup (tên nhóm, uuid), dùng cho phân trang keyset.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskGroupKey {
+    private String uuid;
+    private String name;
+}
@@ -0,0 +1,16 @@
+package tds.op.taskmanager.representation;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Một trang TaskGroup (phân trang keyset theo tên nhóm, uuid).
+ * nextCursor = null nghĩa là đã hết dữ liệu.
+ */
+@Data
+public class TaskGroupPage {
+    private List<TaskGroup> groups = new ArrayList<>();
+    private String nextCursor;
+}
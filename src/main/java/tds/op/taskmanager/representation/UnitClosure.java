@@ -0,0 +1,37 @@
+package tds.op.taskmanager.representation;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Closure table của cây Unit: mỗi cặp (tổ tiên, con cháu) là một dòng, kể cả cặp (unit, chính nó) với depth = 0.
+ * Nhờ bảng này, mọi truy vấn "toàn bộ dữ liệu dưới unit X" chỉ cần một JOIN theo ancestorId thay vì đệ quy.
+ * Được duy trì bởi UnitService.createUnit / deleteUnit.
+ */
+@Data
+@Entity
+@Table(name = "unit_closure", indexes = {
+        @Index(name = "idx_unit_closure_descendant", columnList = "descendant_id, depth")
+})
+@IdClass(UnitClosure.Key.class)
+public class UnitClosure {
+    @Id
+    private Long ancestorId;
+
+    @Id
+    private Long descendantId;
+
+    private int depth; // Khoảng cách từ ancestor xuống descendant (0 = chính nó)
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long ancestorId;
+        private Long descendantId;
+    }
+}
@@ -0,0 +1,133 @@
+package tds.op.taskmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tds.op.taskmanager.repository.ActionRepository;
+import tds.op.taskmanager.repository.TaskRepository;
+import tds.op.taskmanager.representation.ActionProgress;
+import tds.op.taskmanager.representation.Task;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Job đối soát bộ đếm Action (Task.actionTotal / Task.actionCompleted).
+ * Duyệt bảng Task theo từng chunk (keyset theo id), so sánh với số liệu thực tế từ bảng Action
+ * và tính lại các Task bị lệch. Mỗi chunk chạy trong một transaction riêng.
+ * Chỉ một node chạy nhờ lease "action-counter-reconcile" (SchedulerLeaseService), gia hạn sau mỗi chunk.
+ */
+@Service
+public class ActionCounterReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionCounterReconciler.class);
+
+    private static final String LEASE = "action-counter-reconcile";
+
+    private final TaskRepository taskRepository;
+    private final ActionRepository actionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PlanVersionService planVersionService;
+    private final PlanRollupService planRollupService;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final int chunkSize;
+    private final boolean reconcileOnStartup;
+    private final Duration leaseTtl;
+
+    public ActionCounterReconciler(TaskRepository taskRepository, ActionRepository actionRepository, TransactionTemplate transactionTemplate, PlanVersionService planVersionService,
+                                   PlanRollupService planRollupService, SchedulerLeaseService schedulerLeaseService,
+                                   @Value("${taskmanager.action-counters.reconcile-chunk-size:500}") int chunkSize,
+                                   @Value("${taskmanager.action-counters.reconcile-on-startup:false}") boolean reconcileOnStartup,
+                                   @Value("${taskmanager.action-counters.lease-ms:300000}") long leaseMillis) {
+        this.taskRepository = taskRepository;
+        this.actionRepository = actionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.planVersionService = planVersionService;
+        this.planRollupService = planRollupService;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.chunkSize = chunkSize;
+        this.reconcileOnStartup = reconcileOnStartup;
+        this.leaseTtl = Duration.ofMillis(leaseMillis);
+    }
+
+    /**
+     * Tùy chọn chạy một lần khi khởi động (dữ liệu cũ đã được backfill bởi migration V2__action_counters).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        if (reconcileOnStartup) {
+            reconcile();
+        }
+    }
+
+    @Scheduled(cron = "${taskmanager.action-counters.reconcile-cron:0 30 2 * * *}")
+    public void reconcile() {
+        if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) return;
+        long afterId = 0L;
+        int scanned = 0;
+        int fixed = 0;
+
+        try {
+            while (true) {
+                List<Task> chunk = taskRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(chunkSize));
+                if (chunk.isEmpty()) break;
+
+                Integer fixedInChunk = transactionTemplate.execute(status -> reconcileChunk(chunk));
+                fixed += fixedInChunk == null ? 0 : fixedInChunk;
+                scanned += chunk.size();
+                afterId = chunk.get(chunk.size() - 1).getId();
+
+                if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) {
+                    log.warn("Action counter reconciliation: lease lost after {} tasks, stopping", scanned);
+                    break;
+                }
+            }
+        } finally {
+            schedulerLeaseService.release(LEASE);
+        }
+
+        if (fixed > 0) {
+            log.info("Action counter reconciliation: scanned {} tasks, fixed {} drifted counters", scanned, fixed);
+        }
+    }
+
+    private int reconcileChunk(List<Task> chunk) {
+        List<Long> ids = chunk.stream().map(Task::getId).collect(Collectors.toList());
+        Map<Long, ActionProgress> actual = actionRepository.countByTaskIds(ids).stream()
+                .collect(Collectors.toMap(ActionProgress::getTaskId, Function.identity()));
+
+        List<Long> drifted = new ArrayList<>();
+        for (Task t : chunk) {
+            ActionProgress p = actual.get(t.getId());
+            long total = p == null ? 0 : p.getTotal();
+            long completed = p == null ? 0 : p.getCompleted();
+            if (t.getActionTotal() != total || t.getActionCompleted() != completed) {
+                drifted.add(t.getId());
+            }
+        }
+
+        // Tính lại trực tiếp trong DB (atomic) thay vì ghi số đã đếm, tránh ghi đè thay đổi đồng thời
+        if (!drifted.isEmpty()) {
+            taskRepository.recomputeActionCounters(drifted);
+            planRollupService.touchTasks(drifted);
+            // Tiến độ của các Task này đổi -> view của Plan chứa chúng cũng đổi
+            Set<Long> driftedIds = new HashSet<>(drifted);
+            planVersionService.bump(chunk.stream().filter(t -> driftedIds.contains(t.getId()))
+                    .map(Task::getPlanId).filter(Objects::nonNull).collect(Collectors.toSet()));
+        }
+        return drifted.size();
+    }
+}
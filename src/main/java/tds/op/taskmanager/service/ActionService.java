@@ -4,12 +4,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tds.op.taskmanager.repository.ActionExecutorRepository;
 import tds.op.taskmanager.repository.ActionRepository;
-import tds.op.taskmanager.repository.StaffRepository;
+import tds.op.taskmanager.repository.TaskRepository;
 import tds.op.taskmanager.representation.*;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDate;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,14 +16,29 @@ public class ActionService {
 
     private final ActionRepository actionRepository;
     private final ActionExecutorRepository actionExecutorRepository;
-    private final StaffRepository staffRepository;
+    private final StaffDirectory staffDirectory;
+    private final TaskRepository taskRepository;
+    private final PlanVersionService planVersionService;
+    private final TaskChangeHub taskChangeHub;
+    private final StaffInboxService staffInboxService;
+    private final PlanRollupService planRollupService;
 
     public ActionService(ActionRepository actionRepository,
                          ActionExecutorRepository actionExecutorRepository,
-                         StaffRepository staffRepository) {
+                         StaffDirectory staffDirectory,
+                         TaskRepository taskRepository,
+                         PlanVersionService planVersionService,
+                         TaskChangeHub taskChangeHub,
+                         StaffInboxService staffInboxService,
+                         PlanRollupService planRollupService) {
         this.actionRepository = actionRepository;
         this.actionExecutorRepository = actionExecutorRepository;
-        this.staffRepository = staffRepository;
+        this.staffDirectory = staffDirectory;
+        this.taskRepository = taskRepository;
+        this.planVersionService = planVersionService;
+        this.taskChangeHub = taskChangeHub;
+        this.staffInboxService = staffInboxService;
+        this.planRollupService = planRollupService;
     }
 
     @Transactional
@@ -40,64 +54,102 @@ public class ActionService {
         action.setStatus(TaskStatus.PENDING);
 
         Action savedAction = actionRepository.save(action);
+        taskRepository.adjustActionCounters(dto.getTaskId(), 1, 0);
+        planRollupService.touchTask(dto.getTaskId());
 
-        // 2. Save ActionExecutors (Logic đa người thực hiện)
+        // 2. Save ActionExecutors (Logic đa người thực hiện), bỏ qua Staff không còn tồn tại
         if (dto.getExecutors() != null && !dto.getExecutors().isEmpty()) {
+            Set<Long> validStaffIds = staffDirectory.existingIds(dto.getExecutors().stream()
+                    .map(StaffDTO::getId).collect(Collectors.toList()));
             List<ActionExecutor> links = new ArrayList<>();
             for (StaffDTO staff : dto.getExecutors()) {
+                if (!validStaffIds.contains(staff.getId())) continue;
                 ActionExecutor ae = new ActionExecutor();
                 ae.setActionId(savedAction.getId());
                 ae.setExecutorId(staff.getId());
                 links.add(ae);
             }
-            actionExecutorRepository.saveAll(links);
+            if (!links.isEmpty()) {
+                actionExecutorRepository.saveAll(links);
+                staffInboxService.actionsAssigned(List.of(savedAction.getId()));
+            }
         }
+        // Thêm Action làm thay đổi tiến độ tính từ Action của Task
+        Long planId = planVersionService.bumpForTask(dto.getTaskId());
+        taskChangeHub.publish(TaskChangeType.PROGRESS, dto.getTaskId(), planId, savedAction.getId());
     }
 
     public List<ActionDTO> getActionsByTaskId(Long taskId) {
         List<Action> actions = actionRepository.findByTaskId(taskId);
-        return actions.stream().map(this::convertActionToDTO).collect(Collectors.toList());
+        if (actions.isEmpty()) return new ArrayList<>();
+
+        // Executor links + Staff của toàn bộ Action lấy theo batch (không query theo từng Action)
+        List<Long> actionIds = actions.stream().map(Action::getId).collect(Collectors.toList());
+        Map<Long, List<Long>> executorIdsByAction = actionExecutorRepository.findByActionIdIn(actionIds).stream()
+                .collect(Collectors.groupingBy(ActionExecutor::getActionId, Collectors.mapping(ActionExecutor::getExecutorId, Collectors.toList())));
+        Map<Long, StaffDTO> staffs = staffDirectory.getAll(executorIdsByAction.values().stream()
+                .flatMap(List::stream).collect(Collectors.toSet()));
+
+        return actions.stream().map(a -> convertActionToDTO(a, executorIdsByAction, staffs)).collect(Collectors.toList());
     }
 
     @Transactional
     public void deleteAction(Long actionId) {
-        if (actionRepository.existsById(actionId)) {
+        Optional<Action> actionOpt = actionRepository.findById(actionId);
+        if (actionOpt.isPresent()) {
+            Action action = actionOpt.get();
+
             // Xóa liên kết người thực hiện trước
             List<ActionExecutor> executors = actionExecutorRepository.findByActionId(actionId);
             actionExecutorRepository.deleteAll(executors);
-
-            // Sau đó xóa Action
-            actionRepository.deleteById(actionId);
+            staffInboxService.actionRemoved(action.getTaskId(), actionId);
+
+            // Sau đó xóa Action và trừ bộ đếm của Task
+            actionRepository.delete(action);
+            taskRepository.adjustActionCounters(action.getTaskId(), -1, action.getStatus() == TaskStatus.COMPLETED ? -1 : 0);
+            planRollupService.touchTask(action.getTaskId());
+            Long planId = planVersionService.bumpForTask(action.getTaskId());
+            taskChangeHub.publish(TaskChangeType.PROGRESS, action.getTaskId(), planId, actionId);
         }
     }
 
     /**
-     * Hàm xóa toàn bộ Action của một Task (Dùng khi xóa Task cha).
+     * Gia hạn deadline của Action. Action đang OVERDUE được gia hạn tới hôm nay hoặc sau đó thì trở lại status
+     * trước khi quá hạn (OverdueSweeper.restoredStatus). Như OverdueSweeper, Action không ghi TaskEvent,
+     * chỉ báo ACTION_STATUS cho client SSE.
      */
     @Transactional
-    public void deleteActionsByTaskId(Long taskId) {
-        List<Action> actions = actionRepository.findByTaskId(taskId);
-        for (Action action : actions) {
-            deleteAction(action.getId());
+    public void extendDeadline(Long actionId, LocalDate newDeadline) {
+        // Khóa dòng trước khi đọc: không chạy xen với một chunk của OverdueSweeper hay lần đổi status khác
+        actionRepository.lockById(actionId)
+                .orElseThrow(() -> new IllegalArgumentException("Action not found"));
+        Action action = actionRepository.findById(actionId)
+                .orElseThrow(() -> new IllegalArgumentException("Action not found"));
+
+        TaskStatus restored = OverdueSweeper.restoredStatus(action.getStatus(), action.getStatusBeforeOverdue(), newDeadline, LocalDate.now());
+        action.setDeadline(newDeadline);
+        if (restored != null) {
+            action.setStatus(restored);
+            action.setStatusBeforeOverdue(null);
         }
+        actionRepository.save(action);
+        Long planId = planVersionService.bumpForTask(action.getTaskId());
+        taskChangeHub.publish(TaskChangeType.ACTION_STATUS, action.getTaskId(), planId, actionId);
     }
 
-    public Double calculateProgress(Long taskId) {
-        List<Action> actions = actionRepository.findByTaskId(taskId);
-
-        if (actions.isEmpty()) {
-            return null; // Không có action -> Trả về null
+    /**
+     * Tiến độ tính từ Action: số action hoàn thành / tổng số action.
+     * Đọc trực tiếp từ bộ đếm trên Task (không query). Không có action -> trả về null.
+     */
+    public Double calculateProgress(Task task) {
+        if (task.getActionTotal() <= 0) {
+            return null;
         }
-
-        long completedCount = actions.stream()
-                .filter(a -> a.getStatus() == TaskStatus.COMPLETED) //
-                .count();
-
-        // Tính tỷ lệ: số action hoàn thành / tổng số action
-        return (double) completedCount / actions.size();
+        return (double) task.getActionCompleted() / task.getActionTotal();
     }
+
     // --- Helper Mappers ---
-    private ActionDTO convertActionToDTO(Action action) {
+    private ActionDTO convertActionToDTO(Action action, Map<Long, List<Long>> executorIdsByAction, Map<Long, StaffDTO> staffs) {
         ActionDTO dto = new ActionDTO();
         dto.setId(action.getId());
         dto.setTaskId(action.getTaskId());
@@ -106,23 +158,17 @@ public class ActionService {
         dto.setDeadline(action.getDeadline());
         dto.setStatus(action.getStatus());
 
-        // Map Executors của Action (Query từ bảng ActionExecutor)
-        List<ActionExecutor> links = actionExecutorRepository.findByActionId(action.getId());
-        if (!links.isEmpty()) {
-            List<Long> staffIds = links.stream().map(ActionExecutor::getExecutorId).collect(Collectors.toList());
-            List<Staff> staffs = staffRepository.findAllById(staffIds);
-            dto.setExecutors(staffs.stream().map(this::convertStaffToDTO).collect(Collectors.toList()));
+        // Map Executors của Action (đã prefetch từ bảng ActionExecutor)
+        List<Long> staffIds = executorIdsByAction.get(action.getId());
+        if (staffIds != null) {
+            List<StaffDTO> executors = new ArrayList<>();
+            for (Long sid : staffIds) {
+                StaffDTO s = staffs.get(sid);
+                if (s != null) executors.add(s);
+            }
+            dto.setExecutors(executors);
         }
 
         return dto;
     }
-
-    private StaffDTO convertStaffToDTO(Staff s) {
-        StaffDTO dto = new StaffDTO();
-        dto.setId(s.getId());
-        dto.setName(s.getName());
-        dto.setEmail(s.getEmail());
-        dto.setPicture(s.getPicture());
-        return dto;
-    }
-}
\ No newline at end of file
+}
@@ -1,14 +1,17 @@
 package tds.op.taskmanager.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import tds.op.taskmanager.repository.StaffRepository;
 import tds.op.taskmanager.repository.TaskCommentRepository;
-import tds.op.taskmanager.representation.Staff;
 import tds.op.taskmanager.representation.StaffDTO;
+import tds.op.taskmanager.representation.TaskChangeType;
 import tds.op.taskmanager.representation.TaskComment;
 import tds.op.taskmanager.representation.TaskCommentDTO;
+import tds.op.taskmanager.representation.TaskCommentPage;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -17,14 +20,33 @@ import java.util.stream.Collectors;
 @Service
 public class CommentService {
 
+    // Độ dài đoạn trích của comment được reply trong trang comment
+    private static final int EXCERPT_LENGTH = 80;
+
     private final TaskCommentRepository taskCommentRepository;
-    private final StaffRepository staffRepository;
+    private final StaffDirectory staffDirectory;
+    private final PlanVersionService planVersionService;
+    private final TaskChangeHub taskChangeHub;
+
+    // Phân trang comment
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
-    public CommentService(TaskCommentRepository taskCommentRepository, StaffRepository staffRepository) {
+    public CommentService(TaskCommentRepository taskCommentRepository, StaffDirectory staffDirectory, PlanVersionService planVersionService,
+                          TaskChangeHub taskChangeHub,
+                          @Value("${taskmanager.comments.page-size:50}") int defaultPageSize,
+                          @Value("${taskmanager.comments.max-page-size:200}") int maxPageSize) {
         this.taskCommentRepository = taskCommentRepository;
-        this.staffRepository = staffRepository;
+        this.staffDirectory = staffDirectory;
+        this.planVersionService = planVersionService;
+        this.taskChangeHub = taskChangeHub;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
+    /**
+     * Thêm comment. Comment được reply (target) phải thuộc cùng Task, nếu không -> IllegalArgumentException.
+     */
     @Transactional
     public void addComment(TaskCommentDTO dto) {
         TaskComment comment = new TaskComment();
@@ -36,51 +58,135 @@ public class CommentService {
         if (dto.getOwner() != null) {
             comment.setOwnerId(dto.getOwner().getId());
         }
-        if (dto.getTarget() != null) {
-            comment.setTargetId(dto.getTarget().getId());
+        if (dto.getTarget() != null && dto.getTarget().getId() != null) {
+            Long targetId = dto.getTarget().getId();
+            boolean sameTask = taskCommentRepository.findById(targetId)
+                    .map(t -> Objects.equals(t.getTaskId(), dto.getTaskId())).orElse(false);
+            if (!sameTask) throw new IllegalArgumentException("Reply target " + targetId + " is not a comment of task " + dto.getTaskId());
+            comment.setTargetId(targetId);
         }
         
         taskCommentRepository.save(comment);
+        Long planId = planVersionService.bumpForTask(dto.getTaskId());
+        taskChangeHub.publish(TaskChangeType.COMMENT, dto.getTaskId(), planId, comment.getId());
     }
 
     public List<TaskCommentDTO> getTaskComments(Long taskId) {
         List<TaskComment> comments = taskCommentRepository.findByTaskId(taskId);
         if (comments.isEmpty()) return Collections.emptyList();
 
-        // 1. Map ID -> DTO tạm để lookup
-        Map<Long, TaskCommentDTO> dtoMap = comments.stream()
-                .map(this::convertCommentToDTO)
-                .collect(Collectors.toMap(TaskCommentDTO::getId, c -> c));
+        // Owner lấy một lần cho cả danh sách
+        Map<Long, StaffDTO> owners = staffDirectory.getAll(comments.stream()
+                .map(TaskComment::getOwnerId).filter(Objects::nonNull).collect(Collectors.toSet()));
+        return linkReplies(comments, owners);
+    }
 
-        // 2. Link target (reply logic)
-        List<TaskCommentDTO> result = new ArrayList<>();
+    /**
+     * Một trang comment của Task, mới nhất trước (keyset theo epoch, id trên index (task_id, epoch, id)).
+     * Số query cố định cho mỗi trang, không phụ thuộc tổng số comment của Task:
+     * 1 query trang + tối đa 1 query cho comment được reply nằm ngoài trang + Staff qua StaffDirectory.
+     * Reply chỉ mang targetId + targetExcerpt, không lồng DTO của comment được reply.
+     */
+    public TaskCommentPage getTaskCommentPage(Long taskId, String cursor, Integer size) {
+        TaskCommentPage page = new TaskCommentPage();
+        if (taskId == null) return page;
+
+        int limit = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        long[] before = decodeCursor(cursor);
+
+        // 1. Lấy (limit + 1) comment để biết còn trang sau hay không
+        List<TaskComment> comments = taskCommentRepository.findPageBefore(taskId, before[0], before[1], Limit.of(limit + 1));
+        boolean hasMore = comments.size() > limit;
+        if (hasMore) comments = comments.subList(0, limit);
+        if (comments.isEmpty()) return page;
+
+        // 2. Comment được reply: trong trang thì dùng luôn, ngoài trang thì lấy một lần
+        //    (chỉ trong cùng Task: target của Task khác từ dữ liệu cũ bị bỏ qua)
+        Map<Long, TaskComment> byId = new HashMap<>(comments.size() * 2);
+        for (TaskComment c : comments) byId.put(c.getId(), c);
+        Set<Long> missingTargets = new HashSet<>();
         for (TaskComment c : comments) {
-            TaskCommentDTO dto = dtoMap.get(c.getId());
+            if (c.getTargetId() != null && !byId.containsKey(c.getTargetId())) missingTargets.add(c.getTargetId());
+        }
+        if (!missingTargets.isEmpty()) {
+            for (TaskComment t : taskCommentRepository.findByTaskIdAndIdIn(taskId, missingTargets)) byId.put(t.getId(), t);
+        }
+
+        // 3. Owner của cả trang lấy một lần
+        Map<Long, StaffDTO> owners = staffDirectory.getAll(comments.stream()
+                .map(TaskComment::getOwnerId).filter(Objects::nonNull).collect(Collectors.toSet()));
+
+        for (TaskComment c : comments) {
+            TaskCommentDTO dto = convertCommentToDTO(c, owners);
             if (c.getTargetId() != null) {
-                // Nếu comment này reply một comment khác, gán object target vào
-                dto.setTarget(dtoMap.get(c.getTargetId()));
+                dto.setTargetId(c.getTargetId());
+                TaskComment target = byId.get(c.getTargetId());
+                if (target != null) dto.setTargetExcerpt(excerpt(target.getMessage()));
             }
-            result.add(dto);
+            page.getComments().add(dto);
         }
-        
-        // 3. Sort theo thời gian
-        result.sort(Comparator.comparingLong(TaskCommentDTO::getEpoch));
-        return result;
+        if (hasMore) {
+            page.setNextCursor(encodeCursor(comments.get(comments.size() - 1)));
+        }
+        return page;
+    }
+
+    // Cursor = Base64URL("epoch:id") của comment cuối cùng (cũ nhất) trong trang trước
+    private static String encodeCursor(TaskComment last) {
+        String raw = last.getEpoch() + ":" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return new long[]{Long.MAX_VALUE, Long.MAX_VALUE};
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int sep = raw.indexOf(':');
+        if (sep < 0) throw new IllegalArgumentException("Invalid cursor");
+        try {
+            return new long[]{Long.parseLong(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1))};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String excerpt(String message) {
+        if (message == null || message.length() <= EXCERPT_LENGTH) return message;
+        int end = EXCERPT_LENGTH;
+        // Không cắt giữa một cặp surrogate (emoji...)
+        if (Character.isHighSurrogate(message.charAt(end - 1))) end--;
+        return message.substring(0, end) + "…";
     }
 
     /**
-     * Hàm xóa toàn bộ comment của một Task (Dùng khi xóa Task cha).
+     * Map comment sang DTO, gắn comment được reply (target) và sort theo thời gian.
+     * Không truy cập DB (dùng chung cho benchmark).
      */
-    @Transactional
-    public void deleteCommentsByTaskId(Long taskId) {
-        List<TaskComment> comments = taskCommentRepository.findByTaskId(taskId);
-        if (!comments.isEmpty()) {
-            taskCommentRepository.deleteAll(comments);
+    static List<TaskCommentDTO> linkReplies(List<TaskComment> comments, Map<Long, StaffDTO> owners) {
+        // 1. Map ID -> DTO để lookup
+        List<TaskCommentDTO> result = new ArrayList<>(comments.size());
+        Map<Long, TaskCommentDTO> dtoMap = new HashMap<>(comments.size() * 2);
+        for (TaskComment c : comments) {
+            TaskCommentDTO dto = convertCommentToDTO(c, owners);
+            result.add(dto);
+            dtoMap.put(dto.getId(), dto);
         }
+
+        // 2. Link target (reply logic)
+        for (int i = 0; i < comments.size(); i++) {
+            Long targetId = comments.get(i).getTargetId();
+            if (targetId != null) {
+                // Nếu comment này reply một comment khác, gán object target vào
+                result.get(i).setTarget(dtoMap.get(targetId));
+            }
+        }
+
+        // 3. Sort theo thời gian
+        result.sort(Comparator.comparingLong(TaskCommentDTO::getEpoch));
+        return result;
     }
 
     // --- Helper Mappers ---
-    private TaskCommentDTO convertCommentToDTO(TaskComment c) {
+    private static TaskCommentDTO convertCommentToDTO(TaskComment c, Map<Long, StaffDTO> owners) {
         TaskCommentDTO dto = new TaskCommentDTO();
         dto.setId(c.getId());
         dto.setTaskId(c.getTaskId());
@@ -89,18 +195,8 @@ public class CommentService {
         dto.setEpoch(c.getEpoch());
         
         if (c.getOwnerId() != null) {
-            staffRepository.findById(c.getOwnerId())
-                .ifPresent(s -> dto.setOwner(convertStaffToDTO(s)));
+            dto.setOwner(owners.get(c.getOwnerId()));
         }
         return dto;
     }
-
-    private StaffDTO convertStaffToDTO(Staff s) {
-        StaffDTO dto = new StaffDTO();
-        dto.setId(s.getId());
-        dto.setName(s.getName());
-        dto.setEmail(s.getEmail());
-        dto.setPicture(s.getPicture());
-        return dto;
-    }
 }
\ No newline at end of file
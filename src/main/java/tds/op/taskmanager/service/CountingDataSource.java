@@ -0,0 +1,137 @@
+package tds.op.taskmanager.service;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+/**
+ * DataSource bọc ngoài connection pool, ghi số câu SQL / số dòng / thời gian vào SqlStatementCounter.
+ * Connection, Statement và ResultSet được bọc bằng dynamic proxy; khi không có Scope nào đang mở
+ * thì chỉ chuyển tiếp lời gọi (không đo thời gian).
+ * unwrap()/isWrapperFor() đi thẳng xuống pool (Hikari metrics, health check vẫn thấy HikariDataSource).
+ */
+public class CountingDataSource extends DelegatingDataSource {
+
+    public CountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(super.getConnection(username, password));
+    }
+
+    private static Connection wrapConnection(Connection connection) {
+        return proxy(Connection.class, connection, new ConnectionHandler(connection));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals")) return proxy == args[0];
+            Object result = CountingDataSource.invoke(target, method, args);
+            if (result instanceof CallableStatement s) {
+                return proxy(CallableStatement.class, s, new StatementHandler(s, (Connection) proxy));
+            }
+            if (result instanceof PreparedStatement s) {
+                return proxy(PreparedStatement.class, s, new StatementHandler(s, (Connection) proxy));
+            }
+            if (result instanceof Statement s) {
+                return proxy(Statement.class, s, new StatementHandler(s, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Connection connection;
+
+        StatementHandler(Statement target, Connection connection) {
+            this.target = target;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals")) return proxy == args[0];
+            if (name.equals("getConnection")) return connection;
+
+            Object result;
+            // executeQuery / executeUpdate / executeBatch / executeLargeUpdate...: một lượt gửi lên DB
+            if (name.startsWith("execute") && SqlStatementCounter.isActive()) {
+                long start = System.nanoTime();
+                try {
+                    result = CountingDataSource.invoke(target, method, args);
+                } finally {
+                    SqlStatementCounter.statementExecuted(System.nanoTime() - start);
+                }
+            } else {
+                result = CountingDataSource.invoke(target, method, args);
+            }
+            if (result instanceof ResultSet rs) {
+                return proxy(ResultSet.class, rs, new ResultSetHandler(rs, (Statement) proxy));
+            }
+            return result;
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Statement statement;
+
+        ResultSetHandler(ResultSet target, Statement statement) {
+            this.target = target;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals")) return proxy == args[0];
+            if (name.equals("getStatement")) return statement;
+            if (name.equals("next") && SqlStatementCounter.isActive()) {
+                long start = System.nanoTime();
+                boolean hasRow = target.next();
+                long elapsed = System.nanoTime() - start;
+                if (hasRow) {
+                    SqlStatementCounter.rowFetched(elapsed);
+                } else {
+                    SqlStatementCounter.fetchTime(elapsed);
+                }
+                return hasRow;
+            }
+            return CountingDataSource.invoke(target, method, args);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package tds.op.taskmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Chạy song song các lookup độc lập (mỗi lookup thường là một query) trong một service call.
+ * <pre>
+ *   try (FanOut.Scope scope = fanOut.open()) {
+ *       FanOut.Task&lt;List&lt;Plan&gt;&gt; plans = scope.fork(() -&gt; planRepository.findAllById(planIds));
+ *       FanOut.Task&lt;List&lt;Unit&gt;&gt; units = scope.fork(() -&gt; unitRepository.findAllById(unitIds));
+ *       scope.join();
+ *       ...plans.get(), units.get()
+ *   }
+ * </pre>
+ * - Structured: subtask không sống lâu hơn Scope; join() ném lại lỗi đầu tiên của subtask.
+ * - Số subtask chạy đồng thời trên toàn ứng dụng bị giới hạn bởi semaphore (mặc định nửa Hikari pool),
+ *   mỗi subtask giữ một connection riêng. Hết permit -> subtask chạy luôn trên thread gọi (tuần tự như cũ),
+ *   nên không bao giờ chờ connection vô hạn khi pool đã bị các request chiếm hết.
+ * - Đang trong transaction -> luôn chạy tuần tự trên thread gọi: thread khác không thấy dữ liệu chưa commit.
+ * - Pool platform thread cố định; virtual thread nếu bật spring.threads.virtual.enabled (Java 21+).
+ */
+@Component
+public class FanOut implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FanOut.class);
+
+    private final Semaphore permits;
+    private final Executor executor;
+    private final ExecutorService platformPool;
+
+    public FanOut(Environment environment,
+                  @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                  @Value("${taskmanager.fan-out.max-concurrency:0}") int maxConcurrency) {
+        int limit = maxConcurrency > 0 ? maxConcurrency : Math.max(1, poolSize / 2);
+        this.permits = new Semaphore(limit);
+
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("fan-out-");
+            virtual.setVirtualThreads(true);
+            this.executor = virtual;
+            this.platformPool = null;
+        } else {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("fan-out-");
+            threadFactory.setDaemon(true);
+            this.platformPool = Executors.newFixedThreadPool(limit, threadFactory);
+            this.executor = platformPool;
+        }
+        log.info("Fan-out: max {} concurrent lookups on {} threads", limit, platformPool == null ? "virtual" : "platform");
+    }
+
+    public Scope open() {
+        return new Scope(TransactionSynchronizationManager.isActualTransactionActive());
+    }
+
+    @Override
+    public void destroy() {
+        if (platformPool != null) platformPool.shutdownNow();
+    }
+
+    /**
+     * Kết quả của một subtask, đọc được sau Scope.join().
+     */
+    public static final class Task<T> {
+        private final Future<T> future;
+
+        private Task(Future<T> future) {
+            this.future = future;
+        }
+
+        public T get() {
+            if (!future.isDone()) throw new IllegalStateException("Task not joined");
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+    }
+
+    public final class Scope implements AutoCloseable {
+        private final boolean inline;
+        private final List<Future<?>> futures = new ArrayList<>();
+
+        private Scope(boolean inline) {
+            this.inline = inline;
+        }
+
+        public <T> Task<T> fork(Supplier<T> lookup) {
+            FutureTask<T> task;
+            if (!inline && permits.tryAcquire()) {
+                task = new FutureTask<>(SqlStatementCounter.inheritScope(lookup)::get);
+                FutureTask<T> submitted = task;
+                try {
+                    executor.execute(() -> {
+                        try {
+                            submitted.run();
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    task = new FutureTask<>(lookup::get);
+                    task.run();
+                }
+            } else {
+                task = new FutureTask<>(lookup::get);
+                task.run();
+            }
+            futures.add(task);
+            return new Task<>(task);
+        }
+
+        /**
+         * Chờ mọi subtask xong; subtask lỗi -> ném lại lỗi đầu tiên (theo thứ tự fork).
+         */
+        public void join() {
+            Throwable failure = null;
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = e.getCause();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for lookups", e);
+                }
+            }
+            if (failure != null) throw rethrow(failure);
+        }
+
+        /**
+         * Thoát Scope mà chưa join (do lỗi ở thread gọi): vẫn chờ các subtask còn chạy,
+         * không để lookup nào dùng connection sau khi service call đã kết thúc.
+         */
+        @Override
+        public void close() {
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException | CancellationException ignored) {
+                    // Lỗi đã (hoặc sẽ không) được báo qua join()
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException e) return e;
+        if (failure instanceof Error e) throw e;
+        return new IllegalStateException(failure);
+    }
+}
@@ -0,0 +1,72 @@
+package tds.op.taskmanager.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Chuyển các bảng cũ (id AUTO_INCREMENT) sang sinh id bằng bảng id_generator (TableGenerator, allocationSize 50).
+ * Mỗi entity có một dòng trong id_generator (sequence_name = tên bảng). Khi khởi động, next_val được nâng lên
+ * tối thiểu MAX(id) + ALLOCATION_SIZE. Pooled optimizer cấp block (next_val - 50, next_val], nên block id đầu tiên
+ * Hibernate cấp phát không trùng với dữ liệu cũ.
+ * Chỉ tăng, không bao giờ giảm next_val -> chạy lại nhiều lần (hoặc trên nhiều node) đều an toàn.
+ * Chạy sau khi Flyway migrate và trước khi web server nhận request.
+ */
+@Component
+public class IdGeneratorMigration implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorMigration.class);
+
+    // Phải khớp với allocationSize của các @TableGenerator
+    static final int ALLOCATION_SIZE = 50;
+
+    // Tên bảng = pkColumnValue của @TableGenerator trên từng entity
+    private static final List<String> TABLES = List.of(
+            "tasks", "plan", "unit", "staff", "unit_staff",
+            "action", "action_executor", "task_executor", "task_event", "task_comment");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // EntityManagerFactory: đảm bảo Flyway (V4__id_generator) đã tạo bảng id_generator trước khi seed
+    public IdGeneratorMigration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reseed();
+    }
+
+    /**
+     * Nâng next_val của mọi bảng lên trên MAX(id). Gọi lại sau khi ghi dữ liệu bằng JDBC với id tự chọn
+     * (VD: SyntheticDataGenerator).
+     */
+    public void reseed() {
+        for (String table : TABLES) {
+            transactionTemplate.executeWithoutResult(status -> seed(table));
+        }
+    }
+
+    private void seed(String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long target = (maxId == null ? 0L : maxId) + ALLOCATION_SIZE;
+
+        Long current = jdbcTemplate.query("SELECT next_val FROM id_generator WHERE sequence_name = ? FOR UPDATE",
+                rs -> rs.next() ? rs.getLong(1) : null, table);
+        if (current == null) {
+            jdbcTemplate.update("INSERT INTO id_generator (sequence_name, next_val) VALUES (?, ?)", table, target);
+        } else if (current < target) {
+            jdbcTemplate.update("UPDATE id_generator SET next_val = ? WHERE sequence_name = ?", target, table);
+            log.info("id_generator[{}]: next_val {} -> {}", table, current, target);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package tds.op.taskmanager.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tds.op.taskmanager.repository.UnitRepository;
+import tds.op.taskmanager.representation.Unit;
+import tds.op.taskmanager.representation.UnitDTO;
+import tds.op.taskmanager.representation.UnitLevel;
+
+import java.util.*;
+
+/**
+ * Cây tổ chức (Unit) dùng chung, giữ trong bộ nhớ.
+ * - Build một lần từ unitRepository.findAll(), sau đó các API cấu trúc không cần query DB.
+ * - Quan hệ cha/con lưu bằng mảng index nguyên thủy (CSR: childStart/childIdx).
+ * - Mỗi unit có một khoảng pre-order [pre, post): unit B thuộc cây con của A
+ *   khi và chỉ khi pre[A] <= pre[B] < post[A] -> kiểm tra O(1).
+ * - createUnit/deleteUnit gọi invalidate() sau commit, lần đọc tiếp theo sẽ build lại.
+ *   Snapshot cũng tự hết hạn sau max-age để các node khác thấy thay đổi khi scale out.
+ */
+@Service
+public class OrgTreeCache {
+
+    private final UnitRepository unitRepository;
+    private final long maxAgeMillis;
+
+    private volatile Snapshot snapshot;
+    // Tăng mỗi lần invalidate; snapshot build trong lúc có invalidate sẽ không được lưu lại
+    private volatile long generation;
+
+    public OrgTreeCache(UnitRepository unitRepository,
+                        @Value("${taskmanager.org-tree.max-age-seconds:300}") long maxAgeSeconds) {
+        this.unitRepository = unitRepository;
+        this.maxAgeMillis = maxAgeSeconds * 1000L;
+    }
+
+    /**
+     * Toàn bộ cấu trúc tổ chức: danh sách cây bắt đầu từ các Root Unit (parentUnitId null hoặc 0).
+     */
+    public List<UnitDTO> getCorporateStructure() {
+        Snapshot s = current();
+        List<UnitDTO> result = new ArrayList<>(s.roots.length);
+        for (int r : s.roots) {
+            result.add(s.toTree(r));
+        }
+        return result;
+    }
+
+    /**
+     * Cây con bắt đầu từ unit chỉ định. Trả về null nếu unit không tồn tại.
+     */
+    public UnitDTO getStructure(long rootId) {
+        Snapshot s = current();
+        Integer idx = s.indexOf.get(rootId);
+        return idx == null ? null : s.toTree(idx);
+    }
+
+    /**
+     * Các unit con trực tiếp (không kèm children).
+     */
+    public List<UnitDTO> getChildren(long unitId) {
+        Snapshot s = current();
+        Integer idx = s.indexOf.get(unitId);
+        if (idx == null) return Collections.emptyList();
+
+        List<UnitDTO> result = new ArrayList<>();
+        for (int k = s.childStart[idx]; k < s.childStart[idx + 1]; k++) {
+            result.add(s.toDTO(s.childIdx[k]));
+        }
+        return result;
+    }
+
+    public boolean contains(long unitId) {
+        return current().indexOf.containsKey(unitId);
+    }
+
+    /**
+     * ID của unit và toàn bộ unit con cháu (cây con là một đoạn liên tiếp theo thứ tự pre-order).
+     * Unit không tồn tại -> mảng rỗng.
+     */
+    public long[] getSubtreeIds(long unitId) {
+        Snapshot s = current();
+        Integer idx = s.indexOf.get(unitId);
+        if (idx == null) return new long[0];
+        return Arrays.copyOfRange(s.idByPre, s.pre[idx], s.post[idx]);
+    }
+
+    /**
+     * unitId có nằm trong cây con của ancestorId không (một unit được coi là nằm trong cây con của chính nó).
+     */
+    public boolean isInSubtree(long ancestorId, long unitId) {
+        Snapshot s = current();
+        Integer a = s.indexOf.get(ancestorId);
+        Integer u = s.indexOf.get(unitId);
+        if (a == null || u == null) return false;
+        return s.pre[a] <= s.pre[u] && s.pre[u] < s.post[a];
+    }
+
+    /**
+     * Đánh dấu cây cần build lại (gọi sau khi commit thay đổi Unit).
+     */
+    public void invalidate() {
+        synchronized (this) {
+            generation++;
+            snapshot = null;
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s != null && System.currentTimeMillis() - s.builtAt < maxAgeMillis) return s;
+
+        long gen = generation;
+        Snapshot built = Snapshot.build(unitRepository.findAll());
+        synchronized (this) {
+            if (gen == generation) {
+                snapshot = built;
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Ảnh chụp bất biến của cây tổ chức.
+     */
+    private static final class Snapshot {
+        final long builtAt = System.currentTimeMillis();
+
+        final Map<Long, Integer> indexOf;
+        final long[] ids;
+        final String[] names;
+        final String[] heads;
+        final UnitLevel[] levels;
+
+        final int[] roots;
+        final int[] childStart; // children của unit i: childIdx[childStart[i] .. childStart[i+1])
+        final int[] childIdx;
+
+        final int[] pre;        // số thứ tự pre-order của unit i
+        final int[] post;       // pre-order (exclusive) kết thúc cây con của unit i
+        final long[] idByPre;   // id theo thứ tự pre-order
+
+        private Snapshot(List<Unit> units) {
+            int n = units.size();
+            indexOf = new HashMap<>(n * 2);
+            ids = new long[n];
+            names = new String[n];
+            heads = new String[n];
+            levels = new UnitLevel[n];
+            for (int i = 0; i < n; i++) {
+                Unit u = units.get(i);
+                ids[i] = u.getId();
+                names[i] = u.getName();
+                heads[i] = u.getHead();
+                levels[i] = u.getLevel();
+                indexOf.put(u.getId(), i);
+            }
+
+            // 1. parent index (-1: root hoặc cha không tồn tại)
+            int[] parent = new int[n];
+            boolean[] isRoot = new boolean[n];
+            int rootCount = 0;
+            int[] childCount = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                Long pid = units.get(i).getParentUnitId();
+                parent[i] = -1;
+                if (pid == null || pid == 0L) {
+                    isRoot[i] = true;
+                    rootCount++;
+                } else {
+                    Integer p = indexOf.get(pid);
+                    if (p != null) {
+                        parent[i] = p;
+                        childCount[p]++;
+                    }
+                }
+            }
+
+            // 2. CSR children (giữ thứ tự của findAll)
+            childStart = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                childStart[i + 1] = childStart[i] + childCount[i];
+            }
+            childIdx = new int[childStart[n]];
+            int[] fill = Arrays.copyOf(childStart, n);
+            for (int i = 0; i < n; i++) {
+                if (parent[i] >= 0) {
+                    childIdx[fill[parent[i]]++] = i;
+                }
+            }
+
+            roots = new int[rootCount];
+            for (int i = 0, r = 0; i < n; i++) {
+                if (isRoot[i]) roots[r++] = i;
+            }
+
+            // 3. Đánh số pre-order: duyệt từ các root trước, sau đó các unit "mồ côi" (cha không tồn tại / vòng lặp)
+            pre = new int[n];
+            post = new int[n];
+            idByPre = new long[n];
+            Arrays.fill(pre, -1);
+            int[] stack = new int[n];
+            int[] cursor = new int[n];
+            int counter = 0;
+            for (int r : roots) {
+                counter = number(r, counter, stack, cursor);
+            }
+            for (int i = 0; i < n; i++) {
+                if (pre[i] < 0) counter = number(i, counter, stack, cursor);
+            }
+        }
+
+        static Snapshot build(List<Unit> units) {
+            return new Snapshot(units);
+        }
+
+        /**
+         * DFS không đệ quy, gán pre/post cho cây con bắt đầu từ start. Unit đã đánh số sẽ bị bỏ qua (chống vòng lặp).
+         */
+        private int number(int start, int counter, int[] stack, int[] cursor) {
+            int top = 0;
+
+            pre[start] = counter;
+            idByPre[counter++] = ids[start];
+            stack[top] = start;
+            cursor[top] = childStart[start];
+
+            while (top >= 0) {
+                int node = stack[top];
+                if (cursor[top] < childStart[node + 1]) {
+                    int child = childIdx[cursor[top]++];
+                    if (pre[child] >= 0) continue;
+                    pre[child] = counter;
+                    idByPre[counter++] = ids[child];
+                    top++;
+                    stack[top] = child;
+                    cursor[top] = childStart[child];
+                } else {
+                    post[node] = counter;
+                    top--;
+                }
+            }
+            return counter;
+        }
+
+        UnitDTO toDTO(int i) {
+            UnitDTO dto = new UnitDTO();
+            dto.setId(ids[i]);
+            dto.setName(names[i]);
+            dto.setHead(heads[i]);
+            dto.setLevel(levels[i]);
+            return dto;
+        }
+
+        UnitDTO toTree(int i) {
+            UnitDTO dto = toDTO(i);
+            for (int k = childStart[i]; k < childStart[i + 1]; k++) {
+                int c = childIdx[k];
+                // Chỉ đi xuống các con nằm trong khoảng pre-order của i (bỏ qua cạnh tạo vòng lặp)
+                if (pre[i] < pre[c] && pre[c] < post[i]) {
+                    dto.getChildren().add(toTree(c));
+                }
+            }
+            return dto;
+        }
+    }
+}
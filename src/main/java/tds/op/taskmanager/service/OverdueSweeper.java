@@ -0,0 +1,168 @@
+package tds.op.taskmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tds.op.taskmanager.repository.ActionRepository;
+import tds.op.taskmanager.repository.TaskRepository;
+import tds.op.taskmanager.representation.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Job nền chuyển Task / Action chưa xong (PENDING, IN_PROGRESS) đã quá deadline sang OVERDUE.
+ * - Mỗi chunk (chunk-size dòng, range scan theo (status, deadline)) chạy trong một transaction riêng:
+ *   SELECT id ... FOR UPDATE, load các dòng đã khóa, một câu UPDATE ... WHERE id IN (...), rồi ghi TaskEvent của cả chunk
+ *   qua TaskEventWriter (một batch INSERT). Dòng đã chuyển không còn khớp điều kiện nên không cần con trỏ.
+ * - Action quá hạn không ghi TaskEvent (TaskEvent ghi trạng thái của Task), chỉ báo ACTION_STATUS cho client SSE.
+ * - Chỉ một node chạy nhờ lease "overdue-sweep" trong DB (SchedulerLeaseService), lease được gia hạn sau mỗi chunk.
+ * - Status trước khi chuyển được giữ ở statusBeforeOverdue: gia hạn deadline (TaskService / ActionService.extendDeadline)
+ *   tới hôm nay hoặc sau đó thì khôi phục lại (restoredStatus).
+ */
+@Service
+public class OverdueSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueSweeper.class);
+
+    private static final String LEASE = "overdue-sweep";
+    private static final List<TaskStatus> OPEN_STATUSES = List.of(TaskStatus.PENDING, TaskStatus.IN_PROGRESS);
+    private static final String EVENT_NOTE = "Quá hạn (tự động)";
+
+    private final TaskRepository taskRepository;
+    private final ActionRepository actionRepository;
+    private final TaskEventWriter taskEventWriter;
+    private final PlanVersionService planVersionService;
+    private final PlanRollupService planRollupService;
+    private final TaskChangeHub taskChangeHub;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final Duration leaseTtl;
+
+    public OverdueSweeper(TaskRepository taskRepository, ActionRepository actionRepository, TaskEventWriter taskEventWriter,
+                          PlanVersionService planVersionService, PlanRollupService planRollupService, TaskChangeHub taskChangeHub,
+                          SchedulerLeaseService schedulerLeaseService, TransactionTemplate transactionTemplate,
+                          @Value("${taskmanager.overdue-sweep.enabled:true}") boolean enabled,
+                          @Value("${taskmanager.overdue-sweep.chunk-size:500}") int chunkSize,
+                          @Value("${taskmanager.overdue-sweep.pause-ms:100}") long pauseMillis,
+                          @Value("${taskmanager.overdue-sweep.lease-ms:300000}") long leaseMillis) {
+        this.taskRepository = taskRepository;
+        this.actionRepository = actionRepository;
+        this.taskEventWriter = taskEventWriter;
+        this.planVersionService = planVersionService;
+        this.planRollupService = planRollupService;
+        this.taskChangeHub = taskChangeHub;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pauseMillis = pauseMillis;
+        this.leaseTtl = Duration.ofMillis(leaseMillis);
+    }
+
+    /**
+     * Status mới khi đổi deadline của việc đang OVERDUE sang newDeadline: status trước khi bị chuyển sang OVERDUE
+     * (PENDING nếu không rõ, ví dụ status được đặt OVERDUE bằng tay), hoặc null nếu giữ nguyên status
+     * (không OVERDUE, hoặc deadline mới vẫn trước hôm nay).
+     */
+    static TaskStatus restoredStatus(TaskStatus status, TaskStatus statusBeforeOverdue, LocalDate newDeadline, LocalDate today) {
+        if (status != TaskStatus.OVERDUE) return null;
+        if (newDeadline != null && newDeadline.isBefore(today)) return null;
+        return OPEN_STATUSES.contains(statusBeforeOverdue) ? statusBeforeOverdue : TaskStatus.PENDING;
+    }
+
+    @Scheduled(fixedDelayString = "${taskmanager.overdue-sweep.interval-ms:600000}",
+            initialDelayString = "${taskmanager.overdue-sweep.initial-delay-ms:60000}")
+    public void sweep() {
+        if (!enabled || !schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) return;
+        try {
+            LocalDate today = LocalDate.now();
+            int tasks = sweepChunks(() -> sweepTaskChunk(today));
+            int actions = tasks < 0 ? 0 : sweepChunks(() -> sweepActionChunk(today));
+            if (tasks > 0 || actions > 0) {
+                log.info("Overdue sweep: {} tasks, {} actions marked OVERDUE", Math.max(tasks, 0), actions);
+            }
+        } finally {
+            schedulerLeaseService.release(LEASE);
+        }
+    }
+
+    /**
+     * Chạy từng chunk tới khi hết. Trả về tổng số dòng đã chuyển, hoặc -1 nếu phải dừng (mất lease, bị interrupt).
+     */
+    private int sweepChunks(IntSupplier chunk) {
+        int total = 0;
+        while (true) {
+            Integer swept = transactionTemplate.execute(status -> chunk.getAsInt());
+            int n = swept == null ? 0 : swept;
+            total += n;
+            if (n < chunkSize) return total;
+
+            if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) {
+                log.warn("Overdue sweep: lease lost after {} rows, stopping", total);
+                return -1;
+            }
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+        }
+    }
+
+    private int sweepTaskChunk(LocalDate today) {
+        List<Long> ids = taskRepository.lockOverdueIds(OPEN_STATUSES, today, chunkSize);
+        if (ids.isEmpty()) return 0;
+
+        // Các dòng đã bị khóa: status đọc được ở đây chính là status trước khi chuyển
+        List<Task> tasks = taskRepository.findAllById(ids);
+        taskRepository.markOverdue(ids);
+        planRollupService.touchTasks(ids);
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> planIds = new HashSet<>();
+        for (Task task : tasks) {
+            TaskEvent event = new TaskEvent();
+            event.setTaskId(task.getId());
+            event.setNote(EVENT_NOTE);
+            event.setPrevStatus(task.getStatus());
+            event.setNextStatus(TaskStatus.OVERDUE);
+            event.setCreatedDate(now);
+            taskEventWriter.append(event, task.getPlanId());
+            if (task.getPlanId() != null) planIds.add(task.getPlanId());
+        }
+        planVersionService.bump(planIds);
+        return ids.size();
+    }
+
+    private int sweepActionChunk(LocalDate today) {
+        List<Long> ids = actionRepository.lockOverdueIds(OPEN_STATUSES, today, chunkSize);
+        if (ids.isEmpty()) return 0;
+
+        List<Action> actions = actionRepository.findAllById(ids);
+        actionRepository.markOverdue(ids);
+
+        // Plan của các Task chứa Action: một query IN cho cả chunk (Task đã soft delete không có trong kết quả)
+        Set<Long> taskIds = actions.stream().map(Action::getTaskId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, Long> planByTask = new HashMap<>();
+        for (Task task : taskRepository.findAllById(taskIds)) {
+            if (task.getPlanId() != null) planByTask.put(task.getId(), task.getPlanId());
+        }
+        for (Action action : actions) {
+            taskChangeHub.publish(TaskChangeType.ACTION_STATUS, action.getTaskId(), planByTask.get(action.getTaskId()), action.getId());
+        }
+        planVersionService.bump(new HashSet<>(planByTask.values()));
+        return ids.size();
+    }
+}
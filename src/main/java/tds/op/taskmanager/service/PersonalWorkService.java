@@ -1,11 +1,15 @@
 package tds.op.taskmanager.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tds.op.taskmanager.repository.*;
 import tds.op.taskmanager.representation.*;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -16,18 +20,37 @@ public class PersonalWorkService {
     private final TaskRepository taskRepository;
     private final ActionRepository actionRepository;
     private final ActionExecutorRepository actionExecutorRepository;
+    private final PlanVersionService planVersionService;
+    private final TaskChangeHub taskChangeHub;
+    private final PlanRollupService planRollupService;
+
+    // Dashboard
+    private final int dashboardListSize;
+    private final int dueSoonDays;
 
     public PersonalWorkService(PlanRepository planRepository,
                                TaskRepository taskRepository,
                                ActionRepository actionRepository,
-                               ActionExecutorRepository actionExecutorRepository) {
+                               ActionExecutorRepository actionExecutorRepository,
+                               PlanVersionService planVersionService,
+                               TaskChangeHub taskChangeHub,
+                               PlanRollupService planRollupService,
+                               @Value("${taskmanager.dashboard.list-size:20}") int dashboardListSize,
+                               @Value("${taskmanager.dashboard.due-soon-days:7}") int dueSoonDays) {
         this.planRepository = planRepository;
         this.taskRepository = taskRepository;
         this.actionRepository = actionRepository;
         this.actionExecutorRepository = actionExecutorRepository;
+        this.planVersionService = planVersionService;
+        this.taskChangeHub = taskChangeHub;
+        this.planRollupService = planRollupService;
+        this.dashboardListSize = Math.max(0, dashboardListSize);
+        this.dueSoonDays = Math.max(0, dueSoonDays);
     }
 
-    /** 1. Lấy danh sách Plan tôi tham gia */
+    // Cả 3 danh sách đọc từ read model staff_inbox (StaffInboxService): một range scan theo staffId mỗi endpoint
+
+    /** 1. Lấy danh sách Plan tôi tham gia (qua Task hoặc qua Action) */
     public List<PlanDTO> getMyPlans(Long staffId) {
         List<Plan> plans = planRepository.findPlansByParticipant(staffId);
         return plans.stream().map(this::toPlanDTO).collect(Collectors.toList());
@@ -45,12 +68,42 @@ public class PersonalWorkService {
         return actions.stream().map(this::toActionDTO).collect(Collectors.toList());
     }
 
-    /** * 4. Cập nhật trạng thái Action
+    /**
+     * 4. Dashboard: Plan, Task, Action của tôi cùng số lượng theo trạng thái và theo deadline, trong một response.
+     * Các query chạy tuần tự trong MỘT transaction read-only: cùng một connection nên mọi phần đọc cùng một
+     * snapshot (InnoDB REPEATABLE READ), không lệch nhau khi có thay đổi xen giữa.
+     * Số lượng đếm bằng GROUP BY status trong DB, danh sách chỉ lấy dashboardListSize việc chưa xong có deadline
+     * gần nhất (ORDER BY deadline LIMIT): không load toàn bộ Task/Action của Staff.
+     */
+    @Transactional(readOnly = true)
+    public PersonalDashboard getDashboard(Long staffId) {
+        LocalDate today = LocalDate.now();
+        LocalDate soon = today.plusDays(dueSoonDays);
+        PersonalDashboard dashboard = new PersonalDashboard();
+        dashboard.setPlans(planRepository.findPlansByParticipant(staffId).stream()
+                .map(this::toPlanDTO).collect(Collectors.toList()));
+
+        List<StatusDeadlineCount> taskCounts = taskRepository.countByExecutor(staffId, today, soon);
+        dashboard.setTaskTotal(applyCounts(taskCounts, dashboard.getTaskStatusCounts(), dashboard.getTaskDeadlines()));
+        dashboard.setTasks(taskRepository.findOpenTasksByExecutor(staffId, CLOSED, Limit.of(dashboardListSize)).stream()
+                .map(this::toTaskDTO).collect(Collectors.toList()));
+
+        List<StatusDeadlineCount> actionCounts = actionRepository.countByExecutor(staffId, today, soon);
+        dashboard.setActionTotal(applyCounts(actionCounts, dashboard.getActionStatusCounts(), dashboard.getActionDeadlines()));
+        dashboard.setActions(actionRepository.findOpenActionsByExecutor(staffId, CLOSED, Limit.of(dashboardListSize)).stream()
+                .map(this::toActionDTO).collect(Collectors.toList()));
+        return dashboard;
+    }
+
+    /** * 5. Cập nhật trạng thái Action
      * Thay đổi: Dùng TaskStatus (PENDING <-> COMPLETED)
      */
     @Transactional
     public void updateActionStatus(Long actionId, Long staffId, TaskStatus newStatus) {
-        // Check Action tồn tại
+        // Check Action tồn tại, khóa dòng tới hết transaction: hai lần đổi status đồng thời không cùng đọc
+        // status cũ rồi cộng completedDelta hai lần
+        actionRepository.lockById(actionId)
+                .orElseThrow(() -> new IllegalArgumentException("Action not found"));
         Action action = actionRepository.findById(actionId)
                 .orElseThrow(() -> new IllegalArgumentException("Action not found"));
 
@@ -62,9 +115,44 @@ public class PersonalWorkService {
             throw new SecurityException("User is not assigned to this action");
         }
 
-        // Update status
+        // Update status + bộ đếm Action COMPLETED của Task (cùng transaction)
+        int completedDelta = (newStatus == TaskStatus.COMPLETED ? 1 : 0) - (action.getStatus() == TaskStatus.COMPLETED ? 1 : 0);
         action.setStatus(newStatus);
+        action.setStatusBeforeOverdue(null); // chỉ còn ý nghĩa với OVERDUE do OverdueSweeper đặt
         actionRepository.save(action);
+        if (completedDelta != 0) {
+            taskRepository.adjustActionCounters(action.getTaskId(), 0, completedDelta);
+            planRollupService.touchTask(action.getTaskId());
+        }
+        Long planId = planVersionService.bumpForTask(action.getTaskId());
+        taskChangeHub.publish(TaskChangeType.ACTION_STATUS, action.getTaskId(), planId, actionId);
+        if (completedDelta != 0) {
+            taskChangeHub.publish(TaskChangeType.PROGRESS, action.getTaskId(), planId, actionId);
+        }
+    }
+
+    // --- DASHBOARD HELPERS ---
+
+    // Việc đã xong: không tính vào mốc deadline, không vào danh sách
+    private static final List<TaskStatus> CLOSED = List.of(TaskStatus.COMPLETED, TaskStatus.CANCELLED);
+
+    // Ghi số lượng theo status (đủ mọi TaskStatus, kể cả 0) và theo mốc deadline (chỉ việc chưa xong), trả về tổng
+    private static int applyCounts(List<StatusDeadlineCount> rows, Map<TaskStatus, Integer> counts,
+                                   PersonalDashboard.DeadlineBuckets buckets) {
+        for (TaskStatus s : TaskStatus.values()) counts.put(s, 0);
+        long total = 0;
+        for (StatusDeadlineCount row : rows) {
+            total += row.getTotal();
+            if (row.getStatus() != null) counts.put(row.getStatus(), (int) row.getTotal());
+            if (CLOSED.contains(row.getStatus())) continue;
+            buckets.setOverdue(buckets.getOverdue() + (int) row.getOverdue());
+            buckets.setDueToday(buckets.getDueToday() + (int) row.getDueToday());
+            buckets.setDueSoon(buckets.getDueSoon() + (int) row.getDueSoon());
+            buckets.setNoDeadline(buckets.getNoDeadline() + (int) row.getNoDeadline());
+            buckets.setLater(buckets.getLater() + (int) (row.getTotal() - row.getOverdue() - row.getDueToday()
+                    - row.getDueSoon() - row.getNoDeadline()));
+        }
+        return (int) total;
     }
 
     // --- MAPPERS CHUẨN (Khớp với file Entity/DTO bạn gửi) ---
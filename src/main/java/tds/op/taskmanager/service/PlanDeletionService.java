@@ -0,0 +1,200 @@
+package tds.op.taskmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tds.op.taskmanager.repository.PlanDeletionRepository;
+import tds.op.taskmanager.repository.PlanTaskGroupRepository;
+import tds.op.taskmanager.repository.TaskRepository;
+import tds.op.taskmanager.representation.PlanDeletionProgress;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Xóa nền toàn bộ dữ liệu của một Plan đã bị xóa: Task, Action, executor link, Comment, TaskEvent.
+ * - Yêu cầu xóa được ghi vào bảng plan_deletion cùng transaction với việc xóa Plan (register),
+ *   tiến độ cập nhật sau mỗi chunk -> node nào cũng đọc được (getProgress) và chạy tiếp được sau restart.
+ * - Mỗi chunk (chunk-size Task theo plan_id) chạy trong một transaction riêng: đánh dấu deleted rồi
+ *   TaskCascadeDeleter xóa set-based theo danh sách id -> transaction log và row lock luôn giới hạn.
+ * - Nghỉ pause-ms giữa các chunk để không chiếm bảng tasks liên tục.
+ * - Chỉ một node chạy nhờ lease "plan-delete" (SchedulerLeaseService), gia hạn sau mỗi chunk.
+ *   Node không lấy được lease bỏ qua, các Plan còn RUNNING được job định kỳ chạy tiếp.
+ * - Khi khởi động, các Plan đã xóa nhưng còn Task (dữ liệu cũ trước khi có plan_deletion) được đăng ký xóa tiếp.
+ */
+@Service
+public class PlanDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanDeletionService.class);
+
+    private static final String LEASE = "plan-delete";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    // Giữ tiến độ của các lần xóa đã kết thúc trong 1 giờ để client còn đọc được
+    private static final long FINISHED_RETENTION_HOURS = 1;
+
+    private final TaskRepository taskRepository;
+    private final TaskCascadeDeleter taskCascadeDeleter;
+    private final PlanTaskGroupRepository planTaskGroupRepository;
+    private final PlanDeletionRepository planDeletionRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final Duration leaseTtl;
+
+    // Trong một node chỉ một thread xóa (start() sau commit và job định kỳ có thể trùng nhau)
+    private final ReentrantLock running = new ReentrantLock();
+
+    public PlanDeletionService(TaskRepository taskRepository, TaskCascadeDeleter taskCascadeDeleter,
+                               PlanTaskGroupRepository planTaskGroupRepository, PlanDeletionRepository planDeletionRepository,
+                               SchedulerLeaseService schedulerLeaseService, TransactionTemplate transactionTemplate,
+                               @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                               @Value("${taskmanager.plan-delete.chunk-size:500}") int chunkSize,
+                               @Value("${taskmanager.plan-delete.pause-ms:100}") long pauseMillis,
+                               @Value("${taskmanager.plan-delete.lease-ms:300000}") long leaseMillis) {
+        this.taskRepository = taskRepository;
+        this.taskCascadeDeleter = taskCascadeDeleter;
+        this.planTaskGroupRepository = planTaskGroupRepository;
+        this.planDeletionRepository = planDeletionRepository;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.transactionTemplate = transactionTemplate;
+        this.taskExecutor = taskExecutor;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.leaseTtl = Duration.ofMillis(leaseMillis);
+    }
+
+    /**
+     * Ghi yêu cầu xóa nền dữ liệu của Plan (RUNNING). Gọi trong transaction xóa Plan để hai việc commit cùng nhau.
+     */
+    public void register(Long planId) {
+        PlanDeletionProgress p = planDeletionRepository.findById(planId).orElseGet(PlanDeletionProgress::new);
+        p.setPlanId(planId);
+        p.setState(PlanDeletionProgress.State.RUNNING);
+        p.setTotalTasks(taskRepository.countAllByPlanId(planId));
+        p.setDeletedTasks(0);
+        p.setStartedAt(LocalDateTime.now());
+        p.setFinishedAt(null);
+        p.setError(null);
+        planDeletionRepository.save(p);
+    }
+
+    /**
+     * Chạy ngay các yêu cầu xóa đang chờ trên thread nền (gọi sau khi transaction xóa Plan đã commit).
+     */
+    public void start() {
+        taskExecutor.execute(this::resumePending);
+    }
+
+    /**
+     * Tiến độ xóa của Plan. Không có thông tin (chưa xóa, hoặc đã kết thúc quá lâu) -> null.
+     */
+    public PlanDeletionProgress getProgress(Long planId) {
+        return planDeletionRepository.findById(planId).orElse(null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOrphaned() {
+        // Quét tasks theo plan_id chỉ một lần lúc khởi động, và chỉ trên node giữ lease
+        if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Long planId : taskRepository.findOrphanedPlanIds()) {
+                    PlanDeletionProgress p = planDeletionRepository.findById(planId).orElse(null);
+                    if (p != null && p.getState() == PlanDeletionProgress.State.RUNNING) continue;
+                    log.info("Resuming cascade delete for plan {}", planId);
+                    register(planId);
+                }
+            });
+        } finally {
+            schedulerLeaseService.release(LEASE);
+        }
+        start();
+    }
+
+    /**
+     * Xóa lần lượt các Plan đang RUNNING trong plan_deletion. Chạy định kỳ để tiếp tục phần việc
+     * của node đã dừng giữa chừng (restart, mất lease).
+     */
+    @Scheduled(fixedDelayString = "${taskmanager.plan-delete.interval-ms:60000}",
+            initialDelayString = "${taskmanager.plan-delete.interval-ms:60000}")
+    public void resumePending() {
+        if (!running.tryLock()) return;
+        try {
+            if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) return;
+            try {
+                transactionTemplate.executeWithoutResult(status -> planDeletionRepository
+                        .deleteFinishedBefore(LocalDateTime.now().minusHours(FINISHED_RETENTION_HOURS)));
+                while (true) {
+                    List<Long> planIds = planDeletionRepository.findRunningPlanIds(Limit.of(1));
+                    if (planIds.isEmpty() || !run(planIds.get(0))) break;
+                }
+            } finally {
+                schedulerLeaseService.release(LEASE);
+            }
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /**
+     * Xóa hết dữ liệu của một Plan. Trả về false nếu phải dừng (mất lease, bị interrupt):
+     * Plan vẫn RUNNING và được chạy tiếp ở lượt sau.
+     */
+    private boolean run(Long planId) {
+        try {
+            while (true) {
+                Integer deleted = transactionTemplate.execute(status -> {
+                    List<Long> ids = taskRepository.findAllIdsByPlanId(planId, chunkSize);
+                    if (ids.isEmpty()) return 0;
+                    taskRepository.markDeleted(ids);
+                    int purged = taskCascadeDeleter.purge(ids);
+                    planDeletionRepository.addDeletedTasks(planId, purged);
+                    return purged;
+                });
+                if (deleted == null || deleted < chunkSize) break;
+
+                if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) {
+                    log.warn("Plan {} cascade delete: lease lost, stopping", planId);
+                    return false;
+                }
+                Thread.sleep(pauseMillis);
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                planTaskGroupRepository.deleteByPlanId(planId);
+                finish(planId, PlanDeletionProgress.State.COMPLETED, null);
+            });
+            log.info("Plan {} cascade delete completed", planId);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (RuntimeException e) {
+            log.error("Plan {} cascade delete failed", planId, e);
+            String error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            transactionTemplate.executeWithoutResult(status -> finish(planId, PlanDeletionProgress.State.FAILED,
+                    error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error));
+            return true;
+        }
+    }
+
+    private void finish(Long planId, PlanDeletionProgress.State state, String error) {
+        planDeletionRepository.findById(planId).ifPresent(p -> {
+            p.setState(state);
+            p.setError(error);
+            p.setFinishedAt(LocalDateTime.now());
+        });
+    }
+}
@@ -0,0 +1,322 @@
+package tds.op.taskmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tds.op.taskmanager.repository.PlanRepository;
+import tds.op.taskmanager.repository.PlanRollupRepository;
+import tds.op.taskmanager.repository.TaskRepository;
+import tds.op.taskmanager.representation.Plan;
+import tds.op.taskmanager.representation.PlanRollup;
+import tds.op.taskmanager.representation.PlanRollupReport;
+import tds.op.taskmanager.representation.TaskStatus;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Giữ bảng plan_rollup (số liệu theo Plan / unit được giao / tháng) đồng bộ với tasks và phục vụ báo cáo.
+ * - Caller gọi touchTasks(taskIds) sau khi thay đổi Task hoặc Action của Task. Các Task được gom theo transaction;
+ *   sau khi commit, mỗi nhóm (plan, assignee) bị ảnh hưởng được tính lại bằng DELETE + INSERT ... SELECT
+ *   (range scan idx_tasks_assignee_plan) trong một transaction riêng, không quét cả Plan.
+ *   Không có transaction -> tính lại ngay.
+ * - Trước khi tính lại, nhóm bị khóa (dòng plan_rollup_group) theo thứ tự (plan, assignee) tăng dần: hai lần tính lại
+ *   cùng nhóm chạy lần lượt, và các transaction luôn khóa theo cùng một thứ tự.
+ * - INSERT ... SELECT khóa các dòng tasks đã đọc, nên vẫn có thể deadlock với transaction đang ghi tasks: InnoDB
+ *   rollback cả transaction tính lại, transaction đó được chạy lại từ đầu (tối đa max-attempts lần).
+ * - Task ghi thẳng bằng JDBC (SyntheticDataGenerator) hoặc dữ liệu cũ thì gọi rebuild() / startRebuild(),
+ *   chỉ chạy trên node giữ lease "plan-rollup-rebuild".
+ */
+@Service
+public class PlanRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanRollupService.class);
+
+    private static final String LEASE = "plan-rollup-rebuild";
+    private static final long RETRY_BACKOFF_MILLIS = 50;
+
+    // Thứ tự khóa nhóm: plan rồi assignee (chưa giao unit = 0 đứng đầu)
+    private static final Comparator<PlanRollupRepository.GroupKey> GROUP_ORDER =
+            Comparator.comparing(PlanRollupRepository.GroupKey::getPlanId)
+                    .thenComparing(key -> groupAssignee(key.getAssigneeId()));
+
+    private final PlanRollupRepository planRollupRepository;
+    private final PlanRepository planRepository;
+    private final TaskRepository taskRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final TaskExecutor taskExecutor;
+    private final int maxAttempts;
+    private final Duration leaseTtl;
+
+    // Tính lại sau commit: phải là transaction mới, không tham gia transaction vừa commit
+    private final TransactionTemplate refreshTransaction;
+
+    // Trong một node chỉ một lần build lại (lease cho phép node đang giữ lấy lại)
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public PlanRollupService(PlanRollupRepository planRollupRepository, PlanRepository planRepository,
+                             TaskRepository taskRepository, TransactionTemplate transactionTemplate,
+                             SchedulerLeaseService schedulerLeaseService,
+                             @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                             @Value("${taskmanager.rollup.max-attempts:3}") int maxAttempts,
+                             @Value("${taskmanager.rollup.lease-ms:300000}") long leaseMillis) {
+        this.planRollupRepository = planRollupRepository;
+        this.planRepository = planRepository;
+        this.taskRepository = taskRepository;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.taskExecutor = taskExecutor;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.leaseTtl = Duration.ofMillis(leaseMillis);
+        this.refreshTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.refreshTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // =========================================================================
+    // CẬP NHẬT
+    // =========================================================================
+
+    public void touchTask(Long taskId) {
+        if (taskId != null) touchTasks(List.of(taskId));
+    }
+
+    /**
+     * Đánh dấu các Task cần tính lại số liệu (kể cả Task vừa soft delete).
+     */
+    public void touchTasks(Collection<Long> taskIds) {
+        if (taskIds == null || taskIds.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(taskIds);
+            return;
+        }
+        PendingTasks pending = (PendingTasks) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingTasks();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.taskIds.addAll(taskIds);
+    }
+
+    // Tính lại các nhóm (plan, assignee) chứa các Task này
+    private void refresh(Collection<Long> taskIds) {
+        inNewTransaction(() -> {
+            List<PlanRollupRepository.GroupKey> keys = new ArrayList<>(planRollupRepository.findGroupKeysByTaskIds(taskIds));
+            keys.sort(GROUP_ORDER);
+            for (PlanRollupRepository.GroupKey key : keys) {
+                Long assigneeId = groupAssignee(key.getAssigneeId());
+                planRollupRepository.lockGroup(key.getPlanId(), assigneeId);
+                planRollupRepository.deleteGroup(key.getPlanId(), assigneeId);
+                if (key.getAssigneeId() == null) {
+                    planRollupRepository.insertUnassignedGroup(key.getPlanId());
+                } else {
+                    planRollupRepository.insertGroup(key.getPlanId(), key.getAssigneeId());
+                }
+            }
+        });
+    }
+
+    // Khóa mọi nhóm của Plan (cùng thứ tự với refresh) rồi tổng hợp lại cả Plan
+    private void rebuildPlan(Long planId) {
+        inNewTransaction(() -> {
+            List<PlanRollupRepository.GroupKey> keys = new ArrayList<>(planRollupRepository.findGroupKeysByPlanId(planId));
+            keys.sort(GROUP_ORDER);
+            for (PlanRollupRepository.GroupKey key : keys) {
+                planRollupRepository.lockGroup(planId, groupAssignee(key.getAssigneeId()));
+            }
+            planRollupRepository.deleteByPlanId(planId);
+            planRollupRepository.insertPlan(planId);
+        });
+    }
+
+    // Deadlock / hết thời gian chờ lock: transaction đã bị rollback toàn bộ, chạy lại từ đầu
+    private void inNewTransaction(Runnable work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                refreshTransaction.executeWithoutResult(status -> work.run());
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) throw e;
+                log.debug("plan_rollup refresh lost a lock conflict (attempt {}), retrying", attempt, e);
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Transactional
+    public void planDeleted(Long planId) {
+        if (planId != null) planRollupRepository.deleteByPlanId(planId);
+    }
+
+    /**
+     * Build lại toàn bộ từ tasks ngay trên thread gọi, mỗi Plan một transaction.
+     * Trả về số Plan đã build, hoặc -1 nếu một lần build lại khác đang chạy (node này hoặc node giữ lease).
+     */
+    public int rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return -1;
+        try {
+            if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) return -1;
+            try {
+                return rebuildAll();
+            } finally {
+                schedulerLeaseService.release(LEASE);
+            }
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Build lại toàn bộ trên thread nền. false nếu một lần build lại khác đang chạy.
+     */
+    public boolean startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return false;
+        if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) {
+            rebuilding.set(false);
+            return false;
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    log.info("plan_rollup rebuilt for {} plans", rebuildAll());
+                } catch (RuntimeException e) {
+                    log.error("plan_rollup rebuild failed", e);
+                } finally {
+                    schedulerLeaseService.release(LEASE);
+                    rebuilding.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            schedulerLeaseService.release(LEASE);
+            rebuilding.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    // Gọi khi đang giữ lease; gia hạn sau mỗi Plan, dừng nếu mất lease
+    private int rebuildAll() {
+        refreshTransaction.executeWithoutResult(status -> {
+            planRollupRepository.deleteOrphaned();
+            planRollupRepository.deleteOrphanedGroups();
+        });
+        List<Long> planIds = planRepository.findAll().stream().map(Plan::getId).toList();
+        int built = 0;
+        for (Long planId : planIds) {
+            rebuildPlan(planId);
+            built++;
+            if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) {
+                log.warn("plan_rollup rebuild: lease lost after {} of {} plans, stopping", built, planIds.size());
+                break;
+            }
+        }
+        return built;
+    }
+
+    // Dữ liệu cũ (trước khi có bảng plan_rollup): build một lần khi khởi động, trên node lấy được lease
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (planRollupRepository.count() == 0 && taskRepository.count() > 0) {
+            log.info("plan_rollup is empty, rebuilding from tasks");
+            rebuild();
+        }
+    }
+
+    // =========================================================================
+    // BÁO CÁO
+    // =========================================================================
+
+    /**
+     * Báo cáo của Plan, gộp từ các dòng plan_rollup (một query). Plan không tồn tại -> null.
+     */
+    @Transactional(readOnly = true)
+    public PlanRollupReport getReport(Long planId) {
+        if (planId == null || !planRepository.existsById(planId)) return null;
+        List<PlanRollup> rows = planRollupRepository.findByPlanId(planId);
+
+        PlanRollupReport report = new PlanRollupReport();
+        report.setPlanId(planId);
+        Map<Long, PlanRollup> byAssignee = new TreeMap<>();
+        Map<String, PlanRollup> byMonth = new TreeMap<>();
+        PlanRollup total = new PlanRollup();
+        rows.sort(Comparator.comparing(PlanRollup::getAssigneeId).thenComparing(PlanRollup::getMonth));
+        for (PlanRollup row : rows) {
+            add(total, row);
+            add(byAssignee.computeIfAbsent(row.getAssigneeId(), k -> new PlanRollup()), row);
+            add(byMonth.computeIfAbsent(row.getMonth(), k -> new PlanRollup()), row);
+            report.getCells().add(toEntry(row, row.getAssigneeId(), row.getMonth()));
+        }
+        report.setTotal(toEntry(total, null, null));
+        byAssignee.forEach((assigneeId, sum) -> report.getByAssignee().add(toEntry(sum, assigneeId, null)));
+        byMonth.forEach((month, sum) -> report.getByMonth().add(toEntry(sum, null, month)));
+        return report;
+    }
+
+    private static void add(PlanRollup sum, PlanRollup row) {
+        sum.setTaskCount(sum.getTaskCount() + row.getTaskCount());
+        sum.setPendingCount(sum.getPendingCount() + row.getPendingCount());
+        sum.setInProgressCount(sum.getInProgressCount() + row.getInProgressCount());
+        sum.setCompletedCount(sum.getCompletedCount() + row.getCompletedCount());
+        sum.setCancelledCount(sum.getCancelledCount() + row.getCancelledCount());
+        sum.setOverdueCount(sum.getOverdueCount() + row.getOverdueCount());
+        sum.setProgressSum(sum.getProgressSum() + row.getProgressSum());
+        sum.setExtendedCount(sum.getExtendedCount() + row.getExtendedCount());
+    }
+
+    private static PlanRollupReport.Entry toEntry(PlanRollup sum, Long assigneeId, String month) {
+        PlanRollupReport.Entry entry = new PlanRollupReport.Entry();
+        entry.setAssigneeId(assigneeId);
+        entry.setMonth(month);
+        entry.setTaskCount(sum.getTaskCount());
+        entry.getStatusCounts().put(TaskStatus.PENDING, sum.getPendingCount());
+        entry.getStatusCounts().put(TaskStatus.IN_PROGRESS, sum.getInProgressCount());
+        entry.getStatusCounts().put(TaskStatus.COMPLETED, sum.getCompletedCount());
+        entry.getStatusCounts().put(TaskStatus.CANCELLED, sum.getCancelledCount());
+        entry.getStatusCounts().put(TaskStatus.OVERDUE, sum.getOverdueCount());
+        entry.setAverageProgress(sum.getTaskCount() > 0 ? sum.getProgressSum() / sum.getTaskCount() : 0);
+        entry.setExtendedCount(sum.getExtendedCount());
+        entry.setOnTimeCount(sum.getTaskCount() - sum.getExtendedCount());
+        return entry;
+    }
+
+    private static Long groupAssignee(Long assigneeId) {
+        return assigneeId == null ? PlanRollup.UNASSIGNED : assigneeId;
+    }
+
+    // Các Task đã thay đổi trong một transaction; tính lại sau khi commit (transaction riêng, chạy lại được khi deadlock).
+    // Thay đổi gốc đã commit: lỗi ở đây chỉ được log, số liệu lệch được sửa bằng rebuild
+    private final class PendingTasks implements TransactionSynchronization {
+        private final Set<Long> taskIds = new HashSet<>();
+
+        @Override
+        public void afterCommit() {
+            if (taskIds.isEmpty()) return;
+            try {
+                refresh(taskIds);
+            } catch (RuntimeException e) {
+                log.error("plan_rollup refresh failed for {} tasks, run POST /api/plan/rollup/rebuild", taskIds.size(), e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PlanRollupService.this);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package tds.op.taskmanager.service;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import tds.op.taskmanager.repository.PlanRepository;
 import tds.op.taskmanager.representation.Plan;
 import tds.op.taskmanager.representation.PlanDTO;
+import tds.op.taskmanager.representation.PlanDeletionProgress;
+import tds.op.taskmanager.representation.PlanRollupReport;
 import tds.op.taskmanager.representation.UnitDTO;
 
 import java.util.List;
@@ -14,9 +17,16 @@ import java.util.stream.Collectors;
 public class PlanService {
 
     private final PlanRepository planRepository;
+    private final PlanDeletionService planDeletionService;
+    private final PlanVersionService planVersionService;
+    private final PlanRollupService planRollupService;
 
-    public PlanService(PlanRepository planRepository) {
+    public PlanService(PlanRepository planRepository, PlanDeletionService planDeletionService, PlanVersionService planVersionService,
+                       PlanRollupService planRollupService) {
         this.planRepository = planRepository;
+        this.planDeletionService = planDeletionService;
+        this.planVersionService = planVersionService;
+        this.planRollupService = planRollupService;
     }
 
     /** CREATE new plan */
@@ -53,6 +63,7 @@ public class PlanService {
     }
 
     /** UPDATE plan */
+    @Transactional
     public PlanDTO updatePlan(PlanDTO dto) {
         if (dto == null || dto.getId() == null) return null;
 
@@ -67,19 +78,41 @@ public class PlanService {
         if (dto.getUnit() != null) plan.setUnitId(dto.getUnit().getId());
 
         planRepository.save(plan);
+        // Tên/khoảng tháng của Plan nằm trong mọi TaskDTO của view
+        planVersionService.bump(plan.getId());
 
         return toDTO(plan);
     }
 
     /** DELETE plan */
+    @Transactional
     public boolean deletePlan(Long id) {
         Optional<Plan> plan = planRepository.findById(id);
         if (plan.isEmpty()) return false;
 
         planRepository.delete(plan.get());
+        planRollupService.planDeleted(id);
+        // Task, Action, Comment, Event của Plan được xóa nền theo chunk (xem getDeletionProgress)
+        planDeletionService.register(id);
+        TransactionHooks.afterCommit(planDeletionService::start);
         return true;
     }
 
+    /** Báo cáo tổng hợp theo unit được giao / tháng. Plan không tồn tại -> null */
+    public PlanRollupReport getRollup(Long id) {
+        return planRollupService.getReport(id);
+    }
+
+    /** Bắt đầu build lại toàn bộ plan_rollup trên thread nền. false nếu đang có lần build lại khác */
+    public boolean rebuildRollups() {
+        return planRollupService.startRebuild();
+    }
+
+    /** Tiến độ xóa nền dữ liệu của Plan đã xóa. Không có -> null */
+    public PlanDeletionProgress getDeletionProgress(Long id) {
+        return planDeletionService.getProgress(id);
+    }
+
     /** Convert entity → DTO */
     private PlanDTO toDTO(Plan plan) {
         PlanDTO dto = new PlanDTO();
@@ -106,4 +139,14 @@ public class PlanService {
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
+
+    /** Plan do Unit này hoặc các Unit con cháu tạo ra (một query qua closure table) */
+    public List<PlanDTO> getPlansUnderUnit(Long unitId) {
+        return planRepository.findPlansOwnedUnderUnit(unitId).stream().map(this::toDTO).collect(Collectors.toList());
+    }
+
+    /** Plan mà Unit này hoặc các Unit con cháu được giao việc (một query qua closure table) */
+    public List<PlanDTO> findPlansAsMemberUnderUnit(Long unitId) {
+        return planRepository.findPlansAsMemberUnderUnit(unitId).stream().map(this::toDTO).collect(Collectors.toList());
+    }
 }
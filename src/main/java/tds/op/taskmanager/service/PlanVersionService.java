@@ -0,0 +1,72 @@
+package tds.op.taskmanager.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tds.op.taskmanager.repository.PlanRepository;
+import tds.op.taskmanager.repository.TaskRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Version nội dung của từng Plan (cột plan.content_version), dùng làm ETag cho các view theo Plan.
+ * - Mọi thay đổi Task, Action, Executor, Comment thuộc Plan gọi bump...() trong cùng transaction:
+ *   version mới chỉ được thấy khi dữ liệu đã commit, và không bao giờ giảm.
+ * - Thay đổi dữ liệu dùng chung hiển thị trong mọi view (tên Staff, Unit bị xóa) gọi bumpAll():
+ *   chỉ tăng một dòng directory_version (ETag = version của Plan + version directory), không lock các dòng plan.
+ * - Nên gọi bump ở cuối transaction: UPDATE giữ lock dòng plan tới khi commit.
+ * Controller đọc version TRƯỚC khi build view: thay đổi xen giữa chỉ làm lần poll sau tải lại, không gây dữ liệu cũ.
+ * etag() báo directory version cho StaffDirectory: cache Staff của node này được xóa nếu node khác đã đổi Staff.
+ */
+@Service
+public class PlanVersionService {
+
+    private final PlanRepository planRepository;
+    private final TaskRepository taskRepository;
+    private final StaffDirectory staffDirectory;
+
+    public PlanVersionService(PlanRepository planRepository, TaskRepository taskRepository, StaffDirectory staffDirectory) {
+        this.planRepository = planRepository;
+        this.taskRepository = taskRepository;
+        this.staffDirectory = staffDirectory;
+    }
+
+    /**
+     * Strong ETag của các view theo Plan (một lookup theo khóa chính). Plan không tồn tại -> null.
+     */
+    public String etag(Long planId) {
+        if (planId == null) return null;
+        String version = planRepository.findViewVersion(planId);
+        if (version == null) return null;
+        // version = "<content_version>-<directory_version>"
+        staffDirectory.onDirectoryVersion(Long.parseLong(version.substring(version.lastIndexOf('-') + 1)));
+        return "\"plan-" + planId + "-" + version + "\"";
+    }
+
+    @Transactional
+    public void bump(Long planId) {
+        if (planId != null) planRepository.incrementContentVersion(List.of(planId));
+    }
+
+    @Transactional
+    public void bump(Collection<Long> planIds) {
+        if (planIds != null && !planIds.isEmpty()) planRepository.incrementContentVersion(planIds);
+    }
+
+    /**
+     * Tăng version của Plan chứa Task, trả về planId (null nếu Task không thuộc Plan nào).
+     * Plan id được đọc bằng SELECT thường (không lock dòng task).
+     */
+    @Transactional
+    public Long bumpForTask(Long taskId) {
+        if (taskId == null) return null;
+        Long planId = taskRepository.findPlanIdById(taskId);
+        bump(planId);
+        return planId;
+    }
+
+    @Transactional
+    public void bumpAll() {
+        planRepository.incrementDirectoryVersion();
+    }
+}
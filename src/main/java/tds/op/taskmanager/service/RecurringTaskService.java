@@ -0,0 +1,177 @@
+package tds.op.taskmanager.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tds.op.taskmanager.repository.PlanRepository;
+import tds.op.taskmanager.repository.PlanTaskGroupRepository;
+import tds.op.taskmanager.repository.TaskExecutorRepository;
+import tds.op.taskmanager.repository.TaskRepository;
+import tds.op.taskmanager.representation.*;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Tạo hàng loạt một hạng mục công việc lặp lại (cùng uuid) cho mỗi tháng trong khoảng và mỗi Unit nhận.
+ * - Toàn bộ Task được insert bằng saveAll (JDBC batch, id cấp theo block từ id_generator),
+ *   executor link bằng một batch thứ hai (rewriteBatchedStatements=true -> MySQL gộp thành multi-row INSERT).
+ * - Các cặp (tháng, assignee) đã tồn tại với cùng uuid sẽ được bỏ qua, gọi lại request không tạo bản trùng.
+ * - Ngày bắt đầu/deadline của template được hiểu theo tháng tham chiếu (template.month, mặc định fromMonth)
+ *   và được dịch sang từng tháng tương ứng.
+ */
+@Service
+public class RecurringTaskService {
+
+    private final TaskRepository taskRepository;
+    private final TaskExecutorRepository taskExecutorRepository;
+    private final PlanRepository planRepository;
+    private final PlanVersionService planVersionService;
+    private final StaffInboxService staffInboxService;
+    private final PlanRollupService planRollupService;
+    private final PlanTaskGroupRepository planTaskGroupRepository;
+
+    public RecurringTaskService(TaskRepository taskRepository, TaskExecutorRepository taskExecutorRepository,
+                                PlanRepository planRepository, PlanVersionService planVersionService,
+                                StaffInboxService staffInboxService, PlanRollupService planRollupService,
+                                PlanTaskGroupRepository planTaskGroupRepository) {
+        this.taskRepository = taskRepository;
+        this.taskExecutorRepository = taskExecutorRepository;
+        this.planRepository = planRepository;
+        this.planVersionService = planVersionService;
+        this.staffInboxService = staffInboxService;
+        this.planRollupService = planRollupService;
+        this.planTaskGroupRepository = planTaskGroupRepository;
+    }
+
+    @Transactional
+    public RecurringTaskResult createRecurringTasks(RecurringTaskRequest request) {
+        TaskDTO template = request.getTemplate();
+        if (template == null || template.getPlan() == null || template.getPlan().getId() == null) {
+            throw new IllegalArgumentException("Template phải có plan");
+        }
+        Plan plan = planRepository.findById(template.getPlan().getId())
+                .orElseThrow(() -> new IllegalArgumentException("Plan not found"));
+
+        // 1. Validate khoảng tháng nằm trong Plan.startMonth..endMonth
+        YearMonth from = parseMonth(request.getFromMonth(), "fromMonth");
+        YearMonth to = parseMonth(request.getToMonth(), "toMonth");
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("fromMonth phải trước hoặc bằng toMonth");
+        }
+        if (plan.getStartMonth() != null && from.isBefore(parseMonth(plan.getStartMonth(), "plan.startMonth"))
+                || plan.getEndMonth() != null && to.isAfter(parseMonth(plan.getEndMonth(), "plan.endMonth"))) {
+            throw new IllegalArgumentException("Khoảng tháng nằm ngoài thời gian của Plan");
+        }
+
+        List<Long> assigneeIds = new ArrayList<>();
+        if (request.getAssigneeIds() != null) {
+            for (Long id : request.getAssigneeIds()) {
+                if (id != null && !assigneeIds.contains(id)) assigneeIds.add(id);
+            }
+        }
+        if (assigneeIds.isEmpty() && template.getAssignee() != null && template.getAssignee().getId() != null) {
+            assigneeIds.add(template.getAssignee().getId());
+        }
+        if (assigneeIds.isEmpty()) {
+            throw new IllegalArgumentException("Cần ít nhất một assignee");
+        }
+
+        String uuid = template.getUuid() == null || template.getUuid().isEmpty()
+                ? UUID.randomUUID().toString() : template.getUuid();
+        YearMonth reference = template.getMonth() == null || template.getMonth().isEmpty()
+                ? from : parseMonth(template.getMonth(), "template.month");
+
+        // 2. Các (tháng, assignee) đã có với uuid này trong Plan -> bỏ qua
+        Set<String> existing = new HashSet<>();
+        for (Task t : taskRepository.findByPlanIdAndUuidIn(plan.getId(), List.of(uuid))) {
+            existing.add(key(t.getMonth(), t.getAssigneeId()));
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        for (YearMonth m = from; !m.isAfter(to); m = m.plusMonths(1)) {
+            long shift = ChronoUnit.MONTHS.between(reference, m);
+            LocalDate start = shiftDate(template.getInitialStartDate(), shift);
+            LocalDate deadline = shiftDate(template.getInitialDeadline(), shift);
+            for (Long assigneeId : assigneeIds) {
+                if (existing.contains(key(m.toString(), assigneeId))) continue;
+                Task task = new Task();
+                task.setUuid(uuid);
+                task.setName(template.getName());
+                task.setDescription(template.getDescription());
+                task.setMonth(m.toString());
+                task.setInitialStartDate(start);
+                task.setInitialDeadline(deadline);
+                task.setCurrentDeadline(deadline);
+                task.setPlanId(plan.getId());
+                task.setParentTaskId(idOf(template.getParentTask()));
+                task.setAssignerId(idOf(template.getAssigner()));
+                task.setAssigneeId(assigneeId);
+                task.setStatus(TaskStatus.PENDING);
+                task.setProgress(0.0);
+                tasks.add(task);
+            }
+        }
+
+        RecurringTaskResult result = new RecurringTaskResult();
+        result.setUuid(uuid);
+        if (tasks.isEmpty()) return result;
+
+        // 3. Batch insert Task (id đã được cấp sẵn từ id_generator, không cần đọc lại)
+        for (Task saved : taskRepository.saveAll(tasks)) {
+            result.getTaskIds().add(saved.getId());
+        }
+        planTaskGroupRepository.insertIfAbsent(plan.getId(), uuid, template.getName() == null ? "" : template.getName());
+
+        // 4. Batch insert executor link cho từng Task mới
+        List<Long> executorIds = new ArrayList<>();
+        if (template.getExecutors() != null) {
+            for (StaffDTO s : template.getExecutors()) {
+                if (s != null && s.getId() != null && !executorIds.contains(s.getId())) executorIds.add(s.getId());
+            }
+        }
+        if (!executorIds.isEmpty()) {
+            List<TaskExecutor> links = new ArrayList<>(result.getTaskIds().size() * executorIds.size());
+            for (Long taskId : result.getTaskIds()) {
+                for (Long executorId : executorIds) {
+                    TaskExecutor te = new TaskExecutor();
+                    te.setTaskId(taskId);
+                    te.setExecutorId(executorId);
+                    links.add(te);
+                }
+            }
+            taskExecutorRepository.saveAll(links);
+            staffInboxService.tasksAssigned(result.getTaskIds());
+        }
+        planRollupService.touchTasks(result.getTaskIds());
+        planVersionService.bump(plan.getId());
+        return result;
+    }
+
+    private static YearMonth parseMonth(String value, String field) {
+        if (value == null) throw new IllegalArgumentException(field + " is required");
+        try {
+            return YearMonth.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " phải có dạng YYYY-MM");
+        }
+    }
+
+    private static String key(String month, Long assigneeId) {
+        return month + "|" + assigneeId;
+    }
+
+    private static LocalDate shiftDate(LocalDate date, long months) {
+        return date == null ? null : date.plusMonths(months);
+    }
+
+    private static Long idOf(UnitDTO unit) {
+        return unit == null ? null : unit.getId();
+    }
+
+    private static Long idOf(TaskDTO task) {
+        return task == null ? null : task.getId();
+    }
+}
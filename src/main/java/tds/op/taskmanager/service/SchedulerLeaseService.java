@@ -0,0 +1,54 @@
+package tds.op.taskmanager.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tds.op.taskmanager.repository.SchedulerLeaseRepository;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Lease trong DB (bảng scheduler_lease) để job nền chỉ chạy trên một node khi scale out.
+ * - tryAcquire() lấy lease hoặc gia hạn lease đang giữ. Job dài nên gọi lại giữa các chunk,
+ *   và dừng nếu không gia hạn được (node khác đã lấy vì lease hết hạn).
+ * - Hạn lease tính theo đồng hồ của node: ttl cần lớn hơn nhiều so với độ lệch giờ giữa các node.
+ * - Mỗi job cần sẵn một dòng trong scheduler_lease (thêm bằng migration).
+ * Mỗi lần gọi là một transaction riêng và commit ngay, không phụ thuộc transaction của job.
+ */
+@Service
+public class SchedulerLeaseService {
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final String owner = hostName() + ":" + UUID.randomUUID();
+
+    public SchedulerLeaseService(SchedulerLeaseRepository schedulerLeaseRepository) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean tryAcquire(String name, Duration ttl) {
+        LocalDateTime now = LocalDateTime.now();
+        return schedulerLeaseRepository.tryAcquire(name, owner, now, now.plus(ttl)) == 1;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void release(String name) {
+        schedulerLeaseRepository.release(name, owner);
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown-host";
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package tds.op.taskmanager.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Đếm số câu SQL, số dòng đọc được và thời gian chờ DB của thread hiện tại (dữ liệu do CountingDataSource ghi vào).
+ * - start() mở một Scope; mọi JDBC call trên thread này cho tới khi close() được cộng vào Scope đó.
+ * - Scope lồng nhau được: số liệu cộng vào tất cả Scope đang mở (VD: test đo một request, interceptor cũng đo request đó).
+ * - Không có Scope nào đang mở -> không đếm (Flyway, job nền...).
+ * JDBC chạy trên thread khác chỉ được tính khi task được bọc bằng inheritScope() (FanOut làm việc này),
+ * nên số liệu trong Scope được cộng an toàn từ nhiều thread.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    public static Scope start() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Bọc task sẽ chạy trên thread khác để JDBC của nó được cộng vào Scope hiện tại của thread gọi.
+     */
+    static <T> Supplier<T> inheritScope(Supplier<T> task) {
+        Scope scope = CURRENT.get();
+        if (scope == null) return task;
+        return () -> {
+            Scope previous = CURRENT.get();
+            CURRENT.set(scope);
+            try {
+                return task.get();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    static void statementExecuted(long nanos) {
+        for (Scope s = CURRENT.get(); s != null; s = s.parent) {
+            s.statements.incrementAndGet();
+            s.nanos.addAndGet(nanos);
+        }
+    }
+
+    static void rowFetched(long nanos) {
+        for (Scope s = CURRENT.get(); s != null; s = s.parent) {
+            s.rows.incrementAndGet();
+            s.nanos.addAndGet(nanos);
+        }
+    }
+
+    static void fetchTime(long nanos) {
+        for (Scope s = CURRENT.get(); s != null; s = s.parent) {
+            s.nanos.addAndGet(nanos);
+        }
+    }
+
+    /**
+     * Số liệu JDBC từ lúc start() tới lúc close() (đọc được cả khi đang mở).
+     */
+    public static final class Scope implements AutoCloseable {
+        private final Scope parent;
+        private final AtomicLong statements = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private boolean closed;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public long getStatements() {
+            return statements.get();
+        }
+
+        public long getRows() {
+            return rows.get();
+        }
+
+        public long getNanos() {
+            return nanos.get();
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            // Scope con chưa đóng (lỗi lập trình) cũng bị gỡ cùng, tránh rò ThreadLocal
+            Scope current = CURRENT.get();
+            while (current != null && current != this) current = current.parent;
+            if (current == null) return;
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package tds.op.taskmanager.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tds.op.taskmanager.repository.StaffRepository;
+import tds.op.taskmanager.representation.Staff;
+import tds.op.taskmanager.representation.StaffDTO;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tra cứu Staff dùng chung cho tất cả các mapper (Task, Action, Comment, Event, Unit).
+ * - Cache giới hạn số phần tử (LRU xấp xỉ theo thời điểm truy cập), vượt max-size thì một thread loại bớt
+ *   các phần tử ít dùng nhất. Đọc không lock: các request không phải xếp hàng qua cache.
+ * - getAll(ids) chỉ chạy một query findAllById cho các id chưa có trong cache (hoặc đã hết hạn).
+ * - StaffService.updateStaff / deleteStaff gọi invalidate(id) sau commit trên node xử lý request.
+ *   Node khác thấy thay đổi qua directory_version (PlanVersionService.etag gọi onDirectoryVersion, xóa cache
+ *   trước khi build view theo ETag mới) và qua max-age của từng phần tử.
+ * - Cache chỉ dùng cho đọc (hiển thị). Kiểm tra tồn tại trước khi ghi link dùng existingIds() (luôn đọc DB),
+ *   vì cache của node này có thể còn giữ Staff đã bị xóa trên node khác.
+ * Luôn trả về bản copy của StaffDTO để caller có thể sửa DTO mà không ảnh hưởng cache.
+ */
+@Service
+public class StaffDirectory {
+
+    private final StaffRepository staffRepository;
+    private final int maxSize;
+    private final long maxAgeMillis;
+    private final ConcurrentHashMap<Long, Entry> cache = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // Tăng mỗi lần invalidate; kết quả load từ DB trong lúc có invalidate sẽ không được giữ trong cache
+    private final AtomicLong generation = new AtomicLong();
+    // directory_version lớn nhất đã thấy
+    private final AtomicLong directoryVersion = new AtomicLong(Long.MIN_VALUE);
+
+    public StaffDirectory(StaffRepository staffRepository,
+                          @Value("${taskmanager.staff-cache.max-size:10000}") int maxSize,
+                          @Value("${taskmanager.staff-cache.max-age-seconds:300}") long maxAgeSeconds) {
+        this.staffRepository = staffRepository;
+        this.maxSize = maxSize;
+        this.maxAgeMillis = maxAgeSeconds * 1000L;
+    }
+
+    /**
+     * Lấy một Staff theo id. Không tồn tại -> null.
+     */
+    public StaffDTO get(Long id) {
+        if (id == null) return null;
+        return getAll(List.of(id)).get(id);
+    }
+
+    /**
+     * Lấy nhiều Staff một lần. Id không tồn tại sẽ không có trong Map kết quả.
+     */
+    public Map<Long, StaffDTO> getAll(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) return new HashMap<>();
+
+        Map<Long, StaffDTO> result = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        long gen = generation.get();
+        long now = System.currentTimeMillis();
+        for (Long id : ids) {
+            if (id == null) continue;
+            Entry cached = cache.get(id);
+            if (cached != null && cached.expiresAt > now) {
+                cached.lastAccess = System.nanoTime();
+                result.put(id, copy(cached.dto));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) return result;
+
+        List<Staff> loaded = staffRepository.findAllById(missing);
+        for (Staff s : loaded) {
+            StaffDTO dto = toDTO(s);
+            if (generation.get() == gen) {
+                Entry entry = new Entry(dto, now + maxAgeMillis);
+                cache.put(s.getId(), entry);
+                // invalidate xen giữa lần kiểm tra và put -> bỏ phần tử vừa đưa vào
+                if (generation.get() != gen) cache.remove(s.getId(), entry);
+            }
+            result.put(s.getId(), copy(dto));
+        }
+        if (cache.size() > maxSize) evict();
+        return result;
+    }
+
+    /**
+     * Các id Staff đang tồn tại, đọc thẳng từ DB (không qua cache). Dùng cho thao tác ghi.
+     */
+    public Set<Long> existingIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) return new HashSet<>();
+        Set<Long> nonNull = new HashSet<>(ids);
+        nonNull.remove(null);
+        if (nonNull.isEmpty()) return nonNull;
+        return staffRepository.findExistingIds(nonNull);
+    }
+
+    /**
+     * Map danh sách id sang DTO, giữ nguyên thứ tự (và trùng lặp) đầu vào, bỏ qua id không tồn tại.
+     */
+    public List<StaffDTO> toDTOs(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) return new ArrayList<>();
+
+        Map<Long, StaffDTO> byId = getAll(ids);
+        List<StaffDTO> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            StaffDTO dto = byId.get(id);
+            if (dto != null) result.add(copy(dto));
+        }
+        return result;
+    }
+
+    public void invalidate(Long id) {
+        generation.incrementAndGet();
+        cache.remove(id);
+    }
+
+    /**
+     * Gọi với directory_version vừa đọc từ DB. Version tăng (Staff được sửa / xóa trên một node bất kỳ)
+     * -> bỏ toàn bộ cache, để view build sau đó không bao giờ cũ hơn ETag chứa version này.
+     */
+    public void onDirectoryVersion(long version) {
+        if (directoryVersion.getAndAccumulate(version, Math::max) < version) {
+            generation.incrementAndGet();
+            cache.clear();
+        }
+    }
+
+    // Chỉ một thread dọn tại một thời điểm; loại thêm 10% để không phải quét lại sau mỗi lần put
+    private void evict() {
+        if (!evictionLock.tryLock()) return;
+        try {
+            int excess = cache.size() - maxSize;
+            if (excess <= 0) return;
+            List<Map.Entry<Long, Entry>> entries = new ArrayList<>(cache.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            int toRemove = Math.min(entries.size(), excess + maxSize / 10);
+            for (int i = 0; i < toRemove; i++) {
+                Map.Entry<Long, Entry> e = entries.get(i);
+                cache.remove(e.getKey(), e.getValue());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry {
+        private final StaffDTO dto;
+        private final long expiresAt;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(StaffDTO dto, long expiresAt) {
+            this.dto = dto;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static StaffDTO toDTO(Staff s) {
+        StaffDTO dto = new StaffDTO();
+        dto.setId(s.getId());
+        dto.setName(s.getName());
+        dto.setEmail(s.getEmail());
+        dto.setPicture(s.getPicture());
+        return dto;
+    }
+
+    private static StaffDTO copy(StaffDTO s) {
+        StaffDTO dto = new StaffDTO();
+        dto.setId(s.getId());
+        dto.setName(s.getName());
+        dto.setEmail(s.getEmail());
+        dto.setPicture(s.getPicture());
+        return dto;
+    }
+}
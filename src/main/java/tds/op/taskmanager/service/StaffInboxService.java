@@ -0,0 +1,51 @@
+package tds.op.taskmanager.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tds.op.taskmanager.repository.StaffInboxRepository;
+
+import java.util.Collection;
+
+/**
+ * Giữ bảng staff_inbox (read model của /api/my-work) đồng bộ với TaskExecutor / ActionExecutor.
+ * - Gọi trong cùng transaction với thay đổi gốc, SAU khi đã lưu executor link: các INSERT ... SELECT đọc lại
+ *   task_executor / action_executor (Hibernate flush các entity đang chờ trước khi chạy native query).
+ * - Xóa Task (kể cả soft delete) xóa luôn dòng inbox, nên query đọc không cần lọc Task đã xóa.
+ * - Dữ liệu ghi thẳng bằng JDBC (SyntheticDataGenerator) thì gọi rebuild().
+ */
+@Service
+public class StaffInboxService {
+
+    private final StaffInboxRepository staffInboxRepository;
+
+    public StaffInboxService(StaffInboxRepository staffInboxRepository) {
+        this.staffInboxRepository = staffInboxRepository;
+    }
+
+    @Transactional
+    public void tasksAssigned(Collection<Long> taskIds) {
+        if (taskIds != null && !taskIds.isEmpty()) staffInboxRepository.insertForTasks(taskIds);
+    }
+
+    @Transactional
+    public void actionsAssigned(Collection<Long> actionIds) {
+        if (actionIds != null && !actionIds.isEmpty()) staffInboxRepository.insertForActions(actionIds);
+    }
+
+    @Transactional
+    public void tasksRemoved(Collection<Long> taskIds) {
+        if (taskIds != null && !taskIds.isEmpty()) staffInboxRepository.deleteByTaskIds(taskIds);
+    }
+
+    @Transactional
+    public void actionRemoved(Long taskId, Long actionId) {
+        if (taskId != null && actionId != null) staffInboxRepository.deleteByAction(taskId, actionId);
+    }
+
+    @Transactional
+    public void rebuild() {
+        staffInboxRepository.deleteAllRows();
+        staffInboxRepository.insertAllTaskAssignments();
+        staffInboxRepository.insertAllActionAssignments();
+    }
+}
@@ -14,9 +14,13 @@ import java.util.stream.Collectors;
 public class StaffService {
 
     private final StaffRepository staffRepository;
+    private final StaffDirectory staffDirectory;
+    private final PlanVersionService planVersionService;
 
-    public StaffService(StaffRepository staffRepository) {
+    public StaffService(StaffRepository staffRepository, StaffDirectory staffDirectory, PlanVersionService planVersionService) {
         this.staffRepository = staffRepository;
+        this.staffDirectory = staffDirectory;
+        this.planVersionService = planVersionService;
     }
 
     /**
@@ -51,6 +55,9 @@ public class StaffService {
         
         // Không set ID lại
         Staff updatedStaff = staffRepository.save(staff);
+        // Staff có thể là executor trong bất kỳ Plan nào
+        planVersionService.bumpAll();
+        TransactionHooks.afterCommit(() -> staffDirectory.invalidate(id));
         return toDTO(updatedStaff);
     }
 
@@ -70,6 +77,8 @@ public class StaffService {
     public void deleteStaff(Long id) {
         if(staffRepository.existsById(id)){
              staffRepository.deleteById(id);
+             planVersionService.bumpAll();
+             TransactionHooks.afterCommit(() -> staffDirectory.invalidate(id));
         }
     }
 
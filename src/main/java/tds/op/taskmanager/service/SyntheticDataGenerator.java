@@ -0,0 +1,441 @@
+package tds.op.taskmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tds.op.taskmanager.repository.PlanTaskGroupRepository;
+import tds.op.taskmanager.representation.TaskStatus;
+import tds.op.taskmanager.representation.UnitLevel;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Sinh dữ liệu giả lập quy mô lớn cho profile loadtest (chỉ chạy khi database còn trống).
+ * - Cây tổ chức đủ nhánh: độ sâu org-depth, mỗi unit có org-fan-out unit con.
+ * - Mỗi unit có staff-per-unit nhân viên (UnitStaff), khoảng 10% nhân viên thuộc thêm một unit khác.
+ * - Plan thuộc các unit không phải lá; mỗi Plan có series-per-plan đầu việc lặp lại theo từng tháng,
+ *   mỗi Task có thể được giao tiếp xuống unit con (chuỗi parentTaskId, tối đa delegation-depth cấp).
+ * - Action, comment (có reply), event sinh theo trung bình *-per-task.
+ * Cùng seed + cùng cấu hình -> cùng dữ liệu (kể cả id), để các lần đo có thể so sánh với nhau.
+ * Ghi bằng JDBC batch với id tự cấp, sau đó nâng id_generator, build lại unit_closure và cây tổ chức.
+ */
+@Service
+@Profile("loadtest")
+public class SyntheticDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final DateTimeFormatter COMMENT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UnitService unitService;
+    private final OrgTreeCache orgTreeCache;
+    private final IdGeneratorMigration idGeneratorMigration;
+    private final StaffInboxService staffInboxService;
+    private final PlanRollupService planRollupService;
+    private final PlanTaskGroupRepository planTaskGroupRepository;
+
+    private final boolean enabled;
+    private final long seed;
+    private final int orgDepth;
+    private final int orgFanOut;
+    private final int staffPerUnit;
+    private final int plans;
+    private final int seriesPerPlan;
+    private final YearMonth startMonth;
+    private final int months;
+    private final int delegationDepth;
+    private final int actionsPerTask;
+    private final int commentsPerTask;
+    private final int eventsPerTask;
+    private final int batchSize;
+
+    public SyntheticDataGenerator(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                  UnitService unitService, OrgTreeCache orgTreeCache,
+                                  IdGeneratorMigration idGeneratorMigration, StaffInboxService staffInboxService,
+                                  PlanRollupService planRollupService, PlanTaskGroupRepository planTaskGroupRepository,
+                                  @Value("${taskmanager.loadtest.generate:true}") boolean enabled,
+                                  @Value("${taskmanager.loadtest.seed:42}") long seed,
+                                  @Value("${taskmanager.loadtest.org-depth:4}") int orgDepth,
+                                  @Value("${taskmanager.loadtest.org-fan-out:6}") int orgFanOut,
+                                  @Value("${taskmanager.loadtest.staff-per-unit:5}") int staffPerUnit,
+                                  @Value("${taskmanager.loadtest.plans:200}") int plans,
+                                  @Value("${taskmanager.loadtest.series-per-plan:100}") int seriesPerPlan,
+                                  @Value("${taskmanager.loadtest.start-month:2025-01}") String startMonth,
+                                  @Value("${taskmanager.loadtest.months:12}") int months,
+                                  @Value("${taskmanager.loadtest.delegation-depth:2}") int delegationDepth,
+                                  @Value("${taskmanager.loadtest.actions-per-task:3}") int actionsPerTask,
+                                  @Value("${taskmanager.loadtest.comments-per-task:2}") int commentsPerTask,
+                                  @Value("${taskmanager.loadtest.events-per-task:1}") int eventsPerTask,
+                                  @Value("${taskmanager.loadtest.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.unitService = unitService;
+        this.orgTreeCache = orgTreeCache;
+        this.idGeneratorMigration = idGeneratorMigration;
+        this.staffInboxService = staffInboxService;
+        this.planRollupService = planRollupService;
+        this.planTaskGroupRepository = planTaskGroupRepository;
+        this.enabled = enabled;
+        this.seed = seed;
+        this.orgDepth = orgDepth;
+        this.orgFanOut = orgFanOut;
+        this.staffPerUnit = staffPerUnit;
+        this.plans = plans;
+        this.seriesPerPlan = seriesPerPlan;
+        this.startMonth = YearMonth.parse(startMonth);
+        this.months = months;
+        this.delegationDepth = delegationDepth;
+        this.actionsPerTask = actionsPerTask;
+        this.commentsPerTask = commentsPerTask;
+        this.eventsPerTask = eventsPerTask;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void generateIfEmpty() {
+        if (!enabled) return;
+        Long units = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM unit", Long.class);
+        if (units != null && units > 0) {
+            log.info("Synthetic data: database already has {} units, skipping generation", units);
+            return;
+        }
+        generate();
+    }
+
+    public void generate() {
+        long started = System.currentTimeMillis();
+        Run run = new Run(new Random(seed));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            run.units();
+            run.staff();
+            run.flushAll();
+        });
+        for (int p = 0; p < plans; p++) {
+            transactionTemplate.executeWithoutResult(status -> {
+                run.plan();
+                run.flushAll();
+            });
+        }
+
+        unitService.rebuildUnitClosure();
+        staffInboxService.rebuild();
+        transactionTemplate.executeWithoutResult(status -> {
+            planTaskGroupRepository.deleteAllRows();
+            planTaskGroupRepository.insertAllFromTasks();
+        });
+        planRollupService.rebuild();
+        idGeneratorMigration.reseed();
+        orgTreeCache.invalidate();
+        log.info("Synthetic data generated in {} ms: {}", System.currentTimeMillis() - started, run.counts());
+    }
+
+    /**
+     * Trạng thái của một lần sinh dữ liệu (id tiếp theo của từng bảng, cây tổ chức, batch đang chờ ghi).
+     */
+    private final class Run {
+        final Random random;
+
+        // Cây tổ chức theo index, thứ tự pre-order: cây con của i là [i, subtreeEnd[i])
+        final List<Long> unitIds = new ArrayList<>();
+        final List<int[]> unitChildren = new ArrayList<>();
+        int[] subtreeEnd;
+        long[][] unitStaff;
+        final List<Integer> branchUnits = new ArrayList<>(); // unit không phải lá (chủ Plan)
+
+        long unitId, staffId, unitStaffId, planId, taskId, taskExecutorId, actionId, actionExecutorId, commentId, eventId;
+
+        final Batch unitBatch = new Batch("INSERT INTO unit (id, parent_unit_id, name, head, level) VALUES (?, ?, ?, ?, ?)");
+        final Batch staffBatch = new Batch("INSERT INTO staff (id, name, email, picture) VALUES (?, ?, ?, ?)");
+        final Batch unitStaffBatch = new Batch("INSERT INTO unit_staff (id, unit_id, staff_id) VALUES (?, ?, ?)");
+        final Batch planBatch = new Batch("INSERT INTO plan (id, unit_id, name, start_month, end_month) VALUES (?, ?, ?, ?, ?)");
+        final Batch taskBatch = new Batch("INSERT INTO tasks (id, uuid, name, description, month, initial_start_date, " +
+                "actual_start_date, initial_deadline, current_deadline, end_date, plan_id, parent_task_id, assigner_id, " +
+                "assignee_id, status, progress, action_total, action_completed, deleted) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false)");
+        final Batch taskExecutorBatch = new Batch("INSERT INTO task_executor (id, task_id, executor_id) VALUES (?, ?, ?)");
+        final Batch actionBatch = new Batch("INSERT INTO action (id, task_id, name, description, deadline, status, is_done) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)");
+        final Batch actionExecutorBatch = new Batch("INSERT INTO action_executor (id, action_id, executor_id) VALUES (?, ?, ?)");
+        final Batch commentBatch = new Batch("INSERT INTO task_comment (id, task_id, owner_id, target_id, message, timestamp, epoch) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)");
+        final Batch eventBatch = new Batch("INSERT INTO task_event (id, task_id, note, prev_status, next_status, " +
+                "prev_deadline, next_deadline, created_date, created_by) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+
+        // Thứ tự flush theo khóa ngoại logic (không có FK thật, nhưng giữ cho dễ đọc khi debug)
+        final List<Batch> batches = List.of(unitBatch, staffBatch, unitStaffBatch, planBatch, taskBatch,
+                taskExecutorBatch, actionBatch, actionExecutorBatch, commentBatch, eventBatch);
+
+        Run(Random random) {
+            this.random = random;
+        }
+
+        // =========================================================================
+        // ORG TREE & STAFF
+        // =========================================================================
+
+        void units() {
+            addUnit(null, 0);
+            subtreeEnd = new int[unitIds.size()];
+            for (int i = unitIds.size() - 1; i >= 0; i--) {
+                int end = i + 1;
+                for (int c : unitChildren.get(i)) end = Math.max(end, subtreeEnd[c]);
+                subtreeEnd[i] = end;
+            }
+        }
+
+        // DFS để index của unit trùng thứ tự pre-order
+        private void addUnit(Long parentId, int depth) {
+            int index = unitIds.size();
+            long id = ++unitId;
+            unitIds.add(id);
+            unitChildren.add(new int[0]);
+
+            UnitLevel level = depth == 0 ? UnitLevel.FUNCTION : depth == orgDepth ? UnitLevel.TEAM : UnitLevel.DEPARTMENT;
+            unitBatch.add(id, parentId, "Unit " + id, "head" + id + "@example.com", level.name());
+
+            if (depth == orgDepth) return;
+            branchUnits.add(index);
+            int[] children = new int[orgFanOut];
+            for (int k = 0; k < orgFanOut; k++) {
+                children[k] = unitIds.size();
+                addUnit(id, depth + 1);
+            }
+            unitChildren.set(index, children);
+        }
+
+        void staff() {
+            int unitCount = unitIds.size();
+            List<List<Long>> members = new ArrayList<>(unitCount);
+            for (int u = 0; u < unitCount; u++) members.add(new ArrayList<>());
+
+            for (int u = 0; u < unitCount; u++) {
+                for (int k = 0; k < staffPerUnit; k++) {
+                    long id = ++staffId;
+                    staffBatch.add(id, "Staff " + id, "staff" + id + "@example.com", null);
+                    addMember(members, u, id);
+                    if (random.nextInt(10) == 0) {
+                        addMember(members, random.nextInt(unitCount), id);
+                    }
+                }
+            }
+
+            unitStaff = new long[unitCount][];
+            for (int u = 0; u < unitCount; u++) {
+                unitStaff[u] = members.get(u).stream().mapToLong(Long::longValue).toArray();
+            }
+        }
+
+        private void addMember(List<List<Long>> members, int unit, long staff) {
+            if (members.get(unit).contains(staff)) return;
+            members.get(unit).add(staff);
+            unitStaffBatch.add(++unitStaffId, unitIds.get(unit), staff);
+        }
+
+        // =========================================================================
+        // PLAN & TASK
+        // =========================================================================
+
+        void plan() {
+            int owner = branchUnits.get(random.nextInt(branchUnits.size()));
+            long id = ++planId;
+            planBatch.add(id, unitIds.get(owner), "Kế hoạch " + id, startMonth.toString(),
+                    startMonth.plusMonths(months - 1).toString());
+
+            for (int s = 0; s < seriesPerPlan; s++) {
+                // Mỗi cấp giao việc là một series riêng (uuid riêng, lặp lại đủ các tháng)
+                int chainLength = random.nextInt(delegationDepth + 1);
+                List<String> uuids = new ArrayList<>();
+                List<Integer> assignees = new ArrayList<>();
+                int assigner = owner;
+                int assignee = randomDescendant(owner);
+                for (int level = 0; level <= chainLength; level++) {
+                    uuids.add(new UUID(random.nextLong(), random.nextLong()).toString());
+                    assignees.add(assignee);
+                    if (unitChildren.get(assignee).length == 0) break;
+                    assigner = assignee;
+                    assignee = randomChild(assigner);
+                }
+                String name = "Công việc " + id + "-" + (s + 1);
+
+                for (int m = 0; m < months; m++) {
+                    Long parentTaskId = null;
+                    int from = owner;
+                    for (int level = 0; level < uuids.size(); level++) {
+                        parentTaskId = task(id, uuids.get(level), level == 0 ? name : name + " (cấp " + level + ")",
+                                startMonth.plusMonths(m), parentTaskId, from, assignees.get(level));
+                        from = assignees.get(level);
+                    }
+                }
+            }
+        }
+
+        private long task(long planId, String uuid, String name, YearMonth month, Long parentTaskId,
+                          int assigner, int assignee) {
+            long id = ++taskId;
+            LocalDate start = month.atDay(1);
+            LocalDate deadline = month.atDay(Math.min(25, month.lengthOfMonth()));
+            boolean extended = random.nextInt(10) == 0;
+            LocalDate currentDeadline = extended ? deadline.plusDays(7) : deadline;
+
+            TaskStatus status = randomStatus();
+            LocalDate actualStart = status == TaskStatus.PENDING ? null : start.plusDays(random.nextInt(5));
+            LocalDate endDate = status == TaskStatus.COMPLETED ? currentDeadline.minusDays(random.nextInt(10)) : null;
+            double progress = status == TaskStatus.COMPLETED ? 100 : status == TaskStatus.PENDING ? 0 : random.nextInt(100);
+
+            long[] members = unitStaff[assignee];
+            long[] executors = pick(members, 1 + random.nextInt(2));
+            for (long executor : executors) {
+                taskExecutorBatch.add(++taskExecutorId, id, executor);
+            }
+
+            // Action trước để counters của Task khớp với bảng action
+            int actionCount = around(actionsPerTask);
+            int completed = 0;
+            for (int a = 0; a < actionCount; a++) {
+                TaskStatus actionStatus = status == TaskStatus.COMPLETED ? TaskStatus.COMPLETED : randomStatus();
+                if (actionStatus == TaskStatus.COMPLETED) completed++;
+                long action = ++actionId;
+                actionBatch.add(action, id, "Action " + (a + 1), null,
+                        Date.valueOf(start.plusDays(random.nextInt(month.lengthOfMonth()))),
+                        actionStatus.name(), actionStatus == TaskStatus.COMPLETED);
+                actionExecutorBatch.add(++actionExecutorId, action, executors[random.nextInt(executors.length)]);
+            }
+
+            taskBatch.add(id, uuid, name, null, month.toString(), Date.valueOf(start), toDate(actualStart),
+                    Date.valueOf(deadline), Date.valueOf(currentDeadline), toDate(endDate), planId, parentTaskId,
+                    unitIds.get(assigner), unitIds.get(assignee), status.ordinal(), progress, actionCount, completed);
+
+            comments(id, start, members, unitStaff[assigner]);
+            events(id, start, status, extended ? deadline : null, currentDeadline, members);
+            return id;
+        }
+
+        private void comments(long taskId, LocalDate start, long[] assigneeStaff, long[] assignerStaff) {
+            int count = around(commentsPerTask);
+            LocalDateTime time = start.atTime(8, 0);
+            Long previous = null;
+            for (int c = 0; c < count; c++) {
+                long id = ++commentId;
+                time = time.plusMinutes(30 + random.nextInt(3 * 24 * 60));
+                long[] from = random.nextBoolean() ? assigneeStaff : assignerStaff;
+                Long target = previous != null && random.nextInt(3) == 0 ? previous : null;
+                commentBatch.add(id, taskId, from.length == 0 ? null : from[random.nextInt(from.length)], target,
+                        "Comment " + (c + 1), time.format(COMMENT_TIMESTAMP),
+                        time.toInstant(ZoneOffset.UTC).toEpochMilli());
+                previous = id;
+            }
+        }
+
+        private void events(long taskId, LocalDate start, TaskStatus status, LocalDate extendedFrom,
+                            LocalDate currentDeadline, long[] staff) {
+            int count = status == TaskStatus.PENDING ? 0 : around(eventsPerTask);
+            LocalDateTime time = start.atTime(9, 0);
+            TaskStatus prev = TaskStatus.PENDING;
+            for (int e = 0; e < count; e++) {
+                time = time.plusHours(1 + random.nextInt(72));
+                TaskStatus next = e == count - 1 ? status : TaskStatus.IN_PROGRESS;
+                eventBatch.add(++eventId, taskId, "Cập nhật trạng thái", prev.name(), next.name(), null, null,
+                        Timestamp.valueOf(time), staff.length == 0 ? null : staff[random.nextInt(staff.length)]);
+                prev = next;
+            }
+            if (extendedFrom != null) {
+                eventBatch.add(++eventId, taskId, "Gia hạn deadline", status.name(), status.name(),
+                        Date.valueOf(extendedFrom), Date.valueOf(currentDeadline),
+                        Timestamp.valueOf(extendedFrom.minus(2, ChronoUnit.DAYS).atTime(17, 0)),
+                        staff.length == 0 ? null : staff[random.nextInt(staff.length)]);
+            }
+        }
+
+        // =========================================================================
+        // HELPERS
+        // =========================================================================
+
+        private int randomDescendant(int unit) {
+            int size = subtreeEnd[unit] - unit;
+            return size <= 1 ? unit : unit + 1 + random.nextInt(size - 1);
+        }
+
+        private int randomChild(int unit) {
+            int[] children = unitChildren.get(unit);
+            return children[random.nextInt(children.length)];
+        }
+
+        // 40% COMPLETED, 30% IN_PROGRESS, 20% PENDING, 7% OVERDUE, 3% CANCELLED
+        private TaskStatus randomStatus() {
+            int r = random.nextInt(100);
+            if (r < 40) return TaskStatus.COMPLETED;
+            if (r < 70) return TaskStatus.IN_PROGRESS;
+            if (r < 90) return TaskStatus.PENDING;
+            if (r < 97) return TaskStatus.OVERDUE;
+            return TaskStatus.CANCELLED;
+        }
+
+        // Số ngẫu nhiên trong [0, 2 * mean], trung bình = mean
+        private int around(int mean) {
+            return mean <= 0 ? 0 : random.nextInt(2 * mean + 1);
+        }
+
+        private long[] pick(long[] values, int count) {
+            if (values.length <= count) return values;
+            long[] result = new long[count];
+            int start = random.nextInt(values.length);
+            for (int i = 0; i < count; i++) result[i] = values[(start + i) % values.length];
+            return result;
+        }
+
+        private Date toDate(LocalDate date) {
+            return date == null ? null : Date.valueOf(date);
+        }
+
+        void flushAll() {
+            for (Batch batch : batches) batch.flush();
+        }
+
+        String counts() {
+            return String.format("units=%d, staff=%d, unit_staff=%d, plans=%d, tasks=%d, task_executors=%d, " +
+                            "actions=%d, action_executors=%d, comments=%d, events=%d",
+                    unitId, staffId, unitStaffId, planId, taskId, taskExecutorId,
+                    actionId, actionExecutorId, commentId, eventId);
+        }
+    }
+
+    /**
+     * Gom các dòng INSERT, ghi bằng JdbcTemplate.batchUpdate mỗi batch-size dòng.
+     */
+    private final class Batch {
+        final String sql;
+        final List<Object[]> rows = new ArrayList<>();
+
+        Batch(String sql) {
+            this.sql = sql;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            if (rows.size() >= batchSize) flush();
+        }
+
+        void flush() {
+            if (rows.isEmpty()) return;
+            jdbcTemplate.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+}
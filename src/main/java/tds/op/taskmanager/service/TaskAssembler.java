@@ -0,0 +1,179 @@
+package tds.op.taskmanager.service;
+
+import org.springframework.stereotype.Service;
+import tds.op.taskmanager.repository.*;
+import tds.op.taskmanager.representation.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk assembler: Task (entity) -> TaskDTO.
+ * Thay vì mỗi Task chạy ~6 query (plan, assigner, assignee, parent, executors, progress),
+ * assembler prefetch toàn bộ dữ liệu tham chiếu của cả danh sách bằng một số query cố định
+ * (IN (...)) rồi ghép DTO hoàn toàn trong bộ nhớ. Progress đọc từ bộ đếm Action trên Task.
+ * Số query không phụ thuộc vào số lượng Task. Các query prefetch độc lập với nhau nên chạy song song qua FanOut
+ * (trong transaction FanOut chạy tuần tự trên thread gọi).
+ */
+@Service
+public class TaskAssembler {
+
+    private final TaskRepository taskRepository;
+    private final TaskExecutorRepository taskExecutorRepository;
+    private final StaffDirectory staffDirectory;
+    private final UnitRepository unitRepository;
+    private final PlanRepository planRepository;
+    private final ActionService actionService;
+    private final FanOut fanOut;
+
+    public TaskAssembler(TaskRepository taskRepository, TaskExecutorRepository taskExecutorRepository, StaffDirectory staffDirectory, UnitRepository unitRepository, PlanRepository planRepository, ActionService actionService, FanOut fanOut) {
+        this.taskRepository = taskRepository;
+        this.taskExecutorRepository = taskExecutorRepository;
+        this.staffDirectory = staffDirectory;
+        this.unitRepository = unitRepository;
+        this.planRepository = planRepository;
+        this.actionService = actionService;
+        this.fanOut = fanOut;
+    }
+
+    public TaskDTO toDTO(Task task) {
+        return toDTOs(List.of(task)).get(0);
+    }
+
+    /**
+     * Convert danh sách Task sang DTO, giữ nguyên thứ tự đầu vào.
+     */
+    public List<TaskDTO> toDTOs(List<Task> tasks) {
+        if (tasks == null || tasks.isEmpty()) return new ArrayList<>();
+
+        // 1. Gom toàn bộ ID tham chiếu
+        Set<Long> taskIds = new HashSet<>();
+        Set<Long> planIds = new HashSet<>();
+        Set<Long> unitIds = new HashSet<>();
+        Set<Long> parentIds = new HashSet<>();
+        for (Task t : tasks) {
+            taskIds.add(t.getId());
+            if (t.getPlanId() != null) planIds.add(t.getPlanId());
+            if (t.getAssignerId() != null) unitIds.add(t.getAssignerId());
+            if (t.getAssigneeId() != null) unitIds.add(t.getAssigneeId());
+            if (t.getParentTaskId() != null) parentIds.add(t.getParentTaskId());
+        }
+
+        // Task cha đã nằm trong danh sách thì không cần query lại
+        Map<Long, Task> parents = tasks.stream()
+                .filter(t -> parentIds.contains(t.getId()))
+                .collect(Collectors.toMap(Task::getId, t -> t, (a, b) -> a, HashMap::new));
+        Set<Long> missingParents = new HashSet<>(parentIds);
+        missingParents.removeAll(parents.keySet());
+
+        // 2. Prefetch (mỗi loại 1 query, các loại chạy song song)
+        Map<Long, Plan> plans;
+        Map<Long, Unit> units;
+        List<TaskExecutor> links;
+        try (FanOut.Scope scope = fanOut.open()) {
+            FanOut.Task<Map<Long, Plan>> planLookup = scope.fork(() -> byId(planIds, planRepository::findAllById, Plan::getId));
+            FanOut.Task<Map<Long, Unit>> unitLookup = scope.fork(() -> byId(unitIds, unitRepository::findAllById, Unit::getId));
+            FanOut.Task<Map<Long, Task>> parentLookup = scope.fork(() -> byId(missingParents, taskRepository::findAllById, Task::getId));
+            FanOut.Task<List<TaskExecutor>> linkLookup = scope.fork(() -> taskExecutorRepository.findByTaskIdIn(taskIds));
+            scope.join();
+
+            plans = planLookup.get();
+            units = unitLookup.get();
+            parents.putAll(parentLookup.get());
+            links = linkLookup.get();
+        }
+        // Staff phụ thuộc executor link nên lấy sau join (thường trúng cache StaffDirectory, không thêm query)
+        Map<Long, StaffDTO> staffs = staffDirectory.getAll(links.stream().map(TaskExecutor::getExecutorId).collect(Collectors.toSet()));
+        Map<Long, List<Long>> executorIdsByTask = links.stream()
+                .collect(Collectors.groupingBy(TaskExecutor::getTaskId, Collectors.mapping(TaskExecutor::getExecutorId, Collectors.toList())));
+
+        // 3. Ghép DTO trong bộ nhớ
+        List<TaskDTO> result = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            TaskDTO dto = mapBasicFields(task);
+
+            // Có Action -> dùng tiến độ tính toán, không có -> dùng tiến độ update thủ công
+            Double calculated = actionService.calculateProgress(task);
+            dto.setProgress(calculated != null ? calculated : task.getProgress());
+
+            if (task.getPlanId() != null) {
+                Plan p = plans.get(task.getPlanId());
+                if (p != null) dto.setPlan(convertPlanToDTO(p));
+            }
+            if (task.getAssignerId() != null) {
+                Unit u = units.get(task.getAssignerId());
+                if (u != null) dto.setAssigner(convertUnitToDTO(u));
+            }
+            if (task.getAssigneeId() != null) {
+                Unit u = units.get(task.getAssigneeId());
+                if (u != null) dto.setAssignee(convertUnitToDTO(u));
+            }
+            // Parent: chỉ lấy info cơ bản để tránh đệ quy ngược
+            if (task.getParentTaskId() != null) {
+                Task parent = parents.get(task.getParentTaskId());
+                if (parent != null) {
+                    TaskDTO pDto = new TaskDTO();
+                    pDto.setId(parent.getId());
+                    pDto.setName(parent.getName());
+                    dto.setParentTask(pDto);
+                }
+            }
+
+            List<Long> executorIds = executorIdsByTask.get(task.getId());
+            if (executorIds != null) {
+                List<StaffDTO> executors = new ArrayList<>();
+                for (Long sid : executorIds) {
+                    StaffDTO s = staffs.get(sid);
+                    if (s != null) executors.add(s);
+                }
+                dto.setExecutors(executors);
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+
+    // --- Helper Mappers ---
+
+    private static <T> Map<Long, T> byId(Set<Long> ids, Function<Set<Long>, List<T>> loader, Function<T, Long> idOf) {
+        if (ids.isEmpty()) return new HashMap<>();
+        return loader.apply(ids).stream().collect(Collectors.toMap(idOf, e -> e, (a, b) -> a, HashMap::new));
+    }
+
+    private TaskDTO mapBasicFields(Task task) {
+        TaskDTO dto = new TaskDTO();
+        dto.setId(task.getId());
+        dto.setUuid(task.getUuid());
+        dto.setName(task.getName());
+        dto.setDescription(task.getDescription());
+        dto.setMonth(task.getMonth());
+        dto.setStatus(task.getStatus());
+        dto.setProgress(task.getProgress());
+
+        dto.setInitialStartDate(task.getInitialStartDate());
+        dto.setActualStartDate(task.getActualStartDate());
+        dto.setInitialDeadline(task.getInitialDeadline());
+        dto.setCurrentDeadline(task.getCurrentDeadline());
+        dto.setEndDate(task.getEndDate());
+        return dto;
+    }
+
+    private PlanDTO convertPlanToDTO(Plan p) {
+        PlanDTO dto = new PlanDTO();
+        dto.setId(p.getId());
+        dto.setName(p.getName());
+        dto.setStartMonth(p.getStartMonth());
+        dto.setEndMonth(p.getEndMonth());
+        return dto;
+    }
+
+    private UnitDTO convertUnitToDTO(Unit u) {
+        UnitDTO dto = new UnitDTO();
+        dto.setId(u.getId());
+        dto.setName(u.getName());
+        dto.setHead(u.getHead());
+        dto.setLevel(u.getLevel());
+        return dto;
+    }
+}
@@ -0,0 +1,53 @@
+package tds.op.taskmanager.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tds.op.taskmanager.repository.*;
+
+import java.util.Collection;
+
+/**
+ * Xóa hẳn một nhóm Task đã soft delete cùng toàn bộ dữ liệu phụ thuộc bằng các câu DELETE ... WHERE task_id IN (...).
+ * Số câu lệnh cố định cho mỗi lần gọi, không phụ thuộc số Action/Comment/Event. Caller tự chia chunk
+ * để mỗi transaction chỉ khóa một lượng row giới hạn.
+ */
+@Service
+public class TaskCascadeDeleter {
+
+    private final TaskRepository taskRepository;
+    private final ActionRepository actionRepository;
+    private final ActionExecutorRepository actionExecutorRepository;
+    private final TaskExecutorRepository taskExecutorRepository;
+    private final TaskCommentRepository taskCommentRepository;
+    private final TaskEventRepository taskEventRepository;
+    private final StaffInboxRepository staffInboxRepository;
+
+    public TaskCascadeDeleter(TaskRepository taskRepository, ActionRepository actionRepository,
+                              ActionExecutorRepository actionExecutorRepository, TaskExecutorRepository taskExecutorRepository,
+                              TaskCommentRepository taskCommentRepository, TaskEventRepository taskEventRepository,
+                              StaffInboxRepository staffInboxRepository) {
+        this.taskRepository = taskRepository;
+        this.actionRepository = actionRepository;
+        this.actionExecutorRepository = actionExecutorRepository;
+        this.taskExecutorRepository = taskExecutorRepository;
+        this.taskCommentRepository = taskCommentRepository;
+        this.taskEventRepository = taskEventRepository;
+        this.staffInboxRepository = staffInboxRepository;
+    }
+
+    /**
+     * @return số Task đã xóa hẳn (chỉ tính các Task đã được đánh dấu deleted)
+     */
+    @Transactional
+    public int purge(Collection<Long> taskIds) {
+        if (taskIds.isEmpty()) return 0;
+        // Thứ tự: bảng con trước, Task sau cùng
+        actionExecutorRepository.deleteByTaskIds(taskIds);
+        actionRepository.deleteByTaskIds(taskIds);
+        taskExecutorRepository.deleteByTaskIds(taskIds);
+        taskCommentRepository.deleteByTaskIds(taskIds);
+        taskEventRepository.deleteByTaskIds(taskIds);
+        staffInboxRepository.deleteByTaskIds(taskIds);
+        return taskRepository.purgeDeleted(taskIds);
+    }
+}
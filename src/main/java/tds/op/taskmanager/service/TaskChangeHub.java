@@ -0,0 +1,310 @@
+package tds.op.taskmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tds.op.taskmanager.representation.TaskChange;
+import tds.op.taskmanager.representation.TaskChangeType;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hub phát thông báo thay đổi (TaskChange) tới các client SSE đăng ký theo Task hoặc theo Plan.
+ * - publish() được gọi trong transaction của thay đổi, thông báo chỉ được phát sau khi commit.
+ * - Mỗi subscriber có buffer riêng tối đa buffer-size thông báo. Client đọc chậm -> bỏ thông báo cũ nhất
+ *   (drop-oldest) và gửi sự kiện "overflow" kèm số thông báo bị bỏ để client tải lại toàn bộ.
+ * - Subscriber rảnh chỉ tốn một SseEmitter và một entry trong index, không giữ thread. Khi có thông báo,
+ *   subscriber xếp một lượt gửi (drain) vào pool cố định sender-threads thread (virtual thread khi
+ *   spring.threads.virtual.enabled=true trên Java 21+). Pool bận -> lượt gửi chờ trong hàng đợi (mỗi subscriber
+ *   tối đa một lượt), thông báo mới dồn vào buffer drop-oldest của subscriber: burst tới Plan có hàng nghìn
+ *   subscriber không tạo hàng nghìn thread. Một client đọc chậm giữ một sender thread tối đa write-timeout-ms.
+ *   Mỗi subscriber tối đa một lượt gửi tại một thời điểm nên thứ tự thông báo được giữ nguyên.
+ * - Một lần ghi bị chặn quá write-timeout-ms (client không đọc, TCP buffer đầy): subscriber bị gỡ khỏi hub,
+ *   thread đang ghi bị interrupt và emitter được đóng ngay khi lần ghi đó trả về.
+ * - Heartbeat định kỳ (SSE comment) để phát hiện kết nối đã chết và giữ kết nối qua proxy.
+ * Hub nằm trong bộ nhớ của từng instance: khi scale out, client chỉ nhận thay đổi commit trên instance đó.
+ */
+@Service
+public class TaskChangeHub implements DisposableBean {
+
+    private final Map<Long, Set<Subscriber>> byTask = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> byPlan = new ConcurrentHashMap<>();
+    private final Set<Subscriber> all = ConcurrentHashMap.newKeySet();
+
+    private final Executor sender;
+    private final ExecutorService platformPool;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long writeTimeoutNanos;
+    private final Counter dropped;
+    private final Counter writeTimeouts;
+
+    public TaskChangeHub(Environment environment, MeterRegistry meterRegistry,
+                         @Value("${taskmanager.sse.buffer-size:32}") int bufferSize,
+                         @Value("${taskmanager.sse.timeout-ms:1800000}") long timeoutMillis,
+                         @Value("${taskmanager.sse.write-timeout-ms:10000}") long writeTimeoutMillis,
+                         @Value("${taskmanager.sse.sender-threads:16}") int senderThreads) {
+        this.bufferSize = Math.max(1, bufferSize);
+        this.timeoutMillis = timeoutMillis;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("sse-");
+            virtual.setVirtualThreads(true);
+            this.sender = virtual;
+            this.platformPool = null;
+        } else {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sse-");
+            threadFactory.setDaemon(true);
+            // Hàng đợi không giới hạn nhưng mỗi subscriber chỉ có tối đa một lượt gửi chờ trong đó
+            int threads = Math.max(1, senderThreads);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+            pool.allowCoreThreadTimeOut(true);
+            this.platformPool = pool;
+            this.sender = pool;
+        }
+        Gauge.builder("taskmanager.sse.subscribers", all, Set::size).register(meterRegistry);
+        this.dropped = Counter.builder("taskmanager.sse.dropped").register(meterRegistry);
+        this.writeTimeouts = Counter.builder("taskmanager.sse.write-timeouts").register(meterRegistry);
+    }
+
+    // =========================================================================
+    // SUBSCRIBE
+    // =========================================================================
+
+    public SseEmitter subscribeTask(Long taskId) {
+        return subscribe(byTask, taskId);
+    }
+
+    public SseEmitter subscribePlan(Long planId) {
+        return subscribe(byPlan, planId);
+    }
+
+    private SseEmitter subscribe(Map<Long, Set<Subscriber>> index, Long key) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, index, key);
+        // Thêm trong compute() để không đua với close() của subscriber khác đang gỡ Set rỗng khỏi index
+        index.compute(key, (k, set) -> {
+            if (set == null) set = ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        all.add(subscriber);
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        // Gửi ngay một heartbeat để client (và proxy) nhận header, biết kết nối đã mở
+        subscriber.offer(null);
+        return emitter;
+    }
+
+    // =========================================================================
+    // PUBLISH
+    // =========================================================================
+
+    /**
+     * Phát thông báo sau khi transaction hiện tại commit (rollback -> không phát).
+     * planId null (Task không thuộc Plan) -> chỉ subscriber của Task nhận được.
+     */
+    public void publish(TaskChangeType type, Long taskId, Long planId, Long refId) {
+        if (taskId == null) return;
+        TransactionHooks.afterCommit(() -> publishNow(type, taskId, planId, refId));
+    }
+
+    /**
+     * Phát ngay, dùng khi dữ liệu đã commit (VD: TaskEventWriter sau khi ghi xong một batch).
+     */
+    void publishNow(TaskChangeType type, Long taskId, Long planId, Long refId) {
+        if (taskId == null) return;
+        TaskChange change = new TaskChange();
+        change.setType(type);
+        change.setTaskId(taskId);
+        change.setPlanId(planId);
+        change.setRefId(refId);
+        change.setEpoch(System.currentTimeMillis());
+        deliver(byTask.get(taskId), change);
+        if (planId != null) deliver(byPlan.get(planId), change);
+    }
+
+    private void deliver(Set<Subscriber> subscribers, TaskChange change) {
+        if (subscribers == null) return;
+        for (Subscriber s : subscribers) {
+            s.offer(change);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${taskmanager.sse.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Subscriber s : all) {
+            s.offer(null);
+        }
+    }
+
+    /**
+     * Gỡ các subscriber có lần ghi đang bị chặn quá write-timeout-ms.
+     */
+    @Scheduled(fixedDelayString = "${taskmanager.sse.write-check-ms:1000}")
+    public void abortStalledWrites() {
+        long now = System.nanoTime();
+        for (Subscriber s : all) {
+            s.abortIfStalled(now);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (Subscriber s : all) {
+            s.emitter.complete();
+        }
+        if (platformPool != null) platformPool.shutdownNow();
+    }
+
+    /**
+     * Một client SSE. Các field không final được bảo vệ bởi lock của chính Subscriber.
+     * offer(null) là heartbeat: chỉ bật cờ, không chiếm chỗ trong buffer.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Map<Long, Set<Subscriber>> index;
+        private final Long key;
+        private ArrayDeque<TaskChange> buffer; // Tạo khi có thông báo đầu tiên
+        private boolean heartbeatDue;
+        private int droppedCount;
+        private boolean draining;
+        private boolean closed;
+        // Lần ghi đang chạy (0 = không ghi), đọc bởi abortStalledWrites()
+        private volatile long writeStartedAt;
+        private volatile Thread writer;
+        private volatile boolean timedOut;
+
+        Subscriber(SseEmitter emitter, Map<Long, Set<Subscriber>> index, Long key) {
+            this.emitter = emitter;
+            this.index = index;
+            this.key = key;
+        }
+
+        void offer(TaskChange change) {
+            synchronized (this) {
+                if (closed) return;
+                if (change == null) {
+                    // Đang có thông báo chờ gửi thì không cần heartbeat
+                    if (draining || (buffer != null && !buffer.isEmpty())) return;
+                    heartbeatDue = true;
+                } else {
+                    if (buffer == null) buffer = new ArrayDeque<>(Math.min(bufferSize, 8));
+                    if (buffer.size() >= bufferSize) {
+                        buffer.pollFirst();
+                        droppedCount++;
+                        dropped.increment();
+                    }
+                    buffer.addLast(change);
+                }
+                if (draining) return;
+                draining = true;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                TaskChange next;
+                int lost;
+                boolean ping;
+                synchronized (this) {
+                    if (closed) {
+                        draining = false;
+                        break;
+                    }
+                    next = buffer == null ? null : buffer.pollFirst();
+                    lost = droppedCount;
+                    droppedCount = 0;
+                    ping = heartbeatDue && next == null && lost == 0;
+                    heartbeatDue = false;
+                    if (next == null && lost == 0 && !ping) {
+                        draining = false;
+                        return;
+                    }
+                }
+                Thread.interrupted();
+                writer = Thread.currentThread();
+                writeStartedAt = System.nanoTime();
+                try {
+                    if (ping) {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    }
+                    if (lost > 0) {
+                        emitter.send(SseEmitter.event().name("overflow").data(lost));
+                    }
+                    if (next != null) {
+                        emitter.send(SseEmitter.event()
+                                .name(next.getType().name())
+                                .data(next, MediaType.APPLICATION_JSON));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Client đã ngắt kết nối, emitter đã complete, hoặc lần ghi bị interrupt do quá write-timeout-ms
+                    close();
+                    emitter.completeWithError(e);
+                    return;
+                } finally {
+                    writeStartedAt = 0;
+                    writer = null;
+                    Thread.interrupted(); // Không để cờ interrupt của abortIfStalled() sót lại trên thread của pool
+                }
+            }
+            // Bị gỡ do quá write-timeout-ms nhưng lần ghi vẫn trả về bình thường
+            if (timedOut) emitter.complete();
+        }
+
+        /**
+         * Không gọi được emitter ở đây: emitter giữ lock trong suốt lần ghi đang bị chặn.
+         * Gỡ subscriber rồi interrupt thread đang ghi, thread đó tự đóng emitter khi lần ghi trả về.
+         */
+        void abortIfStalled(long now) {
+            long started = writeStartedAt;
+            if (started == 0 || now - started < writeTimeoutNanos) return;
+            Thread t = writer;
+            timedOut = true;
+            close();
+            writeTimeouts.increment();
+            if (t != null) t.interrupt();
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                buffer = null;
+            }
+            all.remove(this);
+            index.computeIfPresent(key, (k, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+}
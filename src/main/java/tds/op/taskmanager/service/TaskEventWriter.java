@@ -0,0 +1,257 @@
+package tds.op.taskmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tds.op.taskmanager.repository.TaskEventRepository;
+import tds.op.taskmanager.representation.TaskChangeType;
+import tds.op.taskmanager.representation.TaskEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghi TaskEvent (audit log) theo batch thay vì từng dòng trong mỗi service call.
+ * Event của một transaction được gom trong bộ nhớ, rồi ghi bằng saveAll: Hibernate gửi một JDBC batch
+ * (hibernate.jdbc.batch_size), driver MySQL gộp thành INSERT nhiều dòng (rewriteBatchedStatements=true).
+ * Hai chế độ (taskmanager.task-events.mode):
+ * - DURABLE (mặc định): ghi ngay trước commit, trong cùng transaction với thay đổi nghiệp vụ
+ *   (đủ batch-size event thì ghi sớm). Commit thành công = event đã nằm trong DB. Gọi ngoài transaction ->
+ *   ghi ngay trong transaction riêng, INSERT lỗi được ném lại cho caller (không bỏ event trong im lặng).
+ * - RELAXED: sau commit, event vào hàng đợi giới hạn queue-capacity; một thread nền ghi từng batch
+ *   trong transaction riêng. Request không chờ INSERT, nhưng event còn trong hàng đợi sẽ mất nếu process chết.
+ *   Hàng đợi đầy -> thread gọi tự ghi batch của mình (không bỏ event). Chỉ ở chế độ này, batch ghi lỗi
+ *   được log, đếm (taskmanager.task-events.failed) rồi bỏ qua.
+ * Transaction rollback -> không ghi event nào. Thông báo SSE TASK_EVENT chỉ phát sau khi event đã được ghi.
+ */
+@Service
+public class TaskEventWriter implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskEventWriter.class);
+
+    public enum Mode { DURABLE, RELAXED }
+
+    private final TaskEventRepository taskEventRepository;
+    private final TaskChangeHub taskChangeHub;
+    private final TransactionTemplate writeTransaction;
+    private final Mode mode;
+    private final int batchSize;
+
+    // Chỉ dùng ở chế độ RELAXED
+    private final BlockingQueue<Pending> queue;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final Counter written;
+    private final Counter failed;
+    private final Counter callerRuns;
+    private final Timer writeTimer;
+
+    public TaskEventWriter(TaskEventRepository taskEventRepository, TaskChangeHub taskChangeHub,
+                           TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                           @Value("${taskmanager.task-events.mode:DURABLE}") Mode mode,
+                           @Value("${taskmanager.task-events.batch-size:200}") int batchSize,
+                           @Value("${taskmanager.task-events.queue-capacity:10000}") int queueCapacity) {
+        this.taskEventRepository = taskEventRepository;
+        this.taskChangeHub = taskChangeHub;
+        this.mode = mode;
+        this.batchSize = Math.max(1, batchSize);
+
+        // Ghi ở chế độ RELAXED chạy sau commit: phải là transaction mới, không tham gia transaction vừa commit
+        this.writeTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.written = Counter.builder("taskmanager.task-events.written").register(meterRegistry);
+        this.failed = Counter.builder("taskmanager.task-events.failed").register(meterRegistry);
+        this.callerRuns = Counter.builder("taskmanager.task-events.caller-runs").register(meterRegistry);
+        this.writeTimer = Timer.builder("taskmanager.task-events.write").register(meterRegistry);
+
+        if (mode == Mode.RELAXED) {
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+            Gauge.builder("taskmanager.task-events.queue", queue, BlockingQueue::size).register(meterRegistry);
+            this.writerThread = new Thread(this::runWriter, "task-event-writer");
+            this.writerThread.setDaemon(true);
+            this.writerThread.start();
+        } else {
+            this.queue = null;
+            this.writerThread = null;
+        }
+    }
+
+    /**
+     * Thêm event vào batch của transaction hiện tại. planId chỉ dùng cho thông báo SSE.
+     * Không có transaction -> ghi (DURABLE, lỗi ném lại cho caller) hoặc xếp hàng (RELAXED) ngay.
+     */
+    public void append(TaskEvent event, Long planId) {
+        Pending pending = new Pending(event, planId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Pending> single = new ArrayList<>(List.of(pending));
+            if (mode == Mode.DURABLE) {
+                writeNow(single);
+            } else {
+                enqueue(single);
+            }
+            return;
+        }
+        TransactionBatch batch = (TransactionBatch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new TransactionBatch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        batch.add(pending);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    // =========================================================================
+    // GHI BATCH
+    // =========================================================================
+
+    // Ghi trong transaction đang chạy (DURABLE) hoặc transaction mà caller đã mở
+    private void persist(List<Pending> batch) {
+        List<TaskEvent> events = new ArrayList<>(batch.size());
+        for (Pending p : batch) events.add(p.event);
+        writeTimer.record(() -> taskEventRepository.saveAll(events));
+        written.increment(events.size());
+    }
+
+    // Ghi trong transaction riêng; lỗi được đếm rồi ném lại
+    private void writeNow(List<Pending> batch) {
+        try {
+            writeTransaction.executeWithoutResult(status -> persist(batch));
+        } catch (RuntimeException e) {
+            failed.increment(batch.size());
+            throw e;
+        }
+        notifyWritten(batch);
+    }
+
+    // RELAXED: request đã commit xong, batch ghi lỗi chỉ được log rồi bỏ qua
+    private void writeOrDrop(List<Pending> batch) {
+        try {
+            writeNow(batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} task events", batch.size(), e);
+        }
+    }
+
+    private void notifyWritten(List<Pending> batch) {
+        for (Pending p : batch) {
+            taskChangeHub.publishNow(TaskChangeType.TASK_EVENT, p.event.getTaskId(), p.planId, p.event.getId());
+        }
+    }
+
+    private void enqueue(List<Pending> batch) {
+        List<Pending> overflow = null;
+        for (Pending p : batch) {
+            if (overflow == null && queue.offer(p)) continue;
+            if (overflow == null) overflow = new ArrayList<>();
+            overflow.add(p);
+        }
+        if (overflow != null) {
+            // Hàng đợi đầy: ghi luôn trên thread gọi thay vì bỏ event
+            callerRuns.increment(overflow.size());
+            writeOrDrop(overflow);
+        }
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeOrDrop(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Task event writer failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Dừng thread nền sau khi ghi hết hàng đợi (chờ tối đa 30 giây).
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+            if (!queue.isEmpty()) {
+                log.warn("{} task events were not written before shutdown", queue.size());
+            }
+        }
+    }
+
+    private static final class Pending {
+        private final TaskEvent event;
+        private final Long planId;
+
+        private Pending(TaskEvent event, Long planId) {
+            this.event = event;
+            this.planId = planId;
+        }
+    }
+
+    /**
+     * Event của một transaction. DURABLE: ghi trong beforeCommit (hoặc sớm hơn khi đủ batch-size),
+     * thông báo SSE trong afterCommit. RELAXED: xếp hàng trong afterCommit.
+     */
+    private final class TransactionBatch implements TransactionSynchronization {
+        private final List<Pending> pending = new ArrayList<>();
+        private final List<Pending> persisted = new ArrayList<>();
+
+        void add(Pending p) {
+            pending.add(p);
+            if (mode == Mode.DURABLE && pending.size() >= batchSize) writePending();
+        }
+
+        private void writePending() {
+            if (pending.isEmpty()) return;
+            persist(pending);
+            persisted.addAll(pending);
+            pending.clear();
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (mode == Mode.DURABLE) writePending();
+        }
+
+        @Override
+        public void afterCommit() {
+            if (mode == Mode.DURABLE) {
+                notifyWritten(persisted);
+            } else {
+                enqueue(pending);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TaskEventWriter.this);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package tds.op.taskmanager.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Service;
+import tds.op.taskmanager.representation.Task;
+import tds.op.taskmanager.representation.TaskDTO;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Export toàn bộ Task của một Plan dưới dạng NDJSON (mỗi dòng một TaskDTO).
+ * - Đọc Task bằng StatelessSession + ScrollableResults một chiều: dùng chính mapping JPA của Task
+ *   (không có persistence context nên bộ nhớ không tăng theo kích thước Plan).
+ * - Fetch size: MySQL/MariaDB chỉ stream khi fetchSize = Integer.MIN_VALUE; driver khác dùng fetch size dương.
+ * - Gom từng chunk cố định rồi assemble bằng TaskAssembler (số query mỗi chunk là cố định)
+ *   và ghi thẳng ra response.
+ * Lưu ý: không được gọi trong @Transactional, vì các query của TaskAssembler phải dùng connection khác
+ * với connection đang stream.
+ * Mỗi export giữ một connection Hikari trong suốt quá trình stream, kể cả lúc chờ client đọc chậm (tới
+ * taskmanager.export.timeout-ms). Số export chạy đồng thời bị giới hạn bởi max-concurrent (tryAcquireSlot),
+ * để vài lượt tải chậm không chiếm hết pool của các endpoint khác.
+ */
+@Service
+public class TaskExportService {
+
+    private static final byte NEWLINE = '\n';
+
+    private final SessionFactory sessionFactory;
+    private final TaskAssembler taskAssembler;
+    private final ObjectWriter writer;
+    private final int fetchSize;
+    private final int chunkSize;
+    private final Semaphore slots;
+
+    public TaskExportService(EntityManagerFactory entityManagerFactory, DataSource dataSource,
+                             TaskAssembler taskAssembler, JsonMapper jsonMapper,
+                             @Value("${taskmanager.export.fetch-size:0}") int fetchSize,
+                             @Value("${taskmanager.export.chunk-size:500}") int chunkSize,
+                             @Value("${taskmanager.export.max-concurrent:2}") int maxConcurrent) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.taskAssembler = taskAssembler;
+        this.writer = jsonMapper.writerFor(TaskDTO.class);
+        this.chunkSize = chunkSize;
+        this.slots = new Semaphore(Math.max(1, maxConcurrent));
+        // fetch-size = 0: tự chọn theo driver
+        this.fetchSize = fetchSize != 0 ? fetchSize : (isMySql(dataSource) ? Integer.MIN_VALUE : chunkSize);
+    }
+
+    /**
+     * Giữ một chỗ export. false -> đã đủ max-concurrent export đang chạy.
+     * Caller phải gọi releaseSlot() khi export kết thúc (kể cả khi lỗi).
+     */
+    public boolean tryAcquireSlot() {
+        return slots.tryAcquire();
+    }
+
+    public void releaseSlot() {
+        slots.release();
+    }
+
+    public void exportPlan(Long planId, OutputStream out) throws IOException {
+        List<Task> chunk = new ArrayList<>(chunkSize);
+        try (StatelessSession session = sessionFactory.openStatelessSession();
+             ScrollableResults<Task> rows = session
+                     .createSelectionQuery("FROM Task t WHERE t.planId = :planId ORDER BY t.uuid, t.id", Task.class)
+                     .setParameter("planId", planId)
+                     .setFetchSize(fetchSize)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                chunk.add(rows.get());
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, out);
+                }
+            }
+        }
+        writeChunk(chunk, out);
+    }
+
+    private void writeChunk(List<Task> chunk, OutputStream out) throws IOException {
+        if (chunk.isEmpty()) return;
+        for (TaskDTO dto : taskAssembler.toDTOs(chunk)) {
+            out.write(writer.writeValueAsBytes(dto));
+            out.write(NEWLINE);
+        }
+        out.flush();
+        chunk.clear();
+    }
+
+    private static boolean isMySql(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return product != null && (product.contains("MySQL") || product.contains("MariaDB"));
+        } catch (MetaDataAccessException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package tds.op.taskmanager.service;
+
+import tds.op.taskmanager.representation.TaskDTO;
+import tds.op.taskmanager.representation.TaskGroup;
+import tds.op.taskmanager.representation.TaskGroupKey;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Gom nhóm TaskDTO theo UUID thành TaskGroup (không truy cập DB, dùng chung cho TaskService và benchmark).
+ * - Thông tin chung của group lấy từ task đầu tiên trong nhóm, tên nhóm và thứ tự nhóm lấy từ TaskGroupKey
+ *   (plan_task_group, thứ tự theo collation của DB) để mọi API, kể cả phân trang, cho cùng kết quả.
+ * - Task trong nhóm sort theo tháng (YYYY-MM), tháng sai format dùng fallbackMonth.
+ * - Mỗi chuỗi tháng chỉ parse một lần cho cả danh sách (số tháng khác nhau rất ít),
+ *   comparator chỉ so sánh YearMonth đã parse sẵn.
+ */
+final class TaskGrouping {
+
+    private TaskGrouping() {
+    }
+
+    /**
+     * Gom nhóm theo UUID, danh sách group theo thứ tự của keys (name, uuid). Nhóm không có trong keys
+     * (dữ liệu ghi ngoài service) được đặt cuối, theo uuid.
+     */
+    static List<TaskGroup> buildTaskGroups(List<TaskDTO> dtos, List<TaskGroupKey> keys, YearMonth fallbackMonth) {
+        Map<String, TaskGroup> groups = groupByUuid(dtos, fallbackMonth);
+        List<TaskGroup> result = new ArrayList<>(groups.size());
+        for (TaskGroupKey key : keys) {
+            TaskGroup group = groups.remove(key.getUuid());
+            if (group == null) continue;
+            group.setName(key.getName());
+            result.add(group);
+        }
+        List<TaskGroup> unknown = new ArrayList<>(groups.values());
+        unknown.sort(Comparator.comparing(TaskGroup::getUuid));
+        result.addAll(unknown);
+        return result;
+    }
+
+    static Map<String, TaskGroup> groupByUuid(List<TaskDTO> dtos, YearMonth fallbackMonth) {
+        Map<String, TaskGroup> result = new HashMap<>();
+        for (TaskDTO dto : dtos) {
+            TaskGroup group = result.get(Objects.requireNonNull(dto.getUuid(), "uuid"));
+            if (group == null) {
+                group = new TaskGroup();
+                group.setUuid(dto.getUuid());
+                group.setName(dto.getName());
+                group.setDescription(dto.getDescription());
+                result.put(dto.getUuid(), group);
+            }
+            group.getTasks().add(dto);
+        }
+
+        Map<String, YearMonth> months = new HashMap<>();
+        Comparator<TaskDTO> byMonth = Comparator.comparing(t -> months.get(t.getMonth()));
+        for (TaskGroup group : result.values()) {
+            List<TaskDTO> tasks = group.getTasks();
+            if (tasks.size() < 2) continue;
+            for (TaskDTO t : tasks) {
+                months.computeIfAbsent(t.getMonth(), m -> parseMonth(m, fallbackMonth));
+            }
+            tasks.sort(byMonth);
+        }
+        return result;
+    }
+
+    private static YearMonth parseMonth(String month, YearMonth fallbackMonth) {
+        if (month == null) return fallbackMonth;
+        try {
+            return YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            return fallbackMonth;
+        }
+    }
+}
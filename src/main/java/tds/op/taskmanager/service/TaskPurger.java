@@ -0,0 +1,77 @@
+package tds.op.taskmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tds.op.taskmanager.repository.TaskRepository;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Job nền dọn các Task đã soft delete (TaskService.deleteTask chỉ set deleted = true).
+ * Mỗi lượt lấy tối đa chunk-size Task, xóa dữ liệu phụ thuộc và Task trong một transaction ngắn,
+ * sau đó nghỉ pause-ms trước chunk tiếp theo để không giữ row lock lâu và nhường tài nguyên cho request.
+ * Chỉ một node chạy nhờ lease "task-purge" (SchedulerLeaseService), lease được gia hạn sau mỗi chunk.
+ */
+@Service
+public class TaskPurger {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskPurger.class);
+
+    private static final String LEASE = "task-purge";
+
+    private final TaskRepository taskRepository;
+    private final TaskCascadeDeleter taskCascadeDeleter;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final Duration leaseTtl;
+
+    public TaskPurger(TaskRepository taskRepository, TaskCascadeDeleter taskCascadeDeleter,
+                      SchedulerLeaseService schedulerLeaseService,
+                      @Value("${taskmanager.task-purge.chunk-size:200}") int chunkSize,
+                      @Value("${taskmanager.task-purge.pause-ms:200}") long pauseMillis,
+                      @Value("${taskmanager.task-purge.lease-ms:300000}") long leaseMillis) {
+        this.taskRepository = taskRepository;
+        this.taskCascadeDeleter = taskCascadeDeleter;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.leaseTtl = Duration.ofMillis(leaseMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${taskmanager.task-purge.interval-ms:30000}")
+    public void purge() {
+        if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) return;
+        int purged = 0;
+        try {
+            while (true) {
+                List<Long> ids = taskRepository.findDeletedTaskIds(chunkSize);
+                if (ids.isEmpty()) break;
+
+                purged += taskCascadeDeleter.purge(ids);
+                if (ids.size() < chunkSize) break;
+
+                if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) {
+                    log.warn("Task purge: lease lost after {} tasks, stopping", purged);
+                    break;
+                }
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            schedulerLeaseService.release(LEASE);
+        }
+
+        if (purged > 0) {
+            log.info("Task purge: removed {} soft-deleted tasks and their dependents", purged);
+        }
+    }
+}
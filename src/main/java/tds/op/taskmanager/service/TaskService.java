@@ -1,10 +1,13 @@
 package tds.op.taskmanager.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import tds.op.taskmanager.repository.*;
 import tds.op.taskmanager.representation.*;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
@@ -14,27 +17,48 @@ import java.util.stream.Collectors;
 @Service
 public class TaskService {
 
+    // Giới hạn độ sâu của chuỗi giao việc khi query đệ quy (chống dữ liệu vòng lặp)
+    private static final int MAX_CHAIN_DEPTH = 64;
+
     // --- Core Repositories ---
     private final TaskRepository taskRepository;
     private final TaskExecutorRepository taskExecutorRepository;
     private final TaskEventRepository taskEventRepository;
-    private final StaffRepository staffRepository;
-    private final UnitRepository unitRepository;
-    private final PlanRepository planRepository;
+    private final StaffDirectory staffDirectory;
 
     // --- Dependent Services (Để clean code) ---
-    private final ActionService actionService;
-    private final CommentService commentService;
-
-    public TaskService(TaskRepository taskRepository, TaskExecutorRepository taskExecutorRepository, TaskEventRepository taskEventRepository, StaffRepository staffRepository, UnitRepository unitRepository, PlanRepository planRepository, ActionService actionService, CommentService commentService) {
+    private final TaskAssembler taskAssembler;
+    private final FanOut fanOut;
+    private final PlanVersionService planVersionService;
+    private final TaskChangeHub taskChangeHub;
+    private final TaskEventWriter taskEventWriter;
+    private final StaffInboxService staffInboxService;
+    private final PlanRollupService planRollupService;
+    private final PlanTaskGroupRepository planTaskGroupRepository;
+
+    // Phân trang TaskGroup
+    private final int defaultGroupPageSize;
+    private final int maxGroupPageSize;
+
+    public TaskService(TaskRepository taskRepository, TaskExecutorRepository taskExecutorRepository, TaskEventRepository taskEventRepository, StaffDirectory staffDirectory, TaskAssembler taskAssembler, FanOut fanOut, PlanVersionService planVersionService,
+                       TaskChangeHub taskChangeHub, TaskEventWriter taskEventWriter, StaffInboxService staffInboxService,
+                       PlanRollupService planRollupService, PlanTaskGroupRepository planTaskGroupRepository,
+                       @Value("${taskmanager.task-groups.page-size:50}") int defaultGroupPageSize,
+                       @Value("${taskmanager.task-groups.max-page-size:500}") int maxGroupPageSize) {
         this.taskRepository = taskRepository;
         this.taskExecutorRepository = taskExecutorRepository;
         this.taskEventRepository = taskEventRepository;
-        this.staffRepository = staffRepository;
-        this.unitRepository = unitRepository;
-        this.planRepository = planRepository;
-        this.actionService = actionService;
-        this.commentService = commentService;
+        this.staffDirectory = staffDirectory;
+        this.taskAssembler = taskAssembler;
+        this.fanOut = fanOut;
+        this.planVersionService = planVersionService;
+        this.taskChangeHub = taskChangeHub;
+        this.taskEventWriter = taskEventWriter;
+        this.staffInboxService = staffInboxService;
+        this.planRollupService = planRollupService;
+        this.planTaskGroupRepository = planTaskGroupRepository;
+        this.defaultGroupPageSize = defaultGroupPageSize;
+        this.maxGroupPageSize = maxGroupPageSize;
     }
 
     // =========================================================================
@@ -74,8 +98,12 @@ public class TaskService {
             task.setParentTaskId(dto.getParentTask().getId());
         }
 
-        // 5. Save Task
+        // 5. Save Task (+ nhóm của Plan nếu đây là Task đầu tiên của uuid)
         Task savedTask = taskRepository.save(task);
+        if (savedTask.getPlanId() != null) {
+            planTaskGroupRepository.insertIfAbsent(savedTask.getPlanId(), savedTask.getUuid(),
+                    savedTask.getName() == null ? "" : savedTask.getName());
+        }
 
         // 6. Save Executors
         if (dto.getExecutors() != null && !dto.getExecutors().isEmpty()) {
@@ -87,7 +115,10 @@ public class TaskService {
                 executors.add(te);
             }
             taskExecutorRepository.saveAll(executors);
+            staffInboxService.tasksAssigned(List.of(savedTask.getId()));
         }
+        planRollupService.touchTask(savedTask.getId());
+        planVersionService.bump(savedTask.getPlanId());
         return getTaskDetail(savedTask.getId());
     }
 // =========================================================================
@@ -113,45 +144,9 @@ public class TaskService {
             return Collections.emptyList();
         }
 
-        // 2. Gom nhóm theo UUID
-        // Map<String (uuid), List<Task>>
-        Map<String, List<Task>> groupedByUuid = tasks.stream().collect(Collectors.groupingBy(Task::getUuid));
-
-        // 3. Map sang List<TaskGroup>
-        List<TaskGroup> result = new ArrayList<>();
-
-        groupedByUuid.forEach((uuid, taskList) -> {
-            if (taskList.isEmpty()) return;
-
-            // Lấy thông tin chung từ phần tử đầu tiên trong nhóm
-            // (Giả định rằng name và description của các task cùng UUID là giống nhau hoặc tương tự)
-            Task firstTask = taskList.get(0);
-
-            TaskGroup group = new TaskGroup();
-            group.setUuid(uuid);
-            group.setName(firstTask.getName());
-            group.setDescription(firstTask.getDescription());
-
-            // Convert list entity -> list DTO
-            List<TaskDTO> taskDTOs = taskList.stream().map(this::convertToDTO) // Sử dụng hàm convert đã có logic tính progress & executors
-                    .sorted(Comparator.comparing(t -> {
-                        // Sort các task trong nhóm theo tháng (YYYY-MM)
-                        try {
-                            return YearMonth.parse(t.getMonth());
-                        } catch (Exception e) {
-                            // Fallback nếu format lỗi, đẩy xuống cuối
-                            return YearMonth.now().plusYears(100);
-                        }
-                    })).collect(Collectors.toList());
-
-            group.setTasks(taskDTOs);
-            result.add(group);
-        });
-
-        // 4. Sắp xếp danh sách Group theo tên A-Z để dễ nhìn
-        result.sort(Comparator.comparing(TaskGroup::getName));
-
-        return result;
+        // 2. Gom nhóm theo UUID, sort task trong nhóm theo tháng, nhóm theo (tên nhóm, uuid) như phân trang
+        // (Fallback nếu format tháng lỗi: đẩy xuống cuối)
+        return buildTaskGroups(tasks, planTaskGroupRepository.findKeys(planId), YearMonth.now().plusYears(100));
     }
 
     public TaskDTO getTaskDetail(Long taskId) {
@@ -159,13 +154,16 @@ public class TaskService {
         if (taskOpt.isEmpty()) return null;
 
         Task task = taskOpt.get();
-        TaskDTO dto = convertToDTO(task); // Map thông tin cơ bản và executors
-
-        // Lấy Task con (Logic 1-1)
-        List<Task> children = taskRepository.findByParentTaskId(taskId);
-        if (!children.isEmpty()) {
-            Task child = children.get(0);
-            dto.setChildTask(convertToDTO(child));
+        TaskDTO dto;
+        try (FanOut.Scope scope = fanOut.open()) {
+            // Task con (Logic 1-1) không phụ thuộc thông tin của task: lấy song song
+            FanOut.Task<TaskDTO> child = scope.fork(() -> {
+                List<Task> children = taskRepository.findByParentTaskId(taskId);
+                return children.isEmpty() ? null : convertToDTO(children.get(0));
+            });
+            dto = convertToDTO(task); // Map thông tin cơ bản và executors
+            scope.join();
+            if (child.get() != null) dto.setChildTask(child.get());
         }
 
         // NOTE: Chúng ta KHÔNG set actions hay comments vào TaskDTO ở đây
@@ -181,54 +179,86 @@ public class TaskService {
         List<Task> tasks = taskRepository.findRootTasksByPlanAndUnit(planId, unitId);
         if (tasks.isEmpty()) return Collections.emptyList();
 
-        Map<String, List<Task>> groupedByUuid = tasks.stream().collect(Collectors.groupingBy(Task::getUuid));
+        return buildTaskGroups(tasks, groupKeys(planId, tasks), YearMonth.now());
+    }
+
+    /**
+     * Task của Plan được giao cho Unit hoặc bất kỳ Unit con cháu nào (một query qua closure table).
+     */
+    public List<TaskGroup> getTasksByPlanUnderUnit(Long planId, Long unitId) {
+        if (planId == null || unitId == null) return Collections.emptyList();
+
+        List<Task> tasks = taskRepository.findByPlanIdUnderUnit(planId, unitId);
+        if (tasks.isEmpty()) return Collections.emptyList();
 
-        List<TaskGroup> result = new ArrayList<>();
+        return buildTaskGroups(tasks, groupKeys(planId, tasks), YearMonth.now());
+    }
 
-        groupedByUuid.forEach((uuid, taskList) -> {
-            if (taskList.isEmpty()) return;
-            Task firstTask = taskList.get(0);
+    /**
+     * Một trang TaskGroup của Plan, phân trang keyset theo (tên nhóm, uuid).
+     * Chỉ các Task thuộc những nhóm trong trang mới được load và assemble.
+     * Cách gom nhóm và sort theo tháng giống hệt getTasksByPlan.
+     */
+    public TaskGroupPage getTaskGroupPage(Long planId, String cursor, Integer size) {
+        TaskGroupPage page = new TaskGroupPage();
+        if (planId == null) return page;
+
+        int limit = size == null || size <= 0 ? defaultGroupPageSize : Math.min(size, maxGroupPageSize);
+        TaskGroupKey after = decodeGroupCursor(cursor);
+
+        // 1. Lấy khóa của (limit + 1) nhóm để biết còn trang sau hay không
+        List<TaskGroupKey> keys = planTaskGroupRepository.findKeysAfter(planId, after.getName(), after.getUuid(), Limit.of(limit + 1));
+        boolean hasMore = keys.size() > limit;
+        if (hasMore) keys = keys.subList(0, limit);
+        if (keys.isEmpty()) return page;
+
+        // 2. Chỉ load Task của các nhóm trong trang, giữ thứ tự keyset và tên nhóm đã lưu
+        List<String> uuids = keys.stream().map(TaskGroupKey::getUuid).collect(Collectors.toList());
+        page.getGroups().addAll(buildTaskGroups(taskRepository.findByPlanIdAndUuidIn(planId, uuids), keys,
+                YearMonth.now().plusYears(100)));
+        if (hasMore) {
+            page.setNextCursor(encodeGroupCursor(keys.get(keys.size() - 1)));
+        }
+        return page;
+    }
 
-            TaskGroup group = new TaskGroup();
-            group.setUuid(uuid);
-            group.setName(firstTask.getName());
-            group.setDescription(firstTask.getDescription());
+    /**
+     * Gom nhóm Task theo UUID thành TaskGroup (xem TaskGrouping), theo thứ tự và tên nhóm của keys.
+     * Toàn bộ TaskDTO được assemble một lần bằng TaskAssembler (số query cố định, không N+1).
+     */
+    private List<TaskGroup> buildTaskGroups(List<Task> tasks, List<TaskGroupKey> keys, YearMonth fallbackMonth) {
+        return TaskGrouping.buildTaskGroups(taskAssembler.toDTOs(tasks), keys, fallbackMonth);
+    }
 
-            List<TaskDTO> taskDTOs = taskList.stream().map(this::convertToDTO).sorted(Comparator.comparing(t -> {
-                try {
-                    return YearMonth.parse(t.getMonth());
-                } catch (Exception e) {
-                    return YearMonth.now();
-                }
-            })).collect(Collectors.toList());
+    // Khóa nhóm (thứ tự plan_task_group) của các nhóm có mặt trong danh sách Task
+    private List<TaskGroupKey> groupKeys(Long planId, List<Task> tasks) {
+        Set<String> uuids = tasks.stream().map(Task::getUuid).filter(Objects::nonNull).collect(Collectors.toSet());
+        return uuids.isEmpty() ? List.of() : planTaskGroupRepository.findKeys(planId, uuids);
+    }
 
-            group.setTasks(taskDTOs);
-            result.add(group);
-        });
+    // Cursor = Base64URL("tên\0uuid") của nhóm cuối cùng trong trang trước
+    private static String encodeGroupCursor(TaskGroupKey key) {
+        String raw = key.getName() + '\0' + key.getUuid();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-        result.sort(Comparator.comparing(TaskGroup::getName));
-        return result;
+    private static TaskGroupKey decodeGroupCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return new TaskGroupKey("", "");
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int sep = raw.indexOf('\0');
+        if (sep < 0) throw new IllegalArgumentException("Invalid cursor");
+        return new TaskGroupKey(raw.substring(sep + 1), raw.substring(0, sep));
     }
 
     @Transactional
     public void deleteTask(Long taskId) {
+        // Chỉ đánh dấu deleted (@SoftDelete). Action, Comment, Executor link, TaskEvent được TaskPurger dọn sau.
         if (taskRepository.existsById(taskId)) {
-            // 1. Dùng ActionService để xóa sạch Actions liên quan
-            actionService.deleteActionsByTaskId(taskId);
-
-            // 2. Dùng CommentService để xóa sạch Comments liên quan
-            commentService.deleteCommentsByTaskId(taskId);
-
-            // 3. Xóa Executor links của Task
-            List<TaskExecutor> executors = taskExecutorRepository.findByTaskId(taskId);
-            taskExecutorRepository.deleteAll(executors);
-
-            // 4. Xóa TaskEvents (Nếu cần thiết, hoặc để lại làm lịch sử Audit)
-            List<TaskEvent> events = taskEventRepository.findByTaskIdOrderByIdDesc(taskId);
-            taskEventRepository.deleteAll(events);
-
-            // 5. Cuối cùng xóa Task
             taskRepository.deleteById(taskId);
+            // Inbox được gỡ ngay để /api/my-work không hiện Task đã xóa trong lúc chờ purge
+            staffInboxService.tasksRemoved(List.of(taskId));
+            planRollupService.touchTask(taskId);
+            planVersionService.bumpForTask(taskId);
         }
     }
 
@@ -240,9 +270,12 @@ public class TaskService {
         List<TaskExecutor> current = taskExecutorRepository.findByTaskId(taskId);
         Set<Long> existingIds = current.stream().map(TaskExecutor::getExecutorId).collect(Collectors.toSet());
 
+        // Kiểm tra Staff hợp lệ một lần cho cả danh sách
+        Set<Long> validStaffIds = staffDirectory.existingIds(staffIds);
+
         List<TaskExecutor> newLinks = new ArrayList<>();
         for (Long sid : staffIds) {
-            if (!existingIds.contains(sid) && staffRepository.existsById(sid)) {
+            if (!existingIds.contains(sid) && validStaffIds.contains(sid)) {
                 TaskExecutor te = new TaskExecutor();
                 te.setTaskId(taskId);
                 te.setExecutorId(sid);
@@ -251,11 +284,18 @@ public class TaskService {
         }
         if (!newLinks.isEmpty()) {
             taskExecutorRepository.saveAll(newLinks);
+            staffInboxService.tasksAssigned(List.of(taskId));
+            planVersionService.bumpForTask(taskId);
         }
     }
 
     public List<TaskEventDTO> getTaskEvents(Long taskId) {
-        return taskEventRepository.findByTaskIdOrderByIdDesc(taskId).stream().map(e -> {
+        List<TaskEvent> events = taskEventRepository.findByTaskIdOrderByIdDesc(taskId);
+        // Người tạo event lấy một lần cho cả danh sách
+        Map<Long, StaffDTO> creators = staffDirectory.getAll(events.stream()
+                .map(TaskEvent::getCreatedBy).filter(Objects::nonNull).collect(Collectors.toSet()));
+
+        return events.stream().map(e -> {
             TaskEventDTO dto = new TaskEventDTO();
             dto.setId(e.getId());
             dto.setTaskId(e.getTaskId());
@@ -265,7 +305,7 @@ public class TaskService {
             dto.setCreatedDate(e.getCreatedDate());
 
             if (e.getCreatedBy() != null) {
-                staffRepository.findById(e.getCreatedBy()).ifPresent(s -> dto.setCreatedBy(convertStaffToDTO(s)));
+                dto.setCreatedBy(creators.get(e.getCreatedBy()));
             }
             return dto;
         }).collect(Collectors.toList());
@@ -285,31 +325,17 @@ public class TaskService {
 
             task.setProgress(progress);
             taskRepository.save(task);
+            planRollupService.touchTask(task.getId());
+            planVersionService.bump(task.getPlanId());
+            taskChangeHub.publish(TaskChangeType.PROGRESS, task.getId(), task.getPlanId(), null);
         }
     }
 
-    private StaffDTO convertStaffToDTO(Staff s) {
-        StaffDTO dto = new StaffDTO();
-        dto.setId(s.getId());
-        dto.setName(s.getName());
-        dto.setEmail(s.getEmail());
-        dto.setPicture(s.getPicture());
-        return dto;
-    }
-
-    private UnitDTO convertUnitToDTO(Unit u) {
-        UnitDTO dto = new UnitDTO();
-        dto.setId(u.getId());
-        dto.setName(u.getName());
-        dto.setHead(u.getHead());
-        dto.setLevel(u.getLevel());
-        return dto;
-    }
-
-    // Hàm log tổng quát (Status hoặc Deadline đều dùng được)
-    private void logTaskEvent(Long taskId, String note, TaskStatus prevS, TaskStatus nextS, LocalDate prevD, LocalDate nextD, Long staffId) {
+    // Hàm log tổng quát (Status hoặc Deadline đều dùng được). Ghi theo batch qua TaskEventWriter,
+    // client SSE được báo sau khi event đã ghi xong
+    private void logTaskEvent(Task task, String note, TaskStatus prevS, TaskStatus nextS, LocalDate prevD, LocalDate nextD, Long staffId) {
         TaskEvent event = new TaskEvent();
-        event.setTaskId(taskId);
+        event.setTaskId(task.getId());
         event.setNote(note);
         event.setPrevStatus(prevS);
         event.setNextStatus(nextS);
@@ -320,23 +346,34 @@ public class TaskService {
 
         event.setCreatedDate(LocalDateTime.now());
         event.setCreatedBy(staffId);
-        taskEventRepository.save(event);
+        taskEventWriter.append(event, task.getPlanId());
     }
 
-    // Hàm nghiệp vụ: Gia hạn Deadline
+    // Hàm nghiệp vụ: Gia hạn Deadline. Task đang OVERDUE được gia hạn tới hôm nay hoặc sau đó thì trở lại
+    // status trước khi quá hạn (OverdueSweeper.restoredStatus)
     @Transactional
     public void extendDeadline(Long taskId, LocalDate newDeadline, String reason, Long staffId) {
+        // Khóa dòng trước khi đọc: không chạy xen với một chunk của OverdueSweeper
+        if (taskRepository.lockById(taskId).isEmpty()) return;
         Optional<Task> taskOpt = taskRepository.findById(taskId);
         if (taskOpt.isPresent()) {
             Task task = taskOpt.get();
             LocalDate oldDeadline = task.getCurrentDeadline();
+            TaskStatus oldStatus = task.getStatus();
+            TaskStatus restored = OverdueSweeper.restoredStatus(oldStatus, task.getStatusBeforeOverdue(), newDeadline, LocalDate.now());
 
             // Cập nhật Task
             task.setCurrentDeadline(newDeadline);
+            if (restored != null) {
+                task.setStatus(restored);
+                task.setStatusBeforeOverdue(null);
+            }
             taskRepository.save(task);
+            planRollupService.touchTask(task.getId());
 
-            // Ghi Log: Status giữ nguyên (null), Deadline thay đổi
-            logTaskEvent(taskId, reason, null, null, oldDeadline, newDeadline, staffId);
+            // Ghi Log: Deadline thay đổi, Status chỉ ghi khi được khôi phục (không đổi thì null)
+            logTaskEvent(task, reason, restored == null ? null : oldStatus, restored, oldDeadline, newDeadline, staffId);
+            planVersionService.bump(task.getPlanId());
         }
     }
 
@@ -347,62 +384,51 @@ public class TaskService {
     /**
      * Lấy toàn bộ chuỗi giao việc.
      * Logic:
-     * 1. Leo ngược lên tìm Root Task.
-     * 2. Đệ quy xuống dưới để tìm Task con.
-     * 3. Tại mỗi cấp, load luôn Executors (vì cấp cuối cùng sẽ giao cho Executors).
+     * 1. Một query đệ quy (TaskRepository.findAssignmentChain) lấy toàn bộ tổ tiên + con cháu của Task.
+     * 2. Leo ngược lên tìm Root Task và đi xuôi xuống (theo logic 1-1) hoàn toàn trong bộ nhớ.
+     * 3. Assemble cả chuỗi một lần bằng TaskAssembler (Executors, Unit, Plan được load theo batch).
      */
     public TaskDTO getAssignmentChain(Long taskId) {
-        // 1. Kiểm tra Task hiện tại có tồn tại không
-        Optional<Task> currentOpt = taskRepository.findById(taskId);
-        if (currentOpt.isEmpty()) return null;
+        List<Task> chain = taskRepository.findAssignmentChain(taskId, MAX_CHAIN_DEPTH);
+        Map<Long, Task> byId = chain.stream().collect(Collectors.toMap(Task::getId, t -> t));
 
-        Task current = currentOpt.get();
+        // 1. Kiểm tra Task hiện tại có tồn tại không
+        Task current = byId.get(taskId);
+        if (current == null) return null;
 
         // 2. Tìm Task Gốc (Root Node) - Leo ngược lên trên
         Set<Long> visited = new HashSet<>();
         visited.add(current.getId());
 
         while (current.getParentTaskId() != null && current.getParentTaskId() != 0) {
-            Optional<Task> parentOpt = taskRepository.findById(current.getParentTaskId());
-            if (parentOpt.isEmpty()) break;
+            Task parent = byId.get(current.getParentTaskId());
+            if (parent == null) break;
 
-            current = parentOpt.get();
+            current = parent;
             // Phòng ngừa dữ liệu bị vòng lặp (A -> B -> A)
             if (!visited.add(current.getId())) break;
         }
 
-        // Lúc này 'current' là Root Task. Convert sang DTO (đã bao gồm Executors của Root nếu có)
-        TaskDTO rootDto = convertToDTO(current);
-
-        // 3. Đệ quy xuôi dòng để lấy toàn bộ chuỗi con cháu
-        populateChildRecursively(rootDto);
-
-        return rootDto;
-    }
-
-    /**
-     * Hàm đệ quy tìm Task con.
-     * QUAN TRỌNG: Hàm này sử dụng convertToDTO, mà convertToDTO đã có logic lấy Executors.
-     * Do đó, nếu Task con là điểm cuối (được giao cho nhân viên), field 'executors' của nó sẽ có dữ liệu.
-     */
-    private void populateChildRecursively(TaskDTO parentDto) {
-        // Tìm task con (Theo logic 1-1: Một task cha giao xuống chỉ tạo 1 task con đại diện)
-        List<Task> children = taskRepository.findByParentTaskId(parentDto.getId());
-
-        if (!children.isEmpty()) {
-            Task childEntity = children.get(0);
-
-            // Convert sang DTO (Hàm này sẽ tự động query bảng TaskExecutor để lấy người thực hiện)
-            TaskDTO childDto = convertToDTO(childEntity);
+        // 3. Đi xuôi dòng: mỗi Task cha chỉ có 1 Task con đại diện (lấy task con có id nhỏ nhất)
+        Map<Long, Task> firstChild = new HashMap<>();
+        for (Task t : chain) {
+            if (t.getParentTaskId() == null) continue;
+            firstChild.merge(t.getParentTaskId(), t, (a, b) -> a.getId() <= b.getId() ? a : b);
+        }
 
-            // Gán vào cha
-            parentDto.setChildTask(childDto);
+        List<Task> path = new ArrayList<>();
+        Set<Long> onPath = new HashSet<>();
+        for (Task node = current; node != null && onPath.add(node.getId()); node = firstChild.get(node.getId())) {
+            path.add(node);
+        }
 
-            // Tiếp tục đệ quy (Nếu task con này lại giao tiếp cho unit cháu)
-            populateChildRecursively(childDto);
+        // 4. Convert cả chuỗi một lần rồi nối cha -> con.
+        // Nếu Task con là điểm cuối (được giao cho nhân viên), field 'executors' của nó sẽ có dữ liệu.
+        List<TaskDTO> dtos = taskAssembler.toDTOs(path);
+        for (int i = 0; i + 1 < dtos.size(); i++) {
+            dtos.get(i).setChildTask(dtos.get(i + 1));
         }
-        // Nếu children empty -> Đây là nút lá về mặt Task.
-        // Dữ liệu Executors đã có trong parentDto (do convertToDTO đã làm việc này).
+        return dtos.get(0);
     }
 
     // =========================================================================
@@ -410,81 +436,7 @@ public class TaskService {
     // =========================================================================
 
     private TaskDTO convertToDTO(Task task) {
-        TaskDTO dto = new TaskDTO();
-
-        // --- 1. Map Basic Fields (Cũ + Mới) ---
-        dto.setId(task.getId());
-        dto.setUuid(task.getUuid());        // Mới
-        dto.setName(task.getName());
-        dto.setDescription(task.getDescription());
-        dto.setMonth(task.getMonth());
-        dto.setStatus(task.getStatus());
-        dto.setProgress(task.getProgress()); // Mới
-
-        // --- 2. Map Dates (Logic mới - Quản lý chặt chẽ) ---
-        dto.setInitialStartDate(task.getInitialStartDate());
-        dto.setActualStartDate(task.getActualStartDate());
-        dto.setInitialDeadline(task.getInitialDeadline());
-        dto.setCurrentDeadline(task.getCurrentDeadline());
-        dto.setEndDate(task.getEndDate());
-// --- START LOGIC MỚI VỀ PROGRESS ---
-        // Gọi ActionService để xem có progress tính toán từ Action không
-        Double calculatedProgress = actionService.calculateProgress(task.getId());
-
-        if (calculatedProgress != null) {
-            // Trường hợp 1: Có Action -> Dùng tiến độ tính toán (Ghi đè)
-            dto.setProgress(calculatedProgress);
-        } else {
-            // Trường hợp 2: Không có Action -> Dùng tiến độ update thủ công trong DB
-            dto.setProgress(task.getProgress());
-        }
-        // --- END LOGIC MỚI ---
-        // --- 3. Map Plan (Logic cũ - Reference) ---
-        if (task.getPlanId() != null) {
-            planRepository.findById(task.getPlanId()).ifPresent(p -> {
-                PlanDTO pDto = new PlanDTO();
-                pDto.setId(p.getId());
-                pDto.setName(p.getName());
-                pDto.setStartMonth(p.getStartMonth());
-                pDto.setEndMonth(p.getEndMonth());
-                // (Optional) Có thể map thêm Unit cho Plan nếu cần
-                dto.setPlan(pDto);
-            });
-        }
-
-        // --- 4. Map Assigner / Unit Giao (Logic cũ) ---
-        if (task.getAssignerId() != null) {
-            unitRepository.findById(task.getAssignerId()).ifPresent(u -> dto.setAssigner(convertUnitToDTO(u)));
-        }
-
-        // --- 5. Map Assignee / Unit Nhận (Logic cũ) ---
-        if (task.getAssigneeId() != null) {
-            unitRepository.findById(task.getAssigneeId()).ifPresent(u -> dto.setAssignee(convertUnitToDTO(u)));
-        }
-
-        // --- 6. Map Parent Task (Logic cũ - Chỉ lấy Info cơ bản để tránh đệ quy ngược) ---
-        if (task.getParentTaskId() != null) {
-            taskRepository.findById(task.getParentTaskId()).ifPresent(parent -> {
-                TaskDTO pDto = new TaskDTO();
-                pDto.setId(parent.getId());
-                pDto.setName(parent.getName());
-                // Không map sâu hơn để tránh loop
-                dto.setParentTask(pDto);
-            });
-        }
-
-        // --- 7. Map Executors (QUAN TRỌNG CHO LOGIC CHUỖI GIAO VIỆC) ---
-        // Tại bất kỳ cấp nào (đặc biệt là cấp cuối), ta luôn kiểm tra xem có nhân viên nào
-        // được gán trực tiếp vào Task này không.
-        List<TaskExecutor> links = taskExecutorRepository.findByTaskId(task.getId());
-        if (!links.isEmpty()) {
-            List<Long> staffIds = links.stream().map(TaskExecutor::getExecutorId).collect(Collectors.toList());
-
-            List<Staff> staffs = staffRepository.findAllById(staffIds);
-
-            dto.setExecutors(staffs.stream().map(this::convertStaffToDTO).collect(Collectors.toList()));
-        }
-
-        return dto;
+        // Toàn bộ logic map (progress, plan, assigner/assignee, parent, executors) nằm ở TaskAssembler
+        return taskAssembler.toDTO(task);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package tds.op.taskmanager.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tiện ích đăng ký callback sau khi transaction hiện tại commit thành công.
+ * Dùng cho các cache/in-memory state cần invalidate: nếu invalidate trước khi commit,
+ * một request khác có thể build lại cache từ dữ liệu cũ.
+ */
+final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Chạy action sau khi commit. Nếu không có transaction đang hoạt động thì chạy ngay.
+     */
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
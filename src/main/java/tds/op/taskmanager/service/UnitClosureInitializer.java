@@ -0,0 +1,51 @@
+package tds.op.taskmanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Khi khởi động: nếu closure table chưa khớp với bảng Unit (dữ liệu cũ, hoặc bị ghi lệch), build lại từ parentUnitId.
+ * Chỉ node giữ lease "unit-closure-rebuild" build lại; node khác bỏ qua. Build lại bị deadlock (đua với createUnit
+ * trên node khác) -> chỉ log, không làm hỏng quá trình khởi động: lần khởi động sau sẽ kiểm tra lại.
+ */
+@Service
+public class UnitClosureInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(UnitClosureInitializer.class);
+
+    private static final String LEASE = "unit-closure-rebuild";
+
+    private final UnitService unitService;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final Duration leaseTtl;
+
+    public UnitClosureInitializer(UnitService unitService, SchedulerLeaseService schedulerLeaseService,
+                                  @Value("${taskmanager.unit-closure.lease-ms:300000}") long leaseMillis) {
+        this.unitService = unitService;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.leaseTtl = Duration.ofMillis(leaseMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (unitService.isUnitClosureComplete()) return;
+        if (!schedulerLeaseService.tryAcquire(LEASE, leaseTtl)) return;
+        try {
+            // Node khác có thể vừa build lại xong trước khi nhả lease
+            if (unitService.isUnitClosureComplete()) return;
+            log.info("unit_closure is out of sync with unit table, rebuilding");
+            unitService.rebuildUnitClosure();
+        } catch (PessimisticLockingFailureException e) {
+            log.warn("unit_closure rebuild hit a lock conflict, will retry on next startup", e);
+        } finally {
+            schedulerLeaseService.release(LEASE);
+        }
+    }
+}
@@ -11,14 +11,20 @@ import java.util.stream.Collectors;
 @Service
 public class UnitService {
 
-    private final StaffRepository staffRepository;
+    private final StaffDirectory staffDirectory;
     private final UnitStaffRepository unitStaffRepository;
     private final UnitRepository unitRepository;
+    private final UnitClosureRepository unitClosureRepository;
+    private final OrgTreeCache orgTreeCache;
+    private final PlanVersionService planVersionService;
 
-    public UnitService(StaffRepository staffRepository, UnitStaffRepository unitStaffRepository, UnitRepository unitRepository) {
-        this.staffRepository = staffRepository;
+    public UnitService(StaffDirectory staffDirectory, UnitStaffRepository unitStaffRepository, UnitRepository unitRepository, UnitClosureRepository unitClosureRepository, OrgTreeCache orgTreeCache, PlanVersionService planVersionService) {
+        this.staffDirectory = staffDirectory;
         this.unitStaffRepository = unitStaffRepository;
         this.unitRepository = unitRepository;
+        this.unitClosureRepository = unitClosureRepository;
+        this.orgTreeCache = orgTreeCache;
+        this.planVersionService = planVersionService;
     }
 
     /**
@@ -38,6 +44,8 @@ public class UnitService {
         u.setParentUnitId(parentUnitId == null ? 0L : parentUnitId);
 
         unitRepository.save(u);
+        unitClosureRepository.insertForNewUnit(u.getId(), u.getParentUnitId());
+        TransactionHooks.afterCommit(orgTreeCache::invalidate);
 
         // Reflect persisted id back to DTO
         dto.setId(u.getId());
@@ -55,24 +63,17 @@ public class UnitService {
 
     /**
      * Return the entire corporate structure as a list of root UnitDTO trees.
-     * parentUnitId == 0 means root.
+     * parentUnitId == 0 means root. Served from the in-memory OrgTreeCache.
      */
     public List<UnitDTO> getCorporateStructure() {
-        List<Unit> all = unitRepository.findAll();
-        return buildTree(all);
+        return orgTreeCache.getCorporateStructure();
     }
 
     /**
-     * Return tree starting from the given root unit id.
+     * Return tree starting from the given root unit id (from OrgTreeCache).
      */
     public UnitDTO getStructure(long rootId) {
-        Optional<Unit> rootOpt = unitRepository.findById(rootId);
-        if (rootOpt.isEmpty()) return null;
-
-        List<Unit> all = unitRepository.findAll();
-        Map<Long, List<Unit>> childrenMap = all.stream().filter(u -> u.getParentUnitId() != 0L).collect(Collectors.groupingBy(Unit::getParentUnitId));
-
-        return toTree(rootOpt.get(), childrenMap);
+        return orgTreeCache.getStructure(rootId);
     }
 
     /**
@@ -91,7 +92,11 @@ public class UnitService {
         List<UnitStaff> links = unitStaffRepository.findByUnitId(unitId);
         if (links != null && !links.isEmpty()) return false;
 
+        unitClosureRepository.deleteByDescendantId(unitId);
         unitRepository.delete(opt.get());
+        // Task giao cho Unit này (ở bất kỳ Plan nào) không còn hiển thị assigner/assignee
+        planVersionService.bumpAll();
+        TransactionHooks.afterCommit(orgTreeCache::invalidate);
         return true;
     }
 
@@ -102,101 +107,46 @@ public class UnitService {
         List<UnitStaff> links = unitStaffRepository.findByUnitId(unitId);
         if (links == null || links.isEmpty()) return Collections.emptyList();
 
-        return links.stream().map(UnitStaff::getStaffId).map(staffRepository::findById).filter(Optional::isPresent).map(Optional::get).map(this::toStaffDTO).collect(Collectors.toList());
+        return staffDirectory.toDTOs(links.stream().map(UnitStaff::getStaffId).collect(Collectors.toList()));
     }
 
     /**
      * Get direct child units (one level) as DTOs.
      */
     public List<UnitDTO> getUnitChildren(long unitId) {
-        List<Unit> children = unitRepository.findByParentUnitId(unitId);
-        if (children == null || children.isEmpty()) return Collections.emptyList();
-
-        return children.stream().map(this::toDTO).collect(Collectors.toList());
+        return orgTreeCache.getChildren(unitId);
     }
 
     /**
      * Get ALL staff under a unit (including its own staff and staff in all descendant units).
      */
     public List<StaffDTO> getAllStaffUnderUnit(long rootUnitId) {
+        // Single query joining UnitStaff through the unit_closure table, staff resolved from StaffDirectory
+        List<Long> staffIds = unitStaffRepository.findStaffIdsUnderUnit(rootUnitId);
+        if (staffIds.isEmpty()) return Collections.emptyList();
 
-        // 1. Build a map parent -> children for fast traversal
-        List<Unit> allUnits = unitRepository.findAll();
-        Map<Long, List<Unit>> childrenMap = allUnits.stream().filter(u -> u.getParentUnitId() != 0).collect(Collectors.groupingBy(Unit::getParentUnitId));
-
-        // 2. Collect all unit IDs under the root
-        Set<Long> unitIds = new HashSet<>();
-        collectUnitIdsRecursively(rootUnitId, childrenMap, unitIds);
-
-        // Also include the root itself
-        unitIds.add(rootUnitId);
-
-        // 3. Query staff links for all units
-        List<UnitStaff> links = unitStaffRepository.findByUnitIdIn(unitIds);
-
-        if (links == null || links.isEmpty()) return Collections.emptyList();
-
-        // 4. Convert each staff to DTO
-        return links.stream().map(UnitStaff::getStaffId).map(staffRepository::findById).filter(Optional::isPresent).map(Optional::get).map(this::toStaffDTO).collect(Collectors.toList());
-    }
-
-    // -------------------------
-    // Helper / mapping methods
-    // -------------------------
-    private StaffDTO toStaffDTO(Staff s) {
-        StaffDTO dto = new StaffDTO();
-        dto.setId(s.getId());
-        dto.setName(s.getName());
-        dto.setEmail(s.getEmail());
-        dto.setPicture(s.getPicture());
-        return dto;
-    }
-
-    private UnitDTO toDTO(Unit u) {
-        UnitDTO dto = new UnitDTO();
-        dto.setId(u.getId());
-        dto.setName(u.getName());
-        dto.setHead(u.getHead());
-        dto.setLevel(u.getLevel());
-        // children left empty here; used when building tree manually or returning simple DTO
-        return dto;
+        return staffDirectory.toDTOs(staffIds);
     }
 
     /**
-     * Build full tree(s) from flat list. Roots are units with parentUnitId == 0.
+     * Rebuild the unit_closure table from Unit.parentUnitId (backfill for units created before the table existed).
      */
-    private List<UnitDTO> buildTree(List<Unit> allUnits) {
-        Map<Long, List<Unit>> childrenMap = allUnits.stream().filter(u -> u.getParentUnitId() != 0L).collect(Collectors.groupingBy(Unit::getParentUnitId));
-
-        List<Unit> roots = allUnits.stream().filter(u -> u.getParentUnitId() == 0L).toList();
-
-        return roots.stream().map(r -> toTree(r, childrenMap)).collect(Collectors.toList());
-    }
-
-    private UnitDTO toTree(Unit root, Map<Long, List<Unit>> childrenMap) {
-        UnitDTO dto = toDTO(root);
-        List<Unit> children = childrenMap.get(root.getId());
-        if (children != null) {
-            for (Unit c : children) {
-                dto.getChildren().add(toTree(c, childrenMap));
-            }
-        }
-        return dto;
+    @Transactional
+    public void rebuildUnitClosure() {
+        unitClosureRepository.deleteAllRows();
+        unitClosureRepository.insertFromAdjacencyList();
     }
 
     /**
-     * DFS to collect unit IDs recursively.
+     * Closure table is consistent when every unit has exactly one self row (depth = 0).
      */
-    private void collectUnitIdsRecursively(long currentId, Map<Long, List<Unit>> childrenMap, Set<Long> result) {
-        List<Unit> children = childrenMap.get(currentId);
-        if (children == null) return;
-
-        for (Unit child : children) {
-            result.add(child.getId());
-            collectUnitIdsRecursively(child.getId(), childrenMap, result);
-        }
+    public boolean isUnitClosureComplete() {
+        return unitClosureRepository.countByDepth(0) == unitRepository.count();
     }
 
+    // -------------------------
+    // Helper / mapping methods
+    // -------------------------
     /**
      * Thêm danh sách nhân viên vào Unit.
      * Bỏ qua nếu nhân viên đó đã có trong Unit rồi (tránh trùng lặp).
@@ -214,11 +164,12 @@ public class UnitService {
                 .map(UnitStaff::getStaffId)
                 .collect(Collectors.toSet());
 
-        // 3. Duyệt danh sách ID gửi lên
+        // 3. Duyệt danh sách ID gửi lên (Staff hợp lệ được kiểm tra một lần cho cả danh sách)
+        Set<Long> validStaffIds = staffDirectory.existingIds(staffIds);
         List<UnitStaff> newLinks = new ArrayList<>();
         for (Long staffId : staffIds) {
             // Nếu chưa tồn tại trong Unit này và Staff ID hợp lệ (có trong DB Staff)
-            if (!existingStaffIds.contains(staffId) && staffRepository.existsById(staffId)) {
+            if (!existingStaffIds.contains(staffId) && validStaffIds.contains(staffId)) {
                 UnitStaff link = new UnitStaff();
                 link.setUnitId(unitId);
                 link.setStaffId(staffId);
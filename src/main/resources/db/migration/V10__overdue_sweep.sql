@@ -0,0 +1,13 @@
+-- OverdueSweeper: tìm Task / Action chưa xong đã quá deadline bằng range scan (status IN (...) AND deadline < hôm nay)
+create index idx_tasks_status_deadline on tasks (status, current_deadline);
+create index idx_action_status_deadline on action (status, deadline);
+
+-- Lease của job nền chỉ được chạy trên một node (SchedulerLeaseService). Mỗi job có sẵn một dòng.
+create table scheduler_lease (
+    name varchar(64) not null,
+    owner varchar(255),
+    lease_until datetime(6),
+    primary key (name)
+) engine=InnoDB;
+
+insert into scheduler_lease (name, owner, lease_until) values ('overdue-sweep', null, null);
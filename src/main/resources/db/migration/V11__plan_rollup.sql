@@ -0,0 +1,18 @@
+-- Số liệu tổng hợp Task theo (plan, unit được giao, tháng) cho báo cáo quản lý (PlanRollupService).
+-- assignee_id = 0: Task chưa giao unit; month = '': Task không có tháng.
+-- Cập nhật theo nhóm (plan, assignee) khi Task / Action thay đổi; dữ liệu cũ được build lại khi khởi động
+-- (bảng rỗng) hoặc qua POST /api/plan/rollup/rebuild.
+create table plan_rollup (
+    plan_id bigint not null,
+    assignee_id bigint not null,
+    month varchar(255) not null,
+    task_count bigint not null,
+    pending_count bigint not null,
+    in_progress_count bigint not null,
+    completed_count bigint not null,
+    cancelled_count bigint not null,
+    overdue_count bigint not null,
+    progress_sum float(53) not null,
+    extended_count bigint not null,
+    primary key (plan_id, assignee_id, month)
+) engine=InnoDB;
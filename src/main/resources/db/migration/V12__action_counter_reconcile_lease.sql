@@ -0,0 +1,2 @@
+-- Lease của ActionCounterReconciler: job đối soát chỉ chạy trên một node
+insert into scheduler_lease (name, owner, lease_until) values ('action-counter-reconcile', null, null);
@@ -0,0 +1,16 @@
+-- Nhóm Task (cùng uuid) của Plan với tên nhóm cố định: khóa phân trang keyset (plan_id, name, uuid) của
+-- GET /api/task/plan/{planId}/groups và thứ tự / tên nhóm của các API trả về cả danh sách.
+-- Tên nhóm = tên Task đầu tiên (id nhỏ nhất) của nhóm, ghi một lần khi nhóm được tạo (Task không đổi tên).
+create table plan_task_group (
+    plan_id bigint not null,
+    uuid varchar(255) not null,
+    name varchar(255) not null,
+    primary key (plan_id, uuid)
+) engine=InnoDB;
+
+create index idx_plan_task_group_name on plan_task_group (plan_id, name, uuid);
+
+insert into plan_task_group (plan_id, uuid, name)
+select t.plan_id, t.uuid, coalesce(t.name, '') from tasks t
+where t.plan_id is not null and t.uuid is not null
+  and t.id = (select min(t2.id) from tasks t2 where t2.plan_id = t.plan_id and t2.uuid = t.uuid);
@@ -0,0 +1,2 @@
+-- Lease của TaskPurger: job dọn Task đã soft delete chỉ chạy trên một node
+insert into scheduler_lease (name, owner, lease_until) values ('task-purge', null, null);
@@ -0,0 +1,16 @@
+-- Tiến độ xóa nền Plan (PlanDeletionService): lưu trong DB để node nào cũng đọc được và chạy tiếp sau khi restart
+create table plan_deletion (
+    plan_id bigint not null,
+    state varchar(16) not null,
+    total_tasks bigint not null default 0,
+    deleted_tasks bigint not null default 0,
+    started_at datetime(6),
+    finished_at datetime(6),
+    error varchar(1000),
+    primary key (plan_id)
+) engine=InnoDB;
+
+create index idx_plan_deletion_state on plan_deletion (state);
+
+-- Lease của PlanDeletionService: xóa nền chỉ chạy trên một node
+insert into scheduler_lease (name, owner, lease_until) values ('plan-delete', null, null);
@@ -0,0 +1,9 @@
+-- Version của dữ liệu dùng chung hiển thị trong mọi view theo Plan (tên Staff, Unit).
+-- Một dòng duy nhất: thay đổi Staff/Unit chỉ tăng dòng này thay vì UPDATE (và lock) mọi dòng plan.
+create table directory_version (
+    id int not null,
+    version bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+insert into directory_version (id, version) values (1, 0);
@@ -0,0 +1,4 @@
+-- Status của Task / Action trước khi OverdueSweeper chuyển sang OVERDUE (cùng kiểu với cột status).
+-- Gia hạn deadline tới hôm nay hoặc sau đó thì khôi phục lại status này.
+alter table tasks add column status_before_overdue tinyint;
+alter table action add column status_before_overdue enum ('CANCELLED','COMPLETED','IN_PROGRESS','OVERDUE','PENDING');
@@ -0,0 +1,11 @@
+-- Dòng khóa của từng nhóm (plan, assignee) trong plan_rollup (assignee_id = 0: Task chưa giao unit).
+-- PlanRollupService khóa dòng này trước khi tính lại nhóm (DELETE + INSERT ... SELECT):
+-- hai lần tính lại cùng nhóm chạy lần lượt, không ghi đè kết quả của nhau.
+create table plan_rollup_group (
+    plan_id bigint not null,
+    assignee_id bigint not null,
+    primary key (plan_id, assignee_id)
+) engine=InnoDB;
+
+-- Lease của PlanRollupService.rebuild (backfill khi khởi động, POST /api/plan/rollup/rebuild): chỉ một node build lại
+insert into scheduler_lease (name, owner, lease_until) values ('plan-rollup-rebuild', null, null);
@@ -0,0 +1,2 @@
+-- Lease của UnitClosureInitializer: khi nhiều node khởi động cùng lúc, chỉ một node build lại unit_closure
+insert into scheduler_lease (name, owner, lease_until) values ('unit-closure-rebuild', null, null);
@@ -0,0 +1,105 @@
+-- Baseline: schema tại thời điểm chuyển từ ddl-auto=update sang Flyway (id AUTO_INCREMENT, chưa có bộ đếm Action,
+-- unit_closure, id_generator, soft delete). Database đã có dữ liệu (tạo bởi ddl-auto) được baseline ở version 1
+-- và bỏ qua file này (spring.flyway.baseline-on-migrate=true), các thay đổi sau đó nằm từ V2.
+
+create table action (
+    deadline date,
+    is_done bit,
+    id bigint not null auto_increment,
+    task_id bigint,
+    description varchar(255),
+    name varchar(255),
+    status enum ('CANCELLED','COMPLETED','IN_PROGRESS','OVERDUE','PENDING'),
+    primary key (id)
+) engine=InnoDB;
+
+create table action_executor (
+    action_id bigint,
+    executor_id bigint,
+    id bigint not null auto_increment,
+    primary key (id)
+) engine=InnoDB;
+
+create table plan (
+    id bigint not null auto_increment,
+    unit_id bigint,
+    end_month varchar(255),
+    name varchar(255),
+    start_month varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table staff (
+    id bigint not null auto_increment,
+    email varchar(255),
+    name varchar(255),
+    picture varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table task_comment (
+    epoch bigint not null,
+    id bigint not null auto_increment,
+    owner_id bigint,
+    target_id bigint,
+    task_id bigint,
+    message varchar(255),
+    timestamp varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table task_event (
+    next_deadline date,
+    prev_deadline date,
+    created_by bigint,
+    created_date datetime(6),
+    id bigint not null auto_increment,
+    task_id bigint,
+    note varchar(255),
+    next_status enum ('CANCELLED','COMPLETED','IN_PROGRESS','OVERDUE','PENDING'),
+    prev_status enum ('CANCELLED','COMPLETED','IN_PROGRESS','OVERDUE','PENDING'),
+    primary key (id)
+) engine=InnoDB;
+
+create table task_executor (
+    executor_id bigint,
+    id bigint not null auto_increment,
+    task_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table tasks (
+    actual_start_date date,
+    current_deadline date,
+    end_date date,
+    initial_deadline date,
+    initial_start_date date,
+    progress float(53) not null,
+    status tinyint,
+    assignee_id bigint,
+    assigner_id bigint,
+    id bigint not null auto_increment,
+    parent_task_id bigint,
+    plan_id bigint,
+    description varchar(255),
+    month varchar(255),
+    name varchar(255),
+    uuid varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table unit (
+    id bigint not null auto_increment,
+    parent_unit_id bigint,
+    head varchar(255),
+    name varchar(255),
+    level enum ('DEPARTMENT','FUNCTION','TEAM'),
+    primary key (id)
+) engine=InnoDB;
+
+create table unit_staff (
+    id bigint not null auto_increment,
+    staff_id bigint,
+    unit_id bigint,
+    primary key (id)
+) engine=InnoDB;
@@ -0,0 +1,10 @@
+-- Bộ đếm Action trên Task (Task.actionTotal / actionCompleted), cập nhật cùng transaction với thay đổi Action.
+-- Index tạo trước để backfill (và countByTaskIds / recomputeActionCounters) đọc action theo task_id.
+create index idx_action_task_status on action (task_id, status);
+
+alter table tasks add column action_total integer not null default 0;
+alter table tasks add column action_completed integer not null default 0;
+
+update tasks set
+    action_total = (select count(*) from action a where a.task_id = tasks.id),
+    action_completed = (select count(*) from action a where a.task_id = tasks.id and a.status = 'COMPLETED');
@@ -0,0 +1,19 @@
+-- Closure table của cây Unit: mỗi cặp (tổ tiên, con cháu) một dòng, kể cả (u, u) với depth 0.
+create table unit_closure (
+    depth integer not null,
+    ancestor_id bigint not null,
+    descendant_id bigint not null,
+    primary key (ancestor_id, descendant_id)
+) engine=InnoDB;
+
+create index idx_unit_closure_descendant on unit_closure (descendant_id, depth);
+
+-- Backfill từ parent_unit_id (giống UnitClosureRepository.insertFromAdjacencyList)
+insert into unit_closure (ancestor_id, descendant_id, depth)
+with recursive closure (ancestor_id, descendant_id, depth) as (
+    select u.id, u.id, 0 from unit u
+    union all
+    select c.ancestor_id, u.id, c.depth + 1 from closure c join unit u on u.parent_unit_id = c.descendant_id
+    where c.depth < 64
+)
+select ancestor_id, descendant_id, min(depth) from closure group by ancestor_id, descendant_id;
@@ -0,0 +1,30 @@
+-- Sinh id theo block (TableGenerator, allocationSize 50) thay cho AUTO_INCREMENT: một dòng mỗi bảng
+-- (sequence_name = tên bảng), next_val bắt đầu trên MAX(id) như IdGeneratorMigration.
+create table id_generator (
+    next_val bigint,
+    sequence_name varchar(255) not null,
+    primary key (sequence_name)
+) engine=InnoDB;
+
+insert into id_generator (sequence_name, next_val) select 'tasks', coalesce(max(id), 0) + 50 from tasks;
+insert into id_generator (sequence_name, next_val) select 'plan', coalesce(max(id), 0) + 50 from plan;
+insert into id_generator (sequence_name, next_val) select 'unit', coalesce(max(id), 0) + 50 from unit;
+insert into id_generator (sequence_name, next_val) select 'staff', coalesce(max(id), 0) + 50 from staff;
+insert into id_generator (sequence_name, next_val) select 'unit_staff', coalesce(max(id), 0) + 50 from unit_staff;
+insert into id_generator (sequence_name, next_val) select 'action', coalesce(max(id), 0) + 50 from action;
+insert into id_generator (sequence_name, next_val) select 'action_executor', coalesce(max(id), 0) + 50 from action_executor;
+insert into id_generator (sequence_name, next_val) select 'task_executor', coalesce(max(id), 0) + 50 from task_executor;
+insert into id_generator (sequence_name, next_val) select 'task_event', coalesce(max(id), 0) + 50 from task_event;
+insert into id_generator (sequence_name, next_val) select 'task_comment', coalesce(max(id), 0) + 50 from task_comment;
+
+-- Id do Hibernate cấp, bỏ AUTO_INCREMENT để INSERT thiếu id báo lỗi thay vì sinh id trùng với block đã cấp
+alter table tasks modify id bigint not null;
+alter table plan modify id bigint not null;
+alter table unit modify id bigint not null;
+alter table staff modify id bigint not null;
+alter table unit_staff modify id bigint not null;
+alter table action modify id bigint not null;
+alter table action_executor modify id bigint not null;
+alter table task_executor modify id bigint not null;
+alter table task_event modify id bigint not null;
+alter table task_comment modify id bigint not null;
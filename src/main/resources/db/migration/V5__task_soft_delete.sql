@@ -0,0 +1,2 @@
+-- Soft delete Task (@SoftDelete): Task bị đánh dấu deleted, Action / Comment / Event / Executor được TaskPurger xóa sau.
+alter table tasks add column deleted bit not null default 0 comment 'Soft-delete indicator';
@@ -0,0 +1,37 @@
+-- Index cho các query trong TaskRepository, PlanRepository, ActionRepository và các lookup theo khóa ngoại.
+-- Tên index trùng với @Table(indexes = ...) trên entity. idx_action_task_status có từ V2.
+
+-- tasks
+-- findByPlanId, findByPlanIdAndUuidIn, findGroupKeysAfter (GROUP BY uuid, MIN(name): covering), export,
+-- countAllByPlanId / findAllIdsByPlanId
+create index idx_tasks_plan_uuid_name on tasks (plan_id, uuid, name);
+-- findByPlanIdAndAssigneeId, findRootTasksByPlanAndUnit, findByPlanIdUnderUnit (JOIN closure qua assignee_id),
+-- findPlansAsMember / findPlansAsMemberUnderUnit (covering assignee_id -> plan_id)
+create index idx_tasks_assignee_plan on tasks (assignee_id, plan_id);
+-- findByParentTaskId, nhánh descendants của findAssignmentChain
+create index idx_tasks_parent on tasks (parent_task_id);
+-- TaskPurger: findDeletedTaskIds (deleted = true ORDER BY id)
+create index idx_tasks_deleted on tasks (deleted);
+
+-- action_executor: findByActionId(In), deleteByTaskIds / findActionsByExecutor, findByExecutorId
+create index idx_action_executor_action on action_executor (action_id, executor_id);
+create index idx_action_executor_executor on action_executor (executor_id, action_id);
+
+-- task_executor: findByTaskId(In), deleteByTaskIds / findTasksByExecutor, findPlansByParticipant
+create index idx_task_executor_task on task_executor (task_id, executor_id);
+create index idx_task_executor_executor on task_executor (executor_id, task_id);
+
+-- plan: findByUnitId, findPlansOwnedUnderUnit
+create index idx_plan_unit on plan (unit_id);
+
+-- unit: findByParentUnitId, rebuild closure table
+create index idx_unit_parent on unit (parent_unit_id);
+
+-- unit_staff: findByUnitId(In), findStaffIdsUnderUnit (covering unit_id -> staff_id)
+create index idx_unit_staff_unit on unit_staff (unit_id, staff_id);
+
+-- task_comment: findByTaskId, deleteByTaskIds
+create index idx_task_comment_task on task_comment (task_id);
+
+-- task_event: findByTaskIdOrderByIdDesc (id nằm sẵn cuối secondary index), deleteByTaskIds
+create index idx_task_event_task on task_event (task_id);
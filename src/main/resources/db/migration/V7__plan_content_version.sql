@@ -0,0 +1,4 @@
+-- Version nội dung của Plan: tăng mỗi khi Task, Action, Executor, Comment trong Plan thay đổi
+-- (PlanVersionService), dùng làm ETag cho GET /api/task/plan/{planId}...
+-- Đọc theo khóa chính nên request 304 chỉ tốn một lookup, không đụng tới bảng tasks.
+alter table plan add column content_version bigint not null default 0;
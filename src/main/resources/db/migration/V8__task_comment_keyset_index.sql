@@ -0,0 +1,4 @@
+-- task_comment: trang comment keyset theo (task_id, epoch, id) (TaskCommentRepository.findPageBefore).
+-- Index mới bao phủ luôn findByTaskId / deleteByTaskIds (tiền tố task_id) nên bỏ index cũ.
+create index idx_task_comment_task_epoch on task_comment (task_id, epoch, id);
+drop index idx_task_comment_task on task_comment;
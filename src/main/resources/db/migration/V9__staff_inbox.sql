@@ -0,0 +1,27 @@
+-- Read model "việc của tôi": mỗi dòng là một lần giao việc cho một Staff.
+-- action_id = 0: Staff là executor của Task; action_id > 0: Staff là executor của Action đó (task_id = Task chứa Action).
+-- plan_id chép từ tasks.plan_id (không đổi sau khi tạo Task). Được duy trì bởi StaffInboxService.
+-- /api/my-work đọc bằng một range scan theo staff_id (khóa chính / idx_staff_inbox_staff_plan) rồi lookup khóa chính.
+create table staff_inbox (
+    staff_id bigint not null,
+    action_id bigint not null,
+    task_id bigint not null,
+    plan_id bigint,
+    primary key (staff_id, action_id, task_id)
+) engine=InnoDB;
+
+-- findPlansByParticipant (covering staff_id -> plan_id)
+create index idx_staff_inbox_staff_plan on staff_inbox (staff_id, plan_id);
+-- Xóa theo Task / Action (deleteTask, deleteAction, TaskCascadeDeleter)
+create index idx_staff_inbox_task on staff_inbox (task_id, action_id);
+
+-- Backfill từ executor link của các Task chưa bị xóa
+insert into staff_inbox (staff_id, action_id, task_id, plan_id)
+select distinct te.executor_id, 0, t.id, t.plan_id
+from task_executor te join tasks t on t.id = te.task_id
+where t.deleted = false and te.executor_id is not null;
+
+insert into staff_inbox (staff_id, action_id, task_id, plan_id)
+select distinct ae.executor_id, a.id, t.id, t.plan_id
+from action_executor ae join action a on a.id = ae.action_id join tasks t on t.id = a.task_id
+where t.deleted = false and ae.executor_id is not null;
@@ -0,0 +1,43 @@
+package tds.op.taskmanager;
+
+import tds.op.taskmanager.service.SqlStatementCounter;
+
+/**
+ * Tiện ích cho integration test: đếm số câu SQL mà một đoạn code chạy trên thread hiện tại
+ * (MockMvc chạy controller trên chính thread của test nên đo được cả một request).
+ * <pre>
+ *   SqlStatements.assertAtMost(6, () -> mockMvc.perform(get("/api/task/plan/{id}", planId)));
+ * </pre>
+ */
+public final class SqlStatements {
+
+    private SqlStatements() {
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * Chạy action, trả về số liệu JDBC (số câu SQL, số dòng, thời gian) trong lúc chạy.
+     */
+    public static SqlStatementCounter.Scope count(Action action) throws Exception {
+        try (SqlStatementCounter.Scope scope = SqlStatementCounter.start()) {
+            action.run();
+            return scope;
+        }
+    }
+
+    /**
+     * Fail nếu action chạy nhiều hơn maxStatements câu SQL.
+     */
+    public static SqlStatementCounter.Scope assertAtMost(long maxStatements, Action action) throws Exception {
+        SqlStatementCounter.Scope scope = count(action);
+        if (scope.getStatements() > maxStatements) {
+            throw new AssertionError("Expected at most " + maxStatements + " SQL statements but was "
+                    + scope.getStatements() + " (" + scope.getRows() + " rows)");
+        }
+        return scope;
+    }
+}
@@ -0,0 +1,126 @@
+package tds.op.taskmanager.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import tds.op.taskmanager.repository.TaskCommentRepository;
+import tds.op.taskmanager.repository.TaskRepository;
+import tds.op.taskmanager.representation.Task;
+import tds.op.taskmanager.representation.TaskComment;
+import tds.op.taskmanager.representation.TaskStatus;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/task/{taskId}/comments/page: duyệt hết các trang theo nextCursor ra đúng thứ tự (epoch, id) giảm dần,
+ * không trùng, không sót, kể cả khi ranh giới trang rơi vào giữa các comment cùng epoch.
+ * Reply chỉ được trỏ tới comment của cùng Task.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@Transactional
+class TaskControllerCommentPageTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private JsonMapper jsonMapper;
+    @Autowired private TaskRepository taskRepository;
+    @Autowired private TaskCommentRepository taskCommentRepository;
+
+    @Test
+    void pagesCoverAllCommentsAcrossPageBoundaries() throws Exception {
+        Long taskId = createTask("comment-page-a");
+        Long otherTaskId = createTask("comment-page-b");
+        TaskComment foreign = comment(otherTaskId, 1_500, "other task", null);
+
+        // Ba comment cùng epoch 2000: ranh giới trang (size 2) rơi vào giữa nhóm này
+        List<TaskComment> comments = new ArrayList<>();
+        TaskComment oldest = comment(taskId, 1_000, "oldest", null);
+        comments.add(oldest);
+        for (int i = 0; i < 3; i++) comments.add(comment(taskId, 2_000, "tie " + i, null));
+        comments.add(comment(taskId, 3_000, "legacy cross-task reply", foreign.getId()));
+        comments.add(comment(taskId, 4_000, "plain", null));
+        TaskComment reply = comment(taskId, 5_000, "reply to oldest", oldest.getId());
+        comments.add(reply);
+
+        List<Long> expected = comments.stream()
+                .sorted(Comparator.comparingLong(TaskComment::getEpoch).thenComparingLong(TaskComment::getId).reversed())
+                .map(TaskComment::getId).toList();
+
+        List<Long> seen = new ArrayList<>();
+        Map<Long, JsonNode> byId = new HashMap<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/task/{taskId}/comments/page", taskId).param("size", String.valueOf(PAGE_SIZE));
+            if (cursor != null) request.param("cursor", cursor);
+            JsonNode page = jsonMapper.readTree(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            for (JsonNode c : page.get("comments")) {
+                seen.add(c.get("id").asLong());
+                byId.put(c.get("id").asLong(), c);
+            }
+            JsonNode next = page.get("nextCursor");
+            cursor = next == null || next.isNull() ? null : next.asString();
+            assertTrue(++pages <= comments.size(), "cursor does not advance");
+        } while (cursor != null);
+
+        assertEquals(expected, seen);
+        assertEquals((comments.size() + PAGE_SIZE - 1) / PAGE_SIZE, pages);
+
+        // Target nằm ngoài trang vẫn có excerpt; target thuộc Task khác bị bỏ qua
+        assertEquals("oldest", byId.get(reply.getId()).get("targetExcerpt").asString());
+        JsonNode legacy = byId.get(comments.get(4).getId());
+        assertTrue(legacy.get("targetExcerpt") == null || legacy.get("targetExcerpt").isNull());
+    }
+
+    @Test
+    void replyToCommentOfAnotherTaskIsRejected() throws Exception {
+        Long taskId = createTask("comment-reply-a");
+        Long otherTaskId = createTask("comment-reply-b");
+        TaskComment foreign = comment(otherTaskId, 1_000, "other task", null);
+        TaskComment local = comment(taskId, 1_000, "same task", null);
+
+        mockMvc.perform(post("/api/task/comment").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"taskId\": " + taskId + ", \"message\": \"x\", \"target\": {\"id\": " + foreign.getId() + "}}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/task/comment").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"taskId\": " + taskId + ", \"message\": \"x\", \"target\": {\"id\": " + local.getId() + "}}"))
+                .andExpect(status().isOk());
+    }
+
+    private Long createTask(String uuid) {
+        Task task = new Task();
+        task.setUuid(uuid);
+        task.setName("Comment test task");
+        task.setMonth("2025-01");
+        task.setStatus(TaskStatus.PENDING);
+        return taskRepository.save(task).getId();
+    }
+
+    private TaskComment comment(Long taskId, long epoch, String message, Long targetId) {
+        TaskComment c = new TaskComment();
+        c.setTaskId(taskId);
+        c.setEpoch(epoch);
+        c.setMessage(message);
+        c.setTargetId(targetId);
+        return taskCommentRepository.save(c);
+    }
+}
@@ -0,0 +1,90 @@
+package tds.op.taskmanager.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import tds.op.taskmanager.SqlStatements;
+import tds.op.taskmanager.repository.*;
+import tds.op.taskmanager.representation.*;
+import tds.op.taskmanager.service.PlanVersionService;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/task/plan/{planId} trả ETag theo version của Plan: không đổi -> 304 với một câu SQL,
+ * có thay đổi trong Plan (VD: comment mới) hoặc trong Staff/Unit -> 200 với ETag mới.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@Transactional
+class TaskControllerConditionalGetTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private PlanRepository planRepository;
+    @Autowired private UnitRepository unitRepository;
+    @Autowired private TaskRepository taskRepository;
+    @Autowired private PlanVersionService planVersionService;
+
+    @Test
+    void unchangedPlanViewIsNotModified() throws Exception {
+        Unit unit = new Unit();
+        unit.setName("ETag test unit");
+        unitRepository.save(unit);
+
+        Plan plan = new Plan();
+        plan.setName("ETag test plan");
+        plan.setUnitId(unit.getId());
+        planRepository.save(plan);
+
+        Task task = new Task();
+        task.setPlanId(plan.getId());
+        task.setUuid("etag-test");
+        task.setName("Task");
+        task.setMonth("2025-01");
+        task.setStatus(TaskStatus.PENDING);
+        task.setAssigneeId(unit.getId());
+        taskRepository.save(task);
+
+        String etag = mockMvc.perform(get("/api/task/plan/{planId}", plan.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        SqlStatements.assertAtMost(1, () -> mockMvc.perform(get("/api/task/plan/{planId}", plan.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string("")));
+        mockMvc.perform(get("/api/task/plan/{planId}/{unitId}", plan.getId(), unit.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/api/task/comment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"taskId\": " + task.getId() + ", \"message\": \"changed\"}"))
+                .andExpect(status().isOk());
+
+        String changed = mockMvc.perform(get("/api/task/plan/{planId}", plan.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+
+        // Staff / Unit đổi (directory_version) cũng làm ETag của mọi Plan đổi
+        planVersionService.bumpAll();
+        mockMvc.perform(get("/api/task/plan/{planId}", plan.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, changed))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,95 @@
+package tds.op.taskmanager.controller;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import tds.op.taskmanager.repository.ActionRepository;
+import tds.op.taskmanager.repository.TaskRepository;
+import tds.op.taskmanager.representation.Action;
+import tds.op.taskmanager.representation.Task;
+import tds.op.taskmanager.representation.TaskStatus;
+import tds.op.taskmanager.service.OverdueSweeper;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * OverdueSweeper chuyển Task / Action quá hạn sang OVERDUE; gia hạn deadline tới sau hôm nay thì trở lại status cũ,
+ * gia hạn tới một ngày vẫn đã qua thì giữ OVERDUE.
+ */
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "taskmanager.overdue-sweep.initial-delay-ms=3600000"})
+@AutoConfigureMockMvc
+@Transactional
+class TaskControllerOverdueTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private OverdueSweeper overdueSweeper;
+    @Autowired private TaskRepository taskRepository;
+    @Autowired private ActionRepository actionRepository;
+    @Autowired private EntityManager entityManager;
+
+    @Test
+    void extendingDeadlineRestoresStatusBeforeSweep() throws Exception {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        Task task = new Task();
+        task.setUuid("overdue-restore");
+        task.setName("Overdue test task");
+        task.setMonth("2025-01");
+        task.setStatus(TaskStatus.IN_PROGRESS);
+        task.setCurrentDeadline(yesterday);
+        Long taskId = taskRepository.saveAndFlush(task).getId();
+
+        Action action = new Action();
+        action.setTaskId(taskId);
+        action.setName("Overdue test action");
+        action.setStatus(TaskStatus.PENDING);
+        action.setDeadline(yesterday);
+        Long actionId = actionRepository.saveAndFlush(action).getId();
+
+        overdueSweeper.sweep();
+        flushAndClear();
+        assertEquals(TaskStatus.OVERDUE, taskRepository.findById(taskId).orElseThrow().getStatus());
+        assertEquals(TaskStatus.OVERDUE, actionRepository.findById(actionId).orElseThrow().getStatus());
+
+        // Deadline mới vẫn đã qua: giữ OVERDUE
+        extendTask(taskId, yesterday.minusDays(1));
+        assertEquals(TaskStatus.OVERDUE, taskRepository.findById(taskId).orElseThrow().getStatus());
+
+        LocalDate nextWeek = LocalDate.now().plusDays(7);
+        extendTask(taskId, nextWeek);
+        mockMvc.perform(post("/api/task/action/{actionId}/extend-deadline", actionId).param("newDate", nextWeek.toString()))
+                .andExpect(status().isOk());
+        flushAndClear();
+
+        Task restoredTask = taskRepository.findById(taskId).orElseThrow();
+        assertEquals(TaskStatus.IN_PROGRESS, restoredTask.getStatus());
+        assertEquals(nextWeek, restoredTask.getCurrentDeadline());
+        assertNull(restoredTask.getStatusBeforeOverdue());
+        Action restoredAction = actionRepository.findById(actionId).orElseThrow();
+        assertEquals(TaskStatus.PENDING, restoredAction.getStatus());
+        assertEquals(nextWeek, restoredAction.getDeadline());
+    }
+
+    // Request chạy trong transaction của test: ghi thay đổi xuống DB rồi đọc lại từ đầu
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void extendTask(Long taskId, LocalDate deadline) throws Exception {
+        mockMvc.perform(post("/api/task/{taskId}/extend-deadline", taskId)
+                        .param("newDate", deadline.toString())
+                        .param("reason", "test")
+                        .param("staffId", "1"))
+                .andExpect(status().isOk());
+        flushAndClear();
+    }
+}
@@ -0,0 +1,94 @@
+package tds.op.taskmanager.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import tds.op.taskmanager.SqlStatements;
+import tds.op.taskmanager.repository.*;
+import tds.op.taskmanager.representation.*;
+import tds.op.taskmanager.service.SqlStatementCounter;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Số câu SQL của GET /api/task/plan/{planId} không phụ thuộc số Task (không N+1).
+ * Dữ liệu tạo trong transaction của test và rollback sau khi chạy.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@Transactional
+class TaskControllerStatementBudgetTest {
+
+    private static final int MAX_STATEMENTS = 6;
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private PlanRepository planRepository;
+    @Autowired private UnitRepository unitRepository;
+    @Autowired private StaffRepository staffRepository;
+    @Autowired private TaskRepository taskRepository;
+    @Autowired private TaskExecutorRepository taskExecutorRepository;
+
+    @Test
+    void getTasksByPlanRunsConstantNumberOfStatements() throws Exception {
+        Unit unit = new Unit();
+        unit.setName("Budget test unit");
+        unitRepository.save(unit);
+
+        Long small = createPlan(unit, 3);
+        Long large = createPlan(unit, 40);
+
+        // Lượt đầu làm nóng cache (StaffDirectory, OrgTreeCache) để hai lần đo cùng điều kiện
+        mockMvc.perform(get("/api/task/plan/{planId}", small)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/task/plan/{planId}", large)).andExpect(status().isOk());
+
+        SqlStatementCounter.Scope smallPlan = SqlStatements.assertAtMost(MAX_STATEMENTS,
+                () -> mockMvc.perform(get("/api/task/plan/{planId}", small)).andExpect(status().isOk()));
+        SqlStatementCounter.Scope largePlan = SqlStatements.assertAtMost(MAX_STATEMENTS,
+                () -> mockMvc.perform(get("/api/task/plan/{planId}", large)).andExpect(status().isOk()));
+
+        assertTrue(largePlan.getRows() >= 120, "rows: " + largePlan.getRows());
+        assertEquals(smallPlan.getStatements(), largePlan.getStatements());
+    }
+
+    private Long createPlan(Unit unit, int groups) {
+        Plan plan = new Plan();
+        plan.setName("Budget test plan");
+        plan.setUnitId(unit.getId());
+        plan.setStartMonth("2025-01");
+        plan.setEndMonth("2025-03");
+        planRepository.save(plan);
+
+        for (int g = 0; g < groups; g++) {
+            Staff staff = new Staff();
+            staff.setName("Executor " + g);
+            staffRepository.save(staff);
+
+            String uuid = UUID.randomUUID().toString();
+            for (int m = 1; m <= 3; m++) {
+                Task task = new Task();
+                task.setPlanId(plan.getId());
+                task.setUuid(uuid);
+                task.setName("Task " + g);
+                task.setMonth("2025-0" + m);
+                task.setStatus(TaskStatus.PENDING);
+                task.setAssignerId(unit.getId());
+                task.setAssigneeId(unit.getId());
+                taskRepository.save(task);
+
+                TaskExecutor executor = new TaskExecutor();
+                executor.setTaskId(task.getId());
+                executor.setExecutorId(staff.getId());
+                taskExecutorRepository.save(executor);
+            }
+        }
+        return plan.getId();
+    }
+}
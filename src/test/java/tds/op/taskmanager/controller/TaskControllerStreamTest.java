@@ -0,0 +1,130 @@
+package tds.op.taskmanager.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import tds.op.taskmanager.representation.TaskChangeType;
+import tds.op.taskmanager.service.TaskChangeHub;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SSE: các client không bao giờ đọc (TCP buffer đầy, lần ghi bị chặn) không làm chậm client khác,
+ * và bị gỡ khỏi hub sau write-timeout-ms.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "taskmanager.sse.write-timeout-ms=1000",
+        "taskmanager.sse.write-check-ms=200",
+        // Kết nối SSE còn mở khi đóng context: không chờ graceful shutdown
+        "server.shutdown=immediate"
+})
+class TaskControllerStreamTest {
+
+    // Nhiều hơn số thread gửi cố định trước đây (4)
+    private static final int STALLED_CLIENTS = 8;
+    private static final long STALLED_PLAN = 900_001L;
+    private static final long READING_PLAN = 900_002L;
+
+    @LocalServerPort private int port;
+    @Autowired private TaskChangeHub taskChangeHub;
+    @Autowired private MeterRegistry meterRegistry;
+
+    @Test
+    void clientThatNeverReadsDoesNotBlockOthers() throws Exception {
+        List<Socket> stalled = new ArrayList<>();
+        try {
+            for (int i = 0; i < STALLED_CLIENTS; i++) {
+                Socket socket = new Socket();
+                socket.setReceiveBufferSize(1024);
+                socket.connect(new InetSocketAddress("localhost", port));
+                OutputStream out = socket.getOutputStream();
+                out.write(("GET /api/task/plan/" + STALLED_PLAN + "/stream HTTP/1.1\r\nHost: localhost\r\n" +
+                        "Accept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                stalled.add(socket);
+            }
+
+            BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+            HttpClient.newHttpClient().sendAsync(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/task/plan/" + READING_PLAN + "/stream")).build(),
+                    HttpResponse.BodyHandlers.fromLineSubscriber(new LineCollector(lines)));
+            awaitTrue(() -> subscribers() == STALLED_CLIENTS + 1, 10_000, "subscribers: " + subscribers());
+
+            // Phát liên tục cho các client không đọc tới khi TCP buffer đầy và mọi lượt gửi của chúng bị chặn
+            Thread flood = new Thread(() -> {
+                long n = 0;
+                while (!Thread.currentThread().isInterrupted() && writeTimeouts() < STALLED_CLIENTS) {
+                    taskChangeHub.publish(TaskChangeType.COMMENT, n, STALLED_PLAN, n++);
+                }
+            });
+            flood.start();
+            try {
+                Thread.sleep(500);
+                taskChangeHub.publish(TaskChangeType.COMMENT, 42L, READING_PLAN, 7L);
+                awaitTrue(() -> lines.stream().anyMatch(l -> l.contains("\"taskId\":42")), 2_000,
+                        "reading client did not receive its event");
+
+                awaitTrue(() -> subscribers() == 1, 15_000, "stalled clients still subscribed: " + (subscribers() - 1));
+            } finally {
+                flood.interrupt();
+                flood.join();
+            }
+        } finally {
+            for (Socket socket : stalled) socket.close();
+        }
+    }
+
+    private double writeTimeouts() {
+        return meterRegistry.get("taskmanager.sse.write-timeouts").counter().count();
+    }
+
+    private double subscribers() {
+        return meterRegistry.get("taskmanager.sse.subscribers").gauge().value();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, long timeoutMillis, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(50);
+        }
+    }
+
+    private record LineCollector(BlockingQueue<String> lines) implements java.util.concurrent.Flow.Subscriber<String> {
+        @Override
+        public void onSubscribe(java.util.concurrent.Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String item) {
+            lines.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
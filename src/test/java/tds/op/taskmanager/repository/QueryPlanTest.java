@@ -0,0 +1,312 @@
+package tds.op.taskmanager.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import tds.op.taskmanager.representation.TaskStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Kiểm tra query plan của các repository query: chạy từng query, lấy câu SQL thực tế (kèm giá trị tham số)
+ * rồi EXPLAIN trên MySQL/MariaDB. Fail nếu có bảng bị quét toàn bộ (type ALL hoặc full index scan).
+ *
+ * Cần một MySQL-compatible DB local (cùng user/password với application.properties). Test tạo database riêng
+ * task_manager_explain, chạy Flyway migration, sinh dữ liệu mẫu và ANALYZE trước khi EXPLAIN.
+ * Chạy: TASKMANAGER_EXPLAIN_TESTS=true mvn test -Dtest=QueryPlanTest
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:mysql://localhost:3306/task_manager_explain?createDatabaseIfNotExist=true" +
+                "&useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC&rewriteBatchedStatements=true" +
+                "&queryInterceptors=tds.op.taskmanager.repository.SqlCaptureInterceptor",
+        "spring.jpa.show-sql=false",
+        "taskmanager.action-counters.reconcile-on-startup=false"
+})
+@EnabledIfEnvironmentVariable(named = "TASKMANAGER_EXPLAIN_TESTS", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    private static final int UNITS = 300;
+    private static final int STAFF = 1000;
+    private static final int PLANS = 300;
+    private static final int TASKS = 30000;
+
+    private static final List<Long> IDS = List.of(10L, 20L, 30L);
+    private static final List<TaskStatus> OPEN = List.of(TaskStatus.PENDING, TaskStatus.IN_PROGRESS);
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private TaskRepository taskRepository;
+    @Autowired private PlanRepository planRepository;
+    @Autowired private ActionRepository actionRepository;
+    @Autowired private ActionExecutorRepository actionExecutorRepository;
+    @Autowired private TaskExecutorRepository taskExecutorRepository;
+    @Autowired private TaskCommentRepository taskCommentRepository;
+    @Autowired private TaskEventRepository taskEventRepository;
+    @Autowired private UnitRepository unitRepository;
+    @Autowired private UnitStaffRepository unitStaffRepository;
+    @Autowired private UnitClosureRepository unitClosureRepository;
+    @Autowired private StaffInboxRepository staffInboxRepository;
+    @Autowired private SchedulerLeaseRepository schedulerLeaseRepository;
+    @Autowired private PlanRollupRepository planRollupRepository;
+    @Autowired private PlanTaskGroupRepository planTaskGroupRepository;
+    @Autowired private PlanDeletionRepository planDeletionRepository;
+
+    @BeforeAll
+    void seed() {
+        for (String table : List.of("plan_task_group", "plan_rollup", "staff_inbox", "action_executor", "action", "task_executor", "task_comment", "task_event",
+                "tasks", "plan", "unit_staff", "unit_closure", "unit", "staff")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 1; i <= UNITS; i++) {
+            rows.add(new Object[]{i, i == 1 ? null : (i - 2) / 5 + 1, "Unit " + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO unit (id, parent_unit_id, name) VALUES (?, ?, ?)", rows);
+        transactionTemplate.executeWithoutResult(status -> unitClosureRepository.insertFromAdjacencyList());
+
+        rows.clear();
+        for (long i = 1; i <= STAFF; i++) {
+            rows.add(new Object[]{i, "Staff " + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO staff (id, name) VALUES (?, ?)", rows);
+
+        rows.clear();
+        for (long i = 1; i <= STAFF; i++) {
+            rows.add(new Object[]{i, i, i % UNITS + 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO unit_staff (id, staff_id, unit_id) VALUES (?, ?, ?)", rows);
+
+        rows.clear();
+        for (long i = 1; i <= PLANS; i++) {
+            rows.add(new Object[]{i, i % UNITS + 1, "Plan " + i, "2025-01", "2025-12"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO plan (id, unit_id, name, start_month, end_month) VALUES (?, ?, ?, ?, ?)", rows);
+
+        rows.clear();
+        for (long i = 1; i <= TASKS; i++) {
+            long plan = i % PLANS + 1;
+            rows.add(new Object[]{i, "p" + plan + "-" + (i / PLANS) % 20, "Task " + (i / PLANS) % 20, "2025-" + String.format("%02d", i % 12 + 1),
+                    plan, i > PLANS ? i - PLANS : null, (i * 7) % UNITS + 1, i % 5, i % 100 == 0});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tasks (id, uuid, name, month, plan_id, parent_task_id, assignee_id, status, deleted, " +
+                "progress, action_total, action_completed) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0, 0)", rows);
+
+        rows.clear();
+        for (long i = 1; i <= TASKS; i++) {
+            rows.add(new Object[]{i, i, i % STAFF + 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO task_executor (id, task_id, executor_id) VALUES (?, ?, ?)", rows);
+        jdbcTemplate.batchUpdate("INSERT INTO task_comment (id, task_id, owner_id, epoch) VALUES (?, ?, ?, 0)", rows);
+        jdbcTemplate.batchUpdate("INSERT INTO task_event (id, task_id, created_by) VALUES (?, ?, ?)", rows);
+
+        rows.clear();
+        List<Object[]> executors = new ArrayList<>();
+        for (long i = 1; i <= TASKS * 2L; i++) {
+            rows.add(new Object[]{i, (i - 1) / 2 + 1, i % 3 == 0 ? "COMPLETED" : "PENDING"});
+            executors.add(new Object[]{i, i, (i * 3) % STAFF + 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO action (id, task_id, status) VALUES (?, ?, ?)", rows);
+        jdbcTemplate.batchUpdate("INSERT INTO action_executor (id, action_id, executor_id) VALUES (?, ?, ?)", executors);
+        transactionTemplate.executeWithoutResult(status -> {
+            staffInboxRepository.insertAllTaskAssignments();
+            staffInboxRepository.insertAllActionAssignments();
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            for (long plan = 1; plan <= PLANS; plan++) planRollupRepository.insertPlan(plan);
+        });
+        transactionTemplate.executeWithoutResult(status -> planTaskGroupRepository.insertAllFromTasks());
+
+        for (String table : List.of("unit", "unit_closure", "staff", "unit_staff", "plan", "tasks",
+                "task_executor", "task_comment", "task_event", "action", "action_executor", "staff_inbox", "plan_rollup", "plan_task_group")) {
+            jdbcTemplate.queryForList("ANALYZE TABLE " + table);
+        }
+    }
+
+    // =========================================================================
+    // TaskRepository
+    // =========================================================================
+
+    @Test
+    void taskQueries() {
+        assertIndexed(() -> taskRepository.findByPlanId(7L));
+        assertIndexed(() -> taskRepository.findByPlanIdAndAssigneeId(7L, 49L));
+        assertIndexed(() -> taskRepository.findByParentTaskId(7L));
+        assertIndexed(() -> taskRepository.findByPlanIdAndUuidIn(7L, List.of("p7-1", "p7-2")));
+        assertIndexed(() -> taskRepository.findRootTasksByPlanAndUnit(7L, 49L));
+        assertIndexed(() -> taskRepository.findByPlanIdUnderUnit(7L, 12L));
+        assertIndexed(() -> taskRepository.findTasksByExecutor(7L));
+        assertIndexed(() -> taskRepository.countByExecutor(7L, LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 8)));
+        assertIndexed(() -> taskRepository.findOpenTasksByExecutor(7L, List.of(TaskStatus.COMPLETED, TaskStatus.CANCELLED), Limit.of(20)));
+        assertIndexed(() -> taskRepository.findByIdGreaterThanOrderByIdAsc(1000L, Limit.of(500)));
+        assertIndexed(() -> taskRepository.findDeletedTaskIds(200));
+        assertIndexed(() -> taskRepository.countAllByPlanId(7L));
+        assertIndexed(() -> taskRepository.findAllIdsByPlanId(7L, 500));
+        // Bảng tạm của CTE đệ quy luôn được đọc hết, chỉ kiểm tra các lần truy cập bảng tasks
+        assertIndexed(() -> taskRepository.findAssignmentChain(9007L, 64), "ancestors", "descendants", "root", "a", "d");
+        // findOrphanedPlanIds: cố ý quét toàn bộ tasks (chỉ chạy một lần khi khởi động), không kiểm tra ở đây
+    }
+
+    @Test
+    void taskWrites() {
+        assertIndexedInRollback(() -> taskRepository.adjustActionCounters(7L, 1, 0));
+        assertIndexedInRollback(() -> taskRepository.recomputeActionCounters(IDS));
+        assertIndexedInRollback(() -> taskRepository.markDeleted(IDS));
+        assertIndexedInRollback(() -> taskRepository.purgeDeleted(IDS));
+        assertIndexedInRollback(() -> taskRepository.lockOverdueIds(OPEN, LocalDate.of(2025, 6, 1), 500));
+        assertIndexedInRollback(() -> taskRepository.markOverdue(IDS));
+        assertIndexedInRollback(() -> taskRepository.lockById(7L));
+    }
+
+    // =========================================================================
+    // PlanRepository
+    // =========================================================================
+
+    @Test
+    void planQueries() {
+        assertIndexed(() -> planRepository.findByUnitId(7L));
+        assertIndexed(() -> planRepository.findPlansAsMember(49L));
+        assertIndexed(() -> planRepository.findPlansByParticipant(7L));
+        assertIndexed(() -> planRepository.findPlansOwnedUnderUnit(12L));
+        assertIndexed(() -> planRepository.findPlansAsMemberUnderUnit(12L));
+        assertIndexed(() -> planRepository.findViewVersion(7L));
+        assertIndexedInRollback(() -> planRepository.incrementContentVersion(List.of(7L)));
+        assertIndexedInRollback(planRepository::incrementDirectoryVersion);
+    }
+
+    // =========================================================================
+    // ActionRepository và các bảng phụ thuộc của Task
+    // =========================================================================
+
+    @Test
+    void actionQueries() {
+        assertIndexed(() -> actionRepository.findByTaskId(7L));
+        assertIndexed(() -> actionRepository.findActionsByExecutor(7L));
+        assertIndexed(() -> actionRepository.countByExecutor(7L, LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 8)));
+        assertIndexed(() -> actionRepository.findOpenActionsByExecutor(7L, List.of(TaskStatus.COMPLETED, TaskStatus.CANCELLED), Limit.of(20)));
+        assertIndexed(() -> actionRepository.countByTaskIds(IDS));
+        assertIndexed(() -> actionExecutorRepository.findByActionId(7L));
+        assertIndexed(() -> actionExecutorRepository.findByActionIdIn(IDS));
+        assertIndexed(() -> actionExecutorRepository.findByExecutorId(7L));
+        assertIndexedInRollback(() -> actionExecutorRepository.deleteByTaskIds(IDS));
+        assertIndexedInRollback(() -> actionRepository.deleteByTaskIds(IDS));
+        assertIndexedInRollback(() -> actionRepository.lockOverdueIds(OPEN, LocalDate.of(2025, 6, 1), 500));
+        assertIndexedInRollback(() -> actionRepository.markOverdue(IDS));
+        assertIndexedInRollback(() -> actionRepository.lockById(7L));
+    }
+
+    @Test
+    void taskDependentQueries() {
+        assertIndexed(() -> taskExecutorRepository.findByTaskId(7L));
+        assertIndexed(() -> taskExecutorRepository.findByTaskIdIn(IDS));
+        assertIndexed(() -> taskCommentRepository.findByTaskId(7L));
+        assertIndexed(() -> taskCommentRepository.findPageBefore(7L, Long.MAX_VALUE, Long.MAX_VALUE, Limit.of(50)));
+        assertIndexed(() -> taskCommentRepository.findByTaskIdAndIdIn(7L, IDS));
+        assertIndexed(() -> taskEventRepository.findByTaskIdOrderByIdDesc(7L));
+        assertIndexedInRollback(() -> taskExecutorRepository.deleteByTaskIds(IDS));
+        assertIndexedInRollback(() -> taskCommentRepository.deleteByTaskIds(IDS));
+        assertIndexedInRollback(() -> taskEventRepository.deleteByTaskIds(IDS));
+    }
+
+    @Test
+    void staffInboxWrites() {
+        assertIndexedInRollback(() -> staffInboxRepository.insertForTasks(IDS));
+        assertIndexedInRollback(() -> staffInboxRepository.insertForActions(IDS));
+        assertIndexedInRollback(() -> staffInboxRepository.deleteByTaskIds(IDS));
+        assertIndexedInRollback(() -> staffInboxRepository.deleteByAction(7L, 13L));
+    }
+
+    @Test
+    void schedulerLeaseWrites() {
+        LocalDateTime now = LocalDateTime.of(2025, 6, 1, 0, 0);
+        assertIndexedInRollback(() -> schedulerLeaseRepository.tryAcquire("overdue-sweep", "node-a", now, now.plusMinutes(5)));
+        assertIndexedInRollback(() -> schedulerLeaseRepository.release("overdue-sweep", "node-a"));
+    }
+
+    @Test
+    void planTaskGroupQueries() {
+        assertIndexed(() -> planTaskGroupRepository.findKeysAfter(7L, "Task 1", "p7-1", Limit.of(50)));
+        assertIndexed(() -> planTaskGroupRepository.findKeys(7L));
+        assertIndexed(() -> planTaskGroupRepository.findKeys(7L, List.of("p7-1", "p7-2")));
+        assertIndexedInRollback(() -> planTaskGroupRepository.deleteByPlanId(7L));
+    }
+
+    @Test
+    void planDeletionQueries() {
+        assertIndexed(() -> planDeletionRepository.findRunningPlanIds(Limit.of(1)));
+        assertIndexedInRollback(() -> planDeletionRepository.addDeletedTasks(7L, 10));
+    }
+
+    @Test
+    void planRollupQueries() {
+        assertIndexed(() -> planRollupRepository.findByPlanId(7L));
+        assertIndexed(() -> planRollupRepository.findGroupKeysByTaskIds(IDS));
+        assertIndexed(() -> planRollupRepository.findGroupKeysByPlanId(7L));
+        // Cặp DELETE + INSERT ... SELECT như PlanRollupService (dòng của nhóm đã có sẵn từ seed).
+        // lockGroup (INSERT ... VALUES theo khóa chính) không đọc bảng nào, EXPLAIN luôn báo ALL nên không kiểm tra ở đây
+        assertIndexedInRollback(() -> {
+            planRollupRepository.deleteGroup(7L, 49L);
+            planRollupRepository.insertGroup(7L, 49L);
+        });
+        assertIndexedInRollback(() -> {
+            planRollupRepository.deleteGroup(7L, 0L);
+            planRollupRepository.insertUnassignedGroup(7L);
+        });
+        assertIndexedInRollback(() -> {
+            planRollupRepository.deleteByPlanId(7L);
+            planRollupRepository.insertPlan(7L);
+        });
+    }
+
+    @Test
+    void unitQueries() {
+        assertIndexed(() -> unitRepository.findByParentUnitId(7L));
+        assertIndexed(() -> unitStaffRepository.findByUnitId(7L));
+        assertIndexed(() -> unitStaffRepository.findByUnitIdIn(IDS));
+        assertIndexed(() -> unitStaffRepository.findStaffIdsUnderUnit(12L));
+    }
+
+    // =========================================================================
+    // Helpers
+    // =========================================================================
+
+    private void assertIndexedInRollback(Runnable query) {
+        transactionTemplate.executeWithoutResult(status -> {
+            assertIndexed(query);
+            status.setRollbackOnly();
+        });
+    }
+
+    /**
+     * @param allowedFullScans alias bảng được phép quét toàn bộ (bảng tạm của CTE)
+     */
+    private void assertIndexed(Runnable query, String... allowedFullScans) {
+        List<String> statements = SqlCaptureInterceptor.capture(query);
+        assertFalse(statements.isEmpty(), "No SQL captured");
+
+        Set<String> allowed = Set.of(allowedFullScans);
+        for (String sql : statements) {
+            for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN " + sql)) {
+                String table = String.valueOf(row.get("table"));
+                String type = String.valueOf(row.get("type"));
+                // <derivedN>, <subqueryN>, <unionN,M>: bảng tạm, không phải bảng thật
+                if (table.startsWith("<") || allowed.contains(table)) continue;
+                if ("ALL".equals(type) || "index".equals(type)) {
+                    fail("Full scan (" + type + ") on " + table + "\n  SQL: " + sql + "\n  EXPLAIN: " + row);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package tds.op.taskmanager.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import tds.op.taskmanager.repository.ActionExecutorRepository;
+import tds.op.taskmanager.repository.ActionRepository;
+import tds.op.taskmanager.repository.PlanRepository;
+import tds.op.taskmanager.repository.PlanRollupRepository;
+import tds.op.taskmanager.repository.UnitRepository;
+import tds.op.taskmanager.representation.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * plan_rollup được tính lại sau mỗi thay đổi (tạo Task, hoàn thành Action, xóa Task, OverdueSweeper) phải khớp với
+ * số liệu tổng hợp lại từ đầu. Các thay đổi commit thật (rollup tính lại sau commit), dữ liệu được xóa sau test.
+ */
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "taskmanager.overdue-sweep.initial-delay-ms=3600000"})
+class PlanRollupServiceTest {
+
+    private static final long EXECUTOR_ID = 9_000_001L;
+
+    @Autowired private TaskService taskService;
+    @Autowired private ActionService actionService;
+    @Autowired private PersonalWorkService personalWorkService;
+    @Autowired private OverdueSweeper overdueSweeper;
+    @Autowired private PlanRepository planRepository;
+    @Autowired private UnitRepository unitRepository;
+    @Autowired private ActionRepository actionRepository;
+    @Autowired private ActionExecutorRepository actionExecutorRepository;
+    @Autowired private PlanRollupRepository planRollupRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> unitIds = new ArrayList<>();
+    private Long planId;
+
+    @Test
+    void rollupMatchesFreshAggregateAfterEachChange() {
+        Long unitA = unit("Rollup unit A");
+        Long unitB = unit("Rollup unit B");
+        Plan plan = new Plan();
+        plan.setName("Rollup test plan");
+        plan.setUnitId(unitA);
+        planId = planRepository.save(plan).getId();
+
+        LocalDate today = LocalDate.now();
+        TaskDTO late = taskService.createTask(task("rollup-late", unitA, "2025-01", today.minusDays(1)));
+        TaskDTO later = taskService.createTask(task("rollup-later", unitB, "2025-02", today.plusMonths(1)));
+        taskService.createTask(task("rollup-unassigned", null, null, today.plusDays(3)));
+        TaskDTO removed = taskService.createTask(task("rollup-removed", unitA, "2025-01", today.plusDays(3)));
+        assertRollupIsFresh();
+
+        Long doneAction = action(late.getId());
+        action(later.getId());
+        personalWorkService.updateActionStatus(doneAction, EXECUTOR_ID, TaskStatus.COMPLETED);
+        assertRollupIsFresh();
+
+        taskService.deleteTask(removed.getId());
+        assertRollupIsFresh();
+
+        overdueSweeper.sweep();
+        assertRollupIsFresh();
+        assertEquals(1, planRollupRepository.findByPlanId(planId).stream().mapToLong(PlanRollup::getOverdueCount).sum());
+    }
+
+    // So plan_rollup đang lưu với kết quả build lại Plan từ tasks (trong transaction rollback)
+    private void assertRollupIsFresh() {
+        List<PlanRollup> stored = sorted(planRollupRepository.findByPlanId(planId));
+        List<PlanRollup> fresh = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            planRollupRepository.deleteByPlanId(planId);
+            planRollupRepository.insertPlan(planId);
+            return sorted(planRollupRepository.findByPlanId(planId));
+        });
+        assertFalse(fresh.isEmpty());
+        assertEquals(fresh, stored);
+    }
+
+    private static List<PlanRollup> sorted(List<PlanRollup> rows) {
+        rows.sort(Comparator.comparing(PlanRollup::getAssigneeId).thenComparing(PlanRollup::getMonth));
+        return rows;
+    }
+
+    private Long unit(String name) {
+        Unit unit = new Unit();
+        unit.setName(name);
+        Long id = unitRepository.save(unit).getId();
+        unitIds.add(id);
+        return id;
+    }
+
+    private TaskDTO task(String uuid, Long assigneeId, String month, LocalDate deadline) {
+        TaskDTO dto = new TaskDTO();
+        dto.setUuid(uuid);
+        dto.setName(uuid);
+        dto.setMonth(month);
+        dto.setInitialDeadline(deadline);
+        PlanDTO plan = new PlanDTO();
+        plan.setId(planId);
+        dto.setPlan(plan);
+        if (assigneeId != null) {
+            UnitDTO assignee = new UnitDTO();
+            assignee.setId(assigneeId);
+            dto.setAssignee(assignee);
+        }
+        return dto;
+    }
+
+    private Long action(Long taskId) {
+        ActionDTO dto = new ActionDTO();
+        dto.setTaskId(taskId);
+        dto.setName("Rollup test action");
+        dto.setDeadline(LocalDate.now().plusDays(7));
+        actionService.createAction(dto);
+        Long actionId = actionRepository.findByTaskId(taskId).get(0).getId();
+        ActionExecutor executor = new ActionExecutor();
+        executor.setActionId(actionId);
+        executor.setExecutorId(EXECUTOR_ID);
+        actionExecutorRepository.save(executor);
+        return actionId;
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (planId != null) {
+            String taskIds = "SELECT id FROM tasks WHERE plan_id = " + planId;
+            jdbcTemplate.update("DELETE FROM action_executor WHERE action_id IN (SELECT id FROM action WHERE task_id IN (" + taskIds + "))");
+            jdbcTemplate.update("DELETE FROM action WHERE task_id IN (" + taskIds + ")");
+            jdbcTemplate.update("DELETE FROM task_event WHERE task_id IN (" + taskIds + ")");
+            jdbcTemplate.update("DELETE FROM staff_inbox WHERE plan_id = ?", planId);
+            jdbcTemplate.update("DELETE FROM tasks WHERE plan_id = ?", planId);
+            jdbcTemplate.update("DELETE FROM plan_task_group WHERE plan_id = ?", planId);
+            jdbcTemplate.update("DELETE FROM plan_rollup WHERE plan_id = ?", planId);
+            jdbcTemplate.update("DELETE FROM plan_rollup_group WHERE plan_id = ?", planId);
+            jdbcTemplate.update("DELETE FROM plan WHERE id = ?", planId);
+        }
+        for (Long unitId : unitIds) jdbcTemplate.update("DELETE FROM unit WHERE id = ?", unitId);
+    }
+}